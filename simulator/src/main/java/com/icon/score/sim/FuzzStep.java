@@ -0,0 +1,49 @@
+package com.icon.score.sim;
+
+import java.math.BigInteger;
+
+/**
+ * One generated call in a fuzz trace. Accounts are referred to by their index in the fuzzer's
+ * account pool so a trace can be replayed against a fresh deployment.
+ */
+public class FuzzStep {
+    public final int caller;
+    public final String method;
+    // account index of _to / _issuer, or -1
+    public final int target;
+    // _value / _new_limit, or null
+    public final BigInteger value;
+    public final long advance;
+
+    public FuzzStep(int caller, String method, int target, BigInteger value, long advance) {
+        this.caller = caller;
+        this.method = method;
+        this.target = target;
+        this.value = value;
+        this.advance = advance;
+    }
+
+    FuzzStep withAdvance(long advance) {
+        return new FuzzStep(caller, method, target, value, advance);
+    }
+
+    FuzzStep withValue(BigInteger value) {
+        return new FuzzStep(caller, method, target, value, advance);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        if (advance > 0) {
+            buf.append("+").append(advance).append(" blocks, ");
+        }
+        buf.append('#').append(caller).append('.').append(method).append('(');
+        if (target >= 0) {
+            buf.append('#').append(target);
+        }
+        if (value != null) {
+            buf.append(target >= 0 ? ", " : "").append(value);
+        }
+        return buf.append(')').toString();
+    }
+}
@@ -0,0 +1,322 @@
+package com.icon.score.sim;
+
+import com.icon.score.StableCoin;
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import score.Address;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Stateful property-based fuzzer for StableCoin. Each seed generates a random sequence of
+ * administrative, issuing and transfer calls across a pool of accounts and block heights, runs it
+ * against a fresh deployment, and checks after every step that
+ * <ul>
+ * <li>the balances of all accounts add up to {@code totalSupply}</li>
+ * <li>no issuer allowance is negative</li>
+ * <li>no account's free transaction count is above the {@code freeDailyTxLimit} it was counted under</li>
+ * </ul>
+ * A failing trace is shrunk to a minimal sequence that still violates an invariant.
+ * Seeds are split into shards run in parallel JVMs.
+ * <pre>
+ * --seeds N      number of sequences (default 1000)
+ * --start S      first seed (default 0)
+ * --steps N      calls per sequence (default 200)
+ * --accounts N   size of the account pool, #0 is the admin (default 8)
+ * --shards N     parallel JVMs (default: available processors)
+ * </pre>
+ */
+public class InvariantFuzzer extends TestBase {
+    private static final String[] METHODS = {"mint", "mintTo", "burn", "transfer", "transfer", "transfer",
+            "approve", "addIssuer", "removeIssuer", "togglePause", "changeFreeDailyTxLimit"};
+    private static final long TERM_LENGTH = 43120;
+
+    private final ServiceManager sm = getServiceManager();
+    private final Account[] accounts;
+    private final int steps;
+
+    public static class Violation {
+        public final int step;
+        public final String message;
+
+        Violation(int step, String message) {
+            this.step = step;
+            this.message = message;
+        }
+    }
+
+    public InvariantFuzzer(int accountCount, int steps) {
+        this.accounts = new Account[accountCount];
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = sm.createAccount();
+        }
+        this.steps = steps;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = ReplaySimulator.parseArgs(args);
+        long seeds = Long.parseLong(options.getOrDefault("seeds", "1000"));
+        long start = Long.parseLong(options.getOrDefault("start", "0"));
+        int steps = Integer.parseInt(options.getOrDefault("steps", "200"));
+        int accountCount = Integer.parseInt(options.getOrDefault("accounts", "8"));
+        int shards = Integer.parseInt(options.getOrDefault("shards",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+
+        if (shards > 1) {
+            List<List<String>> shardArgs = new ArrayList<>();
+            long perShard = (seeds + shards - 1) / shards;
+            for (long first = start; first < start + seeds; first += perShard) {
+                shardArgs.add(List.of("--start", String.valueOf(first),
+                        "--seeds", String.valueOf(Math.min(perShard, start + seeds - first)),
+                        "--steps", String.valueOf(steps), "--accounts", String.valueOf(accountCount),
+                        "--shards", "1"));
+            }
+            int failed = ShardRunner.run(InvariantFuzzer.class, shardArgs, shards);
+            System.out.println(shardArgs.size() - failed + "/" + shardArgs.size() + " shards passed");
+            System.exit(failed == 0 ? 0 : 1);
+        }
+
+        InvariantFuzzer fuzzer = new InvariantFuzzer(accountCount, steps);
+        long begin = System.nanoTime();
+        int failures = 0;
+        for (long seed = start; seed < start + seeds; seed++) {
+            List<FuzzStep> trace = fuzzer.generate(seed);
+            Violation violation = fuzzer.run(trace);
+            if (violation != null) {
+                failures++;
+                List<FuzzStep> shrunk = fuzzer.shrink(trace.subList(0, violation.step + 1));
+                Violation last = fuzzer.run(shrunk);
+                System.out.println("seed " + seed + ": " + last.message + " after " + shrunk.size() + " steps");
+                for (FuzzStep step : shrunk) {
+                    System.out.println("  " + step);
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("seeds %d..%d: %d failed, %.0f sequences/s%n",
+                start, start + seeds - 1, failures, seeds / seconds);
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    /**
+     * Generates the call sequence for `seed`. The sequence only depends on the seed, not on
+     * contract state, so it can be replayed and shrunk independently.
+     */
+    public List<FuzzStep> generate(long seed) {
+        Random random = new Random(seed);
+        List<FuzzStep> trace = new ArrayList<>(steps);
+        for (int i = 0; i < steps; i++) {
+            String method = METHODS[random.nextInt(METHODS.length)];
+            boolean adminOnly = method.equals("approve") || method.equals("addIssuer")
+                    || method.equals("removeIssuer") || method.equals("togglePause")
+                    || method.equals("changeFreeDailyTxLimit");
+            // mostly well-formed calls so sequences get past the access checks
+            int caller = adminOnly && random.nextInt(10) < 8 ? 0 : random.nextInt(accounts.length);
+            int target = -1;
+            BigInteger value = null;
+            switch (method) {
+                case "mintTo":
+                case "transfer":
+                case "approve":
+                case "addIssuer":
+                case "removeIssuer":
+                    target = random.nextInt(accounts.length);
+                    break;
+                default:
+                    break;
+            }
+            switch (method) {
+                case "mint":
+                case "mintTo":
+                case "burn":
+                case "transfer":
+                case "approve":
+                    value = randomValue(random);
+                    break;
+                case "changeFreeDailyTxLimit":
+                    value = BigInteger.valueOf(random.nextInt(12) - 1);
+                    break;
+                default:
+                    break;
+            }
+            long advance;
+            int r = random.nextInt(100);
+            if (r < 60) {
+                advance = 0;
+            } else if (r < 95) {
+                advance = 1 + random.nextInt(5);
+            } else {
+                // land around the end of a free transaction term
+                advance = TERM_LENGTH - 2 + random.nextInt(5);
+            }
+            trace.add(new FuzzStep(caller, method, target, value, advance));
+        }
+        return trace;
+    }
+
+    private static BigInteger randomValue(Random random) {
+        int r = random.nextInt(20);
+        if (r == 0) {
+            return BigInteger.ZERO;
+        } else if (r == 1) {
+            return BigInteger.valueOf(-1 - random.nextInt(1000));
+        } else if (r == 2) {
+            return BigInteger.ONE.shiftLeft(200 + random.nextInt(60));
+        }
+        return BigInteger.valueOf(1 + random.nextInt(1_000_000));
+    }
+
+    /**
+     * Runs `trace` against a fresh deployment of the token.
+     *
+     * @return the first invariant violation, or null if all invariants held
+     */
+    public Violation run(List<FuzzStep> trace) {
+        Score token = deploy();
+        BigInteger[] counts = new BigInteger[accounts.length];
+        BigInteger[] termLimits = new BigInteger[accounts.length];
+        for (int i = 0; i < trace.size(); i++) {
+            FuzzStep step = trace.get(i);
+            if (step.advance > 0) {
+                sm.getBlock().increase(step.advance);
+            }
+            try {
+                token.invoke(accounts[step.caller], step.method, args(step));
+            } catch (AssertionError | RuntimeException e) {
+                // reverts are expected, only the state afterwards is checked
+            }
+            String message = check(token, counts, termLimits);
+            if (message != null) {
+                return new Violation(i, message);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Deploys a new token; the admin and the issuer slots are taken from the account pool.
+     */
+    Score deploy() {
+        try {
+            return sm.deploy(accounts[0], StableCoin.class, "StableCoin", "USDS", BigInteger.valueOf(18),
+                    accounts[0].getAddress(), BigInteger.valueOf(accounts.length));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to deploy StableCoin", e);
+        }
+    }
+
+    private Object[] args(FuzzStep step) {
+        switch (step.method) {
+            case "mint":
+            case "burn":
+            case "changeFreeDailyTxLimit":
+                return new Object[]{step.value};
+            case "mintTo":
+            case "approve":
+                return new Object[]{accounts[step.target].getAddress(), step.value};
+            case "transfer":
+                return new Object[]{accounts[step.target].getAddress(), step.value, null};
+            case "addIssuer":
+            case "removeIssuer":
+                return new Object[]{accounts[step.target].getAddress()};
+            default:
+                return new Object[0];
+        }
+    }
+
+    /**
+     * Checks the invariants after a step. `counts` and `termLimits` carry the free transaction
+     * count of every account and the limit in force when that count was reached from one step to
+     * the next; a count is only checked against the limit of its own term, so lowering the limit
+     * later does not turn an existing count into a violation.
+     *
+     * @return a description of the first broken invariant, or null if all hold
+     */
+    String check(Score token, BigInteger[] counts, BigInteger[] termLimits) {
+        BigInteger limit = (BigInteger) token.call("freeDailyTxLimit");
+        BigInteger sum = BigInteger.ZERO;
+        for (int i = 0; i < accounts.length; i++) {
+            Address address = accounts[i].getAddress();
+            BigInteger balance = (BigInteger) token.call("balanceOf", address);
+            if (balance.signum() < 0) {
+                return "balance of #" + i + " is negative: " + balance;
+            }
+            sum = sum.add(balance);
+
+            BigInteger allowance = (BigInteger) token.call("issuerAllowance", address);
+            if (allowance.signum() < 0) {
+                return "issuer allowance of #" + i + " is negative: " + allowance;
+            }
+
+            // the remaining count is reported against the current limit, the count itself is not
+            BigInteger count = (Boolean) token.call("isWhitelisted", address)
+                    ? limit.subtract((BigInteger) token.call("remainingFreeTxThisTerm", address))
+                    : BigInteger.ZERO;
+            if (!count.equals(counts[i])) {
+                counts[i] = count;
+                termLimits[i] = limit;
+            }
+            if (count.compareTo(termLimits[i]) > 0) {
+                return "free transaction count of #" + i + " is " + count + ", above the limit " + termLimits[i]
+                        + " it was counted under";
+            }
+        }
+        BigInteger totalSupply = (BigInteger) token.call("totalSupply");
+        if (!sum.equals(totalSupply)) {
+            return "sum of balances " + sum + " != totalSupply " + totalSupply;
+        }
+        return null;
+    }
+
+    /**
+     * Removes chunks of steps, then simplifies the remaining ones, as long as the result still
+     * violates an invariant.
+     */
+    public List<FuzzStep> shrink(List<FuzzStep> failing) {
+        List<FuzzStep> trace = new ArrayList<>(failing);
+        int chunk = Math.max(1, trace.size() / 2);
+        while (true) {
+            boolean removed = false;
+            for (int i = 0; i + chunk <= trace.size() && trace.size() > 1; ) {
+                List<FuzzStep> candidate = new ArrayList<>(trace.subList(0, i));
+                candidate.addAll(trace.subList(i + chunk, trace.size()));
+                Violation violation = run(candidate);
+                if (violation != null) {
+                    trace = new ArrayList<>(candidate.subList(0, violation.step + 1));
+                    removed = true;
+                } else {
+                    i += chunk;
+                }
+            }
+            if (!removed) {
+                if (chunk == 1) {
+                    break;
+                }
+                chunk /= 2;
+            }
+        }
+        for (int i = 0; i < trace.size(); i++) {
+            FuzzStep step = trace.get(i);
+            if (step.advance > 0) {
+                trace.set(i, step.withAdvance(0));
+                if (run(trace) == null) {
+                    trace.set(i, step);
+                }
+            }
+            step = trace.get(i);
+            if (step.value != null && step.value.abs().compareTo(BigInteger.ONE) > 0) {
+                trace.set(i, step.withValue(step.value.signum() < 0 ? BigInteger.ONE.negate() : BigInteger.ONE));
+                if (run(trace) == null) {
+                    trace.set(i, step);
+                }
+            }
+        }
+        return trace;
+    }
+}
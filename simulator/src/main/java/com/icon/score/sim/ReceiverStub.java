@@ -0,0 +1,16 @@
+package com.icon.score.sim;
+
+import score.Address;
+import score.annotation.External;
+
+import java.math.BigInteger;
+
+/**
+ * Stands in for contract recipients in a replay, accepting every {@code tokenFallback}.
+ */
+public class ReceiverStub {
+
+    @External
+    public void tokenFallback(Address _from, BigInteger _value, byte[] _data) {
+    }
+}
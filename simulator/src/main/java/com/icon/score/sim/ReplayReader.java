@@ -0,0 +1,151 @@
+package com.icon.score.sim;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Streams {@link ReplayRecord}s from an export file without loading it into memory.
+ * <ul>
+ * <li>{@code .json}: array of {@code {"transaction": {...}, "result": {...}}} entries as returned by the node</li>
+ * <li>{@code .jsonl}: one such entry, or one {@code {"height", "from", "method", "params", "status"}} object, per line</li>
+ * <li>{@code .csv}: {@code height,from,method,params,status} with params as {@code name=value;name=a|b}</li>
+ * </ul>
+ */
+public class ReplayReader {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    public interface RecordSink {
+        void accept(ReplayRecord record) throws InterruptedException;
+    }
+
+    public static void read(Path file, RecordSink sink) throws IOException, InterruptedException {
+        String name = file.getFileName().toString();
+        if (name.endsWith(".csv")) {
+            readCsv(file, sink);
+        } else if (name.endsWith(".jsonl")) {
+            try (BufferedReader reader = Files.newBufferedReader(file)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        emit(MAPPER.readTree(line), sink);
+                    }
+                }
+            }
+        } else {
+            try (JsonParser parser = MAPPER.getFactory().createParser(file.toFile())) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IOException("Expected a JSON array: " + file);
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    emit(parser.readValueAsTree(), sink);
+                }
+            }
+        }
+    }
+
+    private static void emit(JsonNode node, RecordSink sink) throws InterruptedException {
+        ReplayRecord record = fromJson(node);
+        if (record != null) {
+            sink.accept(record);
+        }
+    }
+
+    static ReplayRecord fromJson(JsonNode node) {
+        if (node.has("transaction")) {
+            JsonNode tx = node.get("transaction");
+            if (!"call".equals(tx.path("dataType").asText())) {
+                return null;
+            }
+            JsonNode result = node.path("result");
+            Boolean success = result.has("status") ? toBigInteger(result.get("status").asText()).signum() != 0 : null;
+            String height = result.has("blockHeight") ? result.get("blockHeight").asText()
+                    : tx.path("blockHeight").asText("0x0");
+            return new ReplayRecord(toBigInteger(height).longValue(), tx.path("from").asText(),
+                    tx.path("data").path("method").asText(), toParams(tx.path("data").path("params")), success);
+        }
+        Boolean success = node.has("status") ? toBigInteger(node.get("status").asText()).signum() != 0 : null;
+        return new ReplayRecord(toBigInteger(node.path("height").asText("0")).longValue(), node.path("from").asText(),
+                node.path("method").asText(), toParams(node.path("params")), success);
+    }
+
+    private static Map<String, Object> toParams(JsonNode params) {
+        Map<String, Object> map = new HashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            JsonNode value = field.getValue();
+            if (value.isArray()) {
+                List<Object> list = new ArrayList<>(value.size());
+                value.forEach(v -> list.add(toValue(v)));
+                map.put(field.getKey(), list);
+            } else if (!value.isNull()) {
+                map.put(field.getKey(), toValue(value));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Keeps numbers and booleans typed; objects and nested arrays are left as nodes for the
+     * simulator to reject with the position of the transaction.
+     */
+    private static Object toValue(JsonNode value) {
+        if (value.isTextual()) {
+            return value.asText();
+        } else if (value.isNumber()) {
+            return value.numberValue();
+        } else if (value.isBoolean()) {
+            return value.booleanValue();
+        }
+        return value;
+    }
+
+    private static void readCsv(Path file, RecordSink sink) throws IOException, InterruptedException {
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line = reader.readLine();
+            if (line == null || !line.startsWith("height,")) {
+                throw new IOException("Missing CSV header 'height,from,method,params,status': " + file);
+            }
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] cols = line.split(",", -1);
+                Map<String, Object> params = new HashMap<>();
+                if (cols.length > 3 && !cols[3].isEmpty()) {
+                    for (String pair : cols[3].split(";")) {
+                        int eq = pair.indexOf('=');
+                        String value = pair.substring(eq + 1);
+                        params.put(pair.substring(0, eq),
+                                value.contains("|") ? Arrays.asList(value.split("\\|")) : value);
+                    }
+                }
+                Boolean success = cols.length > 4 && !cols[4].isEmpty() ? toBigInteger(cols[4]).signum() != 0 : null;
+                sink.accept(new ReplayRecord(toBigInteger(cols[0]).longValue(), cols[1], cols[2], params, success));
+            }
+        }
+    }
+
+    static BigInteger toBigInteger(String value) {
+        if (value.startsWith("0x")) {
+            return new BigInteger(value.substring(2), 16);
+        } else if (value.startsWith("-0x")) {
+            return new BigInteger(value.substring(3), 16).negate();
+        }
+        return new BigInteger(value);
+    }
+}
@@ -0,0 +1,25 @@
+package com.icon.score.sim;
+
+import java.util.Map;
+
+/**
+ * One historical transaction to replay: the block it was included in, the sender,
+ * and the called method with its parameters as they appeared on chain.
+ * Parameter values are strings, or lists of strings for array parameters.
+ */
+public class ReplayRecord {
+    public final long height;
+    public final String from;
+    public final String method;
+    public final Map<String, Object> params;
+    // null if the original outcome is unknown
+    public final Boolean expectedSuccess;
+
+    public ReplayRecord(long height, String from, String method, Map<String, Object> params, Boolean expectedSuccess) {
+        this.height = height;
+        this.from = from;
+        this.method = method;
+        this.params = params;
+        this.expectedSuccess = expectedSuccess;
+    }
+}
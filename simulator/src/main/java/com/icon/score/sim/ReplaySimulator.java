@@ -0,0 +1,405 @@
+package com.icon.score.sim;
+
+import com.icon.score.StableCoin;
+import com.iconloop.score.test.Account;
+import com.iconloop.score.test.Score;
+import com.iconloop.score.test.ServiceManager;
+import com.iconloop.score.test.TestBase;
+import score.Address;
+import score.annotation.External;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Replays historical StableCoin transactions against the compiled contract on the in-memory
+ * unit-test chain, advancing the block height as the original chain did, and validates the
+ * final balances and {@code totalSupply}.
+ * <p>
+ * Records within one input are applied in order on a single thread since they share the
+ * token's state; parsing runs ahead on a reader thread. Several inputs are replayed as
+ * independent shards, each in its own JVM (see {@link ShardRunner}).
+ * <pre>
+ * --input FILE[,FILE...]   CSV, JSON lines or fixture JSON export (see {@link ReplayReader})
+ * --admin ADDRESS          original admin, deploys the token
+ * --token ADDRESS          original token address, mapped to the deployed score
+ * --issuers N              value of _nIssuers at deployment (default 2)
+ * --expect FILE            CSV of "address,balance" rows, plus an optional "totalSupply,value" row
+ * --parallel N             shards run at once (default: available processors)
+ * --progress N             report every N transactions (default 100000)
+ * </pre>
+ */
+public class ReplaySimulator extends TestBase {
+    private static final int BATCH_SIZE = 1024;
+    private static final ReplayRecord[] END = new ReplayRecord[0];
+    private static final Address EOA_ZERO = new Address(new byte[21]);
+
+    private final ServiceManager sm = getServiceManager();
+    private final Map<String, Method> methods = new HashMap<>();
+    private final Map<String, Account> accounts = new LinkedHashMap<>();
+    private final Map<String, Address> contracts = new LinkedHashMap<>();
+    private final Account deployer = sm.createAccount();
+    private final Score token;
+    private final long progressEvery;
+
+    private long heightOffset = Long.MIN_VALUE;
+    // position of the next record in the replayed inputs
+    private long index;
+    private long applied;
+    private long failed;
+    private long mismatched;
+    private long skipped;
+
+    public ReplaySimulator(Map<String, String> options) throws Exception {
+        for (Method m : StableCoin.class.getMethods()) {
+            External external = m.getAnnotation(External.class);
+            if (external != null && !external.readonly()) {
+                methods.put(m.getName(), m);
+            }
+        }
+        Account admin = account(options.getOrDefault("admin", "hx" + "0".repeat(39) + "1"));
+        token = sm.deploy(deployer, StableCoin.class, "StableCoin", "USDS", BigInteger.valueOf(18),
+                admin.getAddress(), new BigInteger(options.getOrDefault("issuers", "2")));
+        if (options.containsKey("token")) {
+            contracts.put(options.get("token"), token.getAddress());
+        }
+        progressEvery = Long.parseLong(options.getOrDefault("progress", "100000"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        if (!options.containsKey("input")) {
+            System.err.println("usage: ReplaySimulator --input FILE[,FILE...] [--admin ADDRESS] [--token ADDRESS]"
+                    + " [--issuers N] [--expect FILE] [--parallel N] [--progress N]");
+            System.exit(2);
+        }
+        List<String> inputs = Arrays.asList(options.get("input").split(","));
+        if (inputs.size() > 1) {
+            List<List<String>> shards = new ArrayList<>();
+            for (String input : inputs) {
+                List<String> shardArgs = new ArrayList<>();
+                options.forEach((k, v) -> {
+                    // per-input expectations are passed as FILE.expect next to each input
+                    if (!k.equals("input") && !k.equals("parallel") && !k.equals("expect")) {
+                        shardArgs.add("--" + k);
+                        shardArgs.add(v);
+                    }
+                });
+                shardArgs.add("--input");
+                shardArgs.add(input);
+                if (Files.exists(Paths.get(input + ".expect"))) {
+                    shardArgs.add("--expect");
+                    shardArgs.add(input + ".expect");
+                }
+                shards.add(shardArgs);
+            }
+            int parallel = Integer.parseInt(options.getOrDefault("parallel",
+                    String.valueOf(Runtime.getRuntime().availableProcessors())));
+            int failedShards = ShardRunner.run(ReplaySimulator.class, shards, parallel);
+            System.out.println(inputs.size() - failedShards + "/" + inputs.size() + " shards passed");
+            System.exit(failedShards == 0 ? 0 : 1);
+        }
+
+        ReplaySimulator simulator = new ReplaySimulator(options);
+        boolean ok = simulator.replay(Paths.get(inputs.get(0)));
+        if (options.containsKey("expect")) {
+            ok &= simulator.checkExpected(Paths.get(options.get("expect")));
+        }
+        System.exit(ok ? 0 : 1);
+    }
+
+    /**
+     * Applies every record in `input` and checks that balances add up to the total supply.
+     *
+     * @return false if a replayed outcome differed from the recorded one or the supply does not add up
+     */
+    public boolean replay(Path input) throws Exception {
+        BlockingQueue<ReplayRecord[]> queue = new ArrayBlockingQueue<>(64);
+        Exception[] readError = new Exception[1];
+        Thread reader = new Thread(() -> {
+            List<ReplayRecord> batch = new ArrayList<>(BATCH_SIZE);
+            try {
+                ReplayReader.read(input, record -> {
+                    batch.add(record);
+                    if (batch.size() == BATCH_SIZE) {
+                        queue.put(batch.toArray(END));
+                        batch.clear();
+                    }
+                });
+                if (!batch.isEmpty()) {
+                    queue.put(batch.toArray(END));
+                }
+            } catch (Exception e) {
+                readError[0] = e;
+            } finally {
+                try {
+                    queue.put(END);
+                } catch (InterruptedException ignored) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "replay-reader");
+        reader.start();
+
+        long start = System.nanoTime();
+        long nextReport = progressEvery;
+        ReplayRecord[] batch;
+        while ((batch = queue.take()) != END) {
+            for (ReplayRecord record : batch) {
+                apply(record);
+                if (applied >= nextReport) {
+                    report(start);
+                    nextReport += progressEvery;
+                }
+            }
+        }
+        reader.join();
+        if (readError[0] != null) {
+            throw readError[0];
+        }
+        report(start);
+        return mismatched == 0 & checkSupply();
+    }
+
+    void apply(ReplayRecord record) {
+        long tx = index++;
+        Method method = methods.get(record.method);
+        if (method == null) {
+            skipped++;
+            return;
+        }
+        // malformed input is an error of the file, not a failed transaction
+        Object[] args = toArgs(method, record.params, tx);
+        advanceTo(record.height);
+        boolean success;
+        try {
+            token.invoke(account(record.from), record.method, args);
+            success = true;
+        } catch (AssertionError | RuntimeException e) {
+            success = false;
+            failed++;
+        }
+        applied++;
+        if (record.expectedSuccess != null && record.expectedSuccess != success) {
+            if (++mismatched <= 10) {
+                System.out.println("mismatch at height " + record.height + ": " + record.method + " from "
+                        + record.from + " " + (success ? "succeeded" : "failed") + " in replay");
+            }
+        }
+    }
+
+    /**
+     * Moves the chain so that the next invoke, which opens a new block, runs at `height` shifted
+     * by the offset fixed at the first record. Records of one original block cannot share a
+     * simulated block; they run in the following ones, and the next record of a later block is
+     * back on its own height.
+     */
+    private void advanceTo(long height) {
+        long current = sm.getBlock().getHeight();
+        if (heightOffset == Long.MIN_VALUE) {
+            heightOffset = current + 1 - height;
+        }
+        long target = simulatedHeight(height) - 1;
+        if (target > current) {
+            sm.getBlock().increase(target - current);
+        }
+    }
+
+    /**
+     * @return the height on the simulated chain of the original `height`
+     */
+    long simulatedHeight(long height) {
+        return height + heightOffset;
+    }
+
+    Object call(String method, Object... params) {
+        return token.call(method, params);
+    }
+
+    private Object[] toArgs(Method method, Map<String, Object> params, long tx) {
+        Parameter[] parameters = method.getParameters();
+        Object[] args = new Object[parameters.length];
+        for (int i = 0; i < parameters.length; i++) {
+            String name = parameters[i].getName();
+            Object value = params.get(name);
+            try {
+                args[i] = value == null ? null : convert(parameters[i].getType(), value);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException("tx " + tx + " (" + method.getName() + "): invalid " + name
+                        + ": " + e.getMessage(), e);
+            }
+        }
+        return args;
+    }
+
+    private Object convert(Class<?> type, Object value) {
+        if (type.isArray() && type != byte[].class) {
+            List<?> list = value instanceof List ? (List<?>) value : List.of(value);
+            Object array = java.lang.reflect.Array.newInstance(type.getComponentType(), list.size());
+            for (int i = 0; i < list.size(); i++) {
+                java.lang.reflect.Array.set(array, i, convert(type.getComponentType(), list.get(i)));
+            }
+            return array;
+        }
+        if (type == Address.class) {
+            return address(string(value));
+        } else if (type == BigInteger.class) {
+            return integer(value);
+        } else if (type == boolean.class || type == Boolean.class) {
+            if (value instanceof Boolean) {
+                return value;
+            }
+            String text = scalar(value);
+            return text.equals("true") || (!text.equals("false") && integer(value).signum() != 0);
+        } else if (type == int.class || type == Integer.class) {
+            return integer(value).intValueExact();
+        } else if (type == long.class || type == Long.class) {
+            return integer(value).longValueExact();
+        } else if (type == byte[].class) {
+            String text = string(value);
+            String hex = text.startsWith("0x") ? text.substring(2) : text;
+            byte[] bytes = new byte[hex.length() / 2];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+            }
+            return bytes;
+        }
+        return scalar(value);
+    }
+
+    private static String string(Object value) {
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("expected a string, got " + describe(value));
+        }
+        return (String) value;
+    }
+
+    private static String scalar(Object value) {
+        if (value instanceof String || value instanceof Number || value instanceof Boolean) {
+            return String.valueOf(value);
+        }
+        throw new IllegalArgumentException("expected a string, number or boolean, got " + describe(value));
+    }
+
+    private static BigInteger integer(Object value) {
+        if (value instanceof BigInteger) {
+            return (BigInteger) value;
+        } else if (value instanceof Long || value instanceof Integer || value instanceof Short) {
+            return BigInteger.valueOf(((Number) value).longValue());
+        } else if (value instanceof Number) {
+            // 1e18 and the like, as long as there is no fraction
+            return new BigDecimal(value.toString()).toBigIntegerExact();
+        }
+        return ReplayReader.toBigInteger(scalar(value));
+    }
+
+    private static String describe(Object value) {
+        return value.getClass().getSimpleName() + " " + value;
+    }
+
+    private Account account(String original) {
+        return accounts.computeIfAbsent(original, k -> sm.createAccount());
+    }
+
+    /**
+     * Maps an address from the replayed chain to one on the simulated chain. Contract addresses
+     * get a {@link ReceiverStub} so transfers to them run `tokenFallback` as they did originally.
+     */
+    private Address address(String original) {
+        if (original.startsWith("cx")) {
+            return contracts.computeIfAbsent(original, k -> {
+                try {
+                    return sm.deploy(deployer, ReceiverStub.class).getAddress();
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to deploy receiver for " + original, e);
+                }
+            });
+        } else if (original.equals("hx" + "0".repeat(40))) {
+            return EOA_ZERO;
+        }
+        return account(original).getAddress();
+    }
+
+    BigInteger balanceOf(String original) {
+        return (BigInteger) token.call("balanceOf", address(original));
+    }
+
+    private boolean checkSupply() {
+        BigInteger sum = BigInteger.ZERO;
+        for (Account account : accounts.values()) {
+            sum = sum.add((BigInteger) token.call("balanceOf", account.getAddress()));
+        }
+        for (Address contract : contracts.values()) {
+            sum = sum.add((BigInteger) token.call("balanceOf", contract));
+        }
+        BigInteger totalSupply = (BigInteger) token.call("totalSupply");
+        if (!sum.equals(totalSupply)) {
+            System.out.println("sum of balances " + sum + " != totalSupply " + totalSupply);
+            return false;
+        }
+        System.out.println("totalSupply " + totalSupply + " matches " + (accounts.size() + contracts.size())
+                + " balances");
+        return true;
+    }
+
+    /**
+     * Compares final state with `expected`, a CSV of "address,balance" rows taken from the original chain.
+     */
+    public boolean checkExpected(Path expected) throws IOException {
+        int checked = 0;
+        int wrong = 0;
+        try (BufferedReader reader = Files.newBufferedReader(expected)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] cols = line.split(",");
+                if (cols.length < 2 || cols[0].equals("address")) {
+                    continue;
+                }
+                BigInteger want = ReplayReader.toBigInteger(cols[1].trim());
+                BigInteger got = cols[0].equals("totalSupply")
+                        ? (BigInteger) token.call("totalSupply")
+                        : balanceOf(cols[0].trim());
+                checked++;
+                if (!want.equals(got)) {
+                    if (++wrong <= 10) {
+                        System.out.println(cols[0] + ": expected " + want + ", replayed " + got);
+                    }
+                }
+            }
+        }
+        System.out.println(checked - wrong + "/" + checked + " expected values match");
+        return wrong == 0;
+    }
+
+    private void report(long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d applied (%d failed, %d mismatched, %d skipped) in %.1fs, %.0f tx/s%n",
+                applied, failed, mismatched, skipped, seconds, seconds > 0 ? applied / seconds : 0);
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --name value pairs, got " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+        return options;
+    }
+}
@@ -0,0 +1,62 @@
+package com.icon.score.sim;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs shards of work in child JVMs sharing this JVM's classpath.
+ * The unit-test {@code ServiceManager} is a per-JVM singleton, so one process per shard is what
+ * lets independent replays or fuzz runs use every core.
+ */
+public class ShardRunner {
+
+    /**
+     * @return number of shards that exited with a non-zero status
+     */
+    public static int run(Class<?> mainClass, List<List<String>> shardArgs, int parallelism)
+            throws InterruptedException {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        String classpath = System.getProperty("java.class.path");
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        List<Future<Integer>> exits = new ArrayList<>();
+        for (int i = 0; i < shardArgs.size(); i++) {
+            int shard = i;
+            List<String> command = new ArrayList<>(List.of(java, "-cp", classpath, mainClass.getName()));
+            command.addAll(shardArgs.get(i));
+            exits.add(pool.submit(() -> runShard(shard, command)));
+        }
+        pool.shutdown();
+
+        int failed = 0;
+        for (Future<Integer> exit : exits) {
+            try {
+                if (exit.get() != 0) {
+                    failed++;
+                }
+            } catch (ExecutionException e) {
+                System.err.println("shard failed to start: " + e.getCause());
+                failed++;
+            }
+        }
+        return failed;
+    }
+
+    private static int runShard(int shard, List<String> command) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String prefix = "[shard " + shard + "] ";
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = out.readLine()) != null) {
+                System.out.println(prefix + line);
+            }
+        }
+        return process.waitFor();
+    }
+}
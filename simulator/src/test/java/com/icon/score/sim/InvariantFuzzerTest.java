@@ -0,0 +1,106 @@
+package com.icon.score.sim;
+
+import com.iconloop.score.test.Score;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class InvariantFuzzerTest {
+
+    private static FuzzStep step(int caller, String method, int target, long value, long advance) {
+        return new FuzzStep(caller, method, target, value < 0 ? null : BigInteger.valueOf(value), advance);
+    }
+
+    private static List<String> describe(List<FuzzStep> trace) {
+        List<String> steps = new ArrayList<>();
+        for (FuzzStep step : trace) {
+            steps.add(step.toString());
+        }
+        return steps;
+    }
+
+    @Test
+    void sequencesDependOnlyOnTheSeed() {
+        InvariantFuzzer fuzzer = new InvariantFuzzer(4, 50);
+        assertEquals(describe(fuzzer.generate(7)), describe(fuzzer.generate(7)));
+        assertNotEquals(describe(fuzzer.generate(7)), describe(fuzzer.generate(8)));
+        assertEquals(50, fuzzer.generate(7).size());
+    }
+
+    @Test
+    void invariantsHoldForGeneratedSequences() {
+        InvariantFuzzer fuzzer = new InvariantFuzzer(4, 50);
+        for (long seed = 0; seed < 10; seed++) {
+            assertNull(fuzzer.run(fuzzer.generate(seed)), "seed " + seed);
+        }
+    }
+
+    @Test
+    void everySequenceRunsOnAFreshDeployment() {
+        InvariantFuzzer fuzzer = new InvariantFuzzer(3, 0);
+        List<FuzzStep> mint = List.of(
+                step(0, "addIssuer", 0, -1, 0),
+                step(0, "approve", 0, 100, 0),
+                step(0, "mint", -1, 100, 1));
+        assertNull(fuzzer.run(mint));
+        assertNull(fuzzer.run(mint));
+
+        Score token = fuzzer.deploy();
+        assertEquals(BigInteger.ZERO, token.call("totalSupply"));
+        assertEquals(0, ((Object[]) token.call("getIssuers")).length);
+        assertNotSame(token, fuzzer.deploy());
+    }
+
+    @Test
+    void freeTxCountIsCheckedAgainstTheLimitOfItsTerm() {
+        InvariantFuzzer fuzzer = new InvariantFuzzer(3, 0);
+        // lowering the limit below a count reached under the old limit is not a violation
+        List<FuzzStep> trace = List.of(
+                step(0, "addIssuer", 0, -1, 0),
+                step(0, "approve", 0, 100, 0),
+                step(0, "mintTo", 1, 100, 0),
+                step(1, "transfer", 2, 1, 1),
+                step(1, "transfer", 2, 1, 1),
+                step(0, "changeFreeDailyTxLimit", -1, 1, 0),
+                step(1, "transfer", 2, 1, 1));
+        assertNull(fuzzer.run(trace));
+    }
+
+    @Test
+    void failingSequencesAreShrunk() {
+        // treats any minted supply as a violation, so the shortest failing sequence is known
+        InvariantFuzzer fuzzer = new InvariantFuzzer(4, 0) {
+            @Override
+            String check(Score token, BigInteger[] counts, BigInteger[] termLimits) {
+                String message = super.check(token, counts, termLimits);
+                if (message == null && ((BigInteger) token.call("totalSupply")).signum() > 0) {
+                    message = "supply minted";
+                }
+                return message;
+            }
+        };
+        List<FuzzStep> trace = List.of(
+                step(2, "transfer", 3, 5, 0),
+                step(0, "addIssuer", 0, -1, 3),
+                step(0, "changeFreeDailyTxLimit", -1, 7, 0),
+                step(0, "approve", 0, 500, 2),
+                step(1, "burn", -1, 3, 0),
+                step(0, "mint", -1, 20, 4),
+                step(3, "transfer", 1, 1, 0));
+        InvariantFuzzer.Violation violation = fuzzer.run(trace);
+        assertNotNull(violation);
+        assertEquals(5, violation.step);
+
+        List<FuzzStep> shrunk = fuzzer.shrink(trace.subList(0, violation.step + 1));
+        assertEquals(List.of("#0.addIssuer(#0)", "#0.approve(#0, 1)", "#0.mint(1)"), describe(shrunk));
+        assertEquals("supply minted", fuzzer.run(shrunk).message);
+    }
+}
@@ -0,0 +1,76 @@
+package com.icon.score.sim;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplaySimulatorTest {
+    private static final Path FIXTURE = Path.of("../testinteg/conf/fixtures/stablecoin-tx.json");
+    private static final String ADMIN = "hx7b2e1b8e8f6c8a1d3b0c9e6d5a4f3e2d1c0b9a88";
+    private static final String ISSUER = "hx1d7c5c0a4e3b2f1e0d9c8b7a6f5e4d3c2b1a0f99";
+    private static final String ALICE = "hx3c5e7a9b1d3f5a7c9e1b3d5f7a9c1e3b5d7f9a11";
+    private static final String BOB = "hx9a8b7c6d5e4f3a2b1c0d9e8f7a6b5c4d3e2f1a22";
+    private static final BigInteger ICX = BigInteger.TEN.pow(18);
+
+    private static BigInteger tokens(long n) {
+        return BigInteger.valueOf(n).multiply(ICX);
+    }
+
+    @Test
+    void replaysFixtureAtOriginalHeights() throws Exception {
+        ReplaySimulator simulator = new ReplaySimulator(Map.of("admin", ADMIN));
+        // the fixture starts after the issuer was added
+        Path prelude = Files.createTempFile("prelude", ".jsonl");
+        try {
+            Files.writeString(prelude, "{\"height\":\"56001000\",\"from\":\"" + ADMIN
+                    + "\",\"method\":\"addIssuer\",\"params\":{\"_issuer\":\"" + ISSUER + "\"},\"status\":\"0x1\"}\n");
+            assertTrue(simulator.replay(prelude));
+        } finally {
+            Files.delete(prelude);
+        }
+        // every recorded outcome is reproduced, including the failed overdraft
+        assertTrue(simulator.replay(FIXTURE));
+
+        assertEquals(tokens(450), simulator.balanceOf(ALICE));
+        assertEquals(tokens(45), simulator.balanceOf(BOB));
+        assertEquals(BigInteger.ZERO, simulator.balanceOf(ISSUER));
+
+        // the mint at 56003600 and the burn at 56048000 checkpoint the supply at those heights
+        long mint = simulator.simulatedHeight(56003600);
+        long burn = simulator.simulatedHeight(56048000);
+        assertEquals(BigInteger.ZERO, simulator.call("totalSupplyAt", mint - 1));
+        assertEquals(tokens(500), simulator.call("totalSupplyAt", mint));
+        assertEquals(tokens(500), simulator.call("totalSupplyAt", burn - 1));
+        assertEquals(tokens(495), simulator.call("totalSupplyAt", burn));
+    }
+
+    @Test
+    void acceptsTypedJsonValuesAndRejectsOthers() throws Exception {
+        ReplaySimulator simulator = new ReplaySimulator(Map.of("admin", ADMIN));
+        simulator.apply(new ReplayRecord(56001000, ADMIN, "addIssuer", Map.of("_issuer", ISSUER), true));
+        // numbers and booleans as JSON numbers and booleans, not strings
+        simulator.apply(new ReplayRecord(56001001, ADMIN, "approve",
+                Map.of("_issuer", ISSUER, "_value", new BigDecimal("5e20")), true));
+        simulator.apply(new ReplayRecord(56001002, ISSUER, "mintTo",
+                Map.of("_to", ALICE, "_value", 100L), true));
+        assertEquals(BigInteger.valueOf(100), simulator.balanceOf(ALICE));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () ->
+                simulator.apply(new ReplayRecord(56001003, ISSUER, "mintTo",
+                        Map.of("_to", ALICE, "_value", List.of("1")), true)));
+        assertTrue(e.getMessage().startsWith("tx 3 (mintTo): invalid _value"), e.getMessage());
+        e = assertThrows(IllegalArgumentException.class, () ->
+                simulator.apply(new ReplayRecord(56001004, ISSUER, "mintTo",
+                        Map.of("_to", 7, "_value", 1), true)));
+        assertTrue(e.getMessage().startsWith("tx 4 (mintTo): invalid _to"), e.getMessage());
+    }
+}
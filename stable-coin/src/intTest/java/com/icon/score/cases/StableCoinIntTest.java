@@ -21,12 +21,12 @@ import foundation.icon.icx.KeyWallet;
 import foundation.icon.icx.data.Address;
 import foundation.icon.icx.data.Bytes;
 import foundation.icon.icx.data.TransactionResult;
-import foundation.icon.icx.transport.http.HttpProvider;
 import foundation.icon.test.Env;
 import foundation.icon.test.ResultTimeoutException;
 import foundation.icon.test.TestBase;
 import foundation.icon.test.TransactionFailureException;
 import foundation.icon.test.TransactionHandler;
+import com.icon.score.client.StableCoinClient;
 import com.icon.score.score.StableCoinScore;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -62,7 +62,7 @@ public class StableCoinIntTest extends TestBase {
     @BeforeAll
     static void setup() throws Exception {
         Env.Chain chain = Env.getDefaultChain();
-        IconService iconService = new IconService(new HttpProvider(chain.getEndpointURL(3)));
+        IconService iconService = chain.newIconService();
         txHandler = new TransactionHandler(iconService, chain);
 
         // init wallets
@@ -498,6 +498,22 @@ public class StableCoinIntTest extends TestBase {
         tokenScore.TransactionLimitLog(txResult,ownerWallet.getAddress(),BigInteger.TWO);
     }
 
+    @Test
+    @Order(18)
+    public void typed_client() throws Exception {
+        LOG.infoEntering("typed client");
+        StableCoinClient client = new StableCoinClient(txHandler, tokenScore.getAddress());
+        assertEquals(tokenScore.name(), client.name());
+        assertEquals(tokenScore.admin(), client.getAdmin());
+        assertEquals(tokenScore.totalSupply(), client.totalSupplyAsync().get());
+        assertEquals(tokenScore.balanceOf(ownerWallet.getAddress()),
+                client.balanceOfAsync(ownerWallet.getAddress()).get());
+
+        Bytes limit = client.changeFreeDailyTxLimitAsync(ownerWallet, BigInteger.valueOf(50)).get();
+        assertSuccess(txHandler.getResult(limit));
+        assertEquals(BigInteger.valueOf(50), client.freeDailyTxLimit());
+    }
+
     private void add_and_approve(StableCoinScore tokenScore, BigInteger value) throws IOException, ResultTimeoutException {
         LOG.infoEntering("admin add owner as issuer");
         Bytes add = tokenScore.addIssuer(ownerWallet, ownerWallet.getAddress());
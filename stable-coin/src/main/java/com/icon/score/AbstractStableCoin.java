@@ -31,9 +31,21 @@ public abstract class AbstractStableCoin implements IRC2Base {
     protected final DictDB<Address, BigInteger> _balances = Context.newDictDB("balances", BigInteger.class);
     protected final DictDB<Address, BigInteger> _allowances = Context.newDictDB("allowances", BigInteger.class);
     protected final BranchDB<Address, DictDB<String, BigInteger>> _whitelist = Context.newBranchDB("whitelist", BigInteger.class);
+    protected final FreeTxTermDB freeTxTerms = new FreeTxTermDB("free_tx_terms", _whitelist);
+    protected final ArrayDB<BigInteger> supplyCheckpointHeights = Context.newArrayDB("supply_checkpoint_heights", BigInteger.class);
+    protected final ArrayDB<BigInteger> supplyCheckpointValues = Context.newArrayDB("supply_checkpoint_values", BigInteger.class);
+    protected final VarDB<BigInteger> balanceCheckpointStart = Context.newVarDB("balance_checkpoint_start_height", BigInteger.class);
+    protected final DictDB<Address, Integer> balanceCheckpointCount = Context.newDictDB("balance_checkpoint_count", Integer.class);
+    protected final BranchDB<Address, DictDB<Integer, BigInteger>> balanceCheckpointHeights = Context.newBranchDB("balance_checkpoint_heights", BigInteger.class);
+    protected final BranchDB<Address, DictDB<Integer, BigInteger>> balanceCheckpointValues = Context.newBranchDB("balance_checkpoint_values", BigInteger.class);
+    protected final ArrayDB<BigInteger> snapshotHeights = Context.newArrayDB("snapshot_heights", BigInteger.class);
+    protected final ArrayDB<Address> holders = Context.newArrayDB("holders", Address.class);
+    protected final DictDB<Address, Integer> holderPositions = Context.newDictDB("holder_positions", Integer.class);
+    protected final DictDB<Address, Boolean> _tokenReceivers = Context.newDictDB("token_receivers", Boolean.class);
 
     public static final String START_HEIGHT = "free_tx_start_height";
     public static final String TXN_COUNT = "free_tx_count_since_start";
+    public static final int MAX_HOLDERS_PAGE = 100;
 
 
     @EventLog(indexed = 3)
@@ -76,6 +88,18 @@ public abstract class AbstractStableCoin implements IRC2Base {
     public void TogglePause(Address _caller, boolean _status) {
     }
 
+    @EventLog(indexed = 1)
+    public void EnableBalanceCheckpoints(Address _caller, BigInteger _height) {
+    }
+
+    @EventLog(indexed = 1)
+    public void Snapshot(BigInteger _id, BigInteger _height) {
+    }
+
+    @EventLog(indexed = 2)
+    public void TokenReceiver(Address _caller, Address _contract, boolean _accepts) {
+    }
+
     public AbstractStableCoin() {
     }
 
@@ -96,24 +120,201 @@ public abstract class AbstractStableCoin implements IRC2Base {
 
     protected void setFeeSharingPercentage() {
         Address user = Context.getCaller();
-        BigInteger currentBlockHeight = BigInteger.valueOf(getBlockHeight());
-        DictDB<String, BigInteger> userFeeSharing = _whitelist.at(user);
-        if (userFeeSharing.get(START_HEIGHT) == null) {
-            userFeeSharing.set(START_HEIGHT, currentBlockHeight);
-        }
-        if (userFeeSharing.get(START_HEIGHT).add(TERM_LENGTH).compareTo(currentBlockHeight) > 0) {
-            BigInteger count = userFeeSharing.getOrDefault(TXN_COUNT, BigInteger.ZERO);
-            if (count.compareTo(freeDailyTxLimit.get()) < 0) {
-                userFeeSharing.set(TXN_COUNT, count.add(BigInteger.ONE));
+        long currentBlockHeight = getBlockHeight();
+        FreeTxTerm term = freeTxTerms.get(user);
+        boolean dirty = false;
+        if (term == null) {
+            term = new FreeTxTerm(currentBlockHeight, 0);
+            dirty = true;
+        }
+        if (term.startHeight + TERM_LENGTH.longValue() > currentBlockHeight) {
+            if (BigInteger.valueOf(term.count).compareTo(freeDailyTxLimit.get()) < 0) {
+                term.count++;
+                dirty = true;
                 Context.setFeeSharingProportion(100);
             }
         } else {
-            userFeeSharing.set(START_HEIGHT, currentBlockHeight);
-            userFeeSharing.set(TXN_COUNT, BigInteger.ONE);
+            term.startHeight = currentBlockHeight;
+            term.count = 1;
+            dirty = true;
             Context.setFeeSharingProportion(100);
         }
+        if (dirty) {
+            freeTxTerms.set(user, term);
+        }
+    }
+
+
+    /**
+     * Adds `_delta` to the allowance of `_issuer` and emits `Approval` with the resulting allowance.
+     * Internal Function
+     *
+     * @param _issuer The issuer whose allowance changes
+     * @param _delta  Amount to add, negative to decrease
+     */
+    protected void _changeIssuerAllowance(Address _issuer, BigInteger _delta) {
+        require(isIssuer(_issuer), "Only issuers can be approved");
+        BigInteger value = _allowances.getOrDefault(_issuer, BigInteger.ZERO).add(_delta);
+        require(value.signum() >= 0, "Issuer allowance cannot be negative");
+        _allowances.set(_issuer, value);
+        Approval(Context.getCaller(), _issuer, value);
     }
 
+    /**
+     * Returns false only if `_contract` has been registered as a contract without `tokenFallback`.
+     * Unregistered contracts are assumed to be receivers and are left to fail in `tokenFallback`.
+     *
+     * @param _contract The contract address to check
+     */
+    protected boolean acceptsTokens(Address _contract) {
+        return _tokenReceivers.getOrDefault(_contract, true);
+    }
+
+    /**
+     * Records whether `_contract` implements `tokenFallback`.
+     * Internal Function
+     *
+     * @param _contract The contract address to register
+     * @param _accepts  true if the contract can receive tokens
+     */
+    protected void _setTokenReceiver(Address _contract, boolean _accepts) {
+        _tokenReceivers.set(_contract, _accepts);
+        TokenReceiver(Context.getCaller(), _contract, _accepts);
+    }
+
+    /**
+     * Records `_supply` as the total supply at the current block.
+     * At most one checkpoint is kept per block; later changes in the same block overwrite it.
+     *
+     * @param _supply The total supply after the change
+     */
+    protected void _checkpointSupply(BigInteger _supply) {
+        BigInteger height = BigInteger.valueOf(getBlockHeight());
+        int size = supplyCheckpointHeights.size();
+        if (size > 0 && supplyCheckpointHeights.get(size - 1).equals(height)) {
+            supplyCheckpointValues.set(size - 1, _supply);
+        } else {
+            supplyCheckpointHeights.add(height);
+            supplyCheckpointValues.add(_supply);
+        }
+    }
+
+    /**
+     * Checkpoint heights by position, in ascending order.
+     */
+    protected interface CheckpointHeights {
+        BigInteger get(int index);
+    }
+
+    /**
+     * Binary searches the first `_count` checkpoints for the last one at or before `_height`.
+     *
+     * @param _count   Number of checkpoints
+     * @param _heights Height of each checkpoint
+     * @param _height  The block height to look up
+     * @return index of the checkpoint, or -1 if every checkpoint is after `_height`
+     */
+    protected int findCheckpoint(int _count, CheckpointHeights _heights, long _height) {
+        BigInteger height = BigInteger.valueOf(_height);
+        int low = 0;
+        int high = _count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (_heights.get(mid).compareTo(height) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Records the balance change of `_owner` if balance checkpoints are enabled.
+     * A checkpoint is only appended on the first change in a block; later changes in the same block overwrite it.
+     *
+     * @param _owner      The account whose balance changed
+     * @param _oldBalance Balance before the change
+     * @param _newBalance Balance after the change
+     * @param _start      Height balance checkpoints were enabled at, or null if they are not
+     */
+    protected void _checkpointBalance(Address _owner, BigInteger _oldBalance, BigInteger _newBalance, BigInteger _start) {
+        if (_start == null) {
+            return;
+        }
+        BigInteger height = BigInteger.valueOf(getBlockHeight());
+        DictDB<Integer, BigInteger> heights = balanceCheckpointHeights.at(_owner);
+        DictDB<Integer, BigInteger> values = balanceCheckpointValues.at(_owner);
+        int count = balanceCheckpointCount.getOrDefault(_owner, 0);
+
+        if (count == 0 && _oldBalance.signum() != 0) {
+            // the balance has not changed since checkpoints were enabled
+            heights.set(0, _start);
+            values.set(0, _oldBalance);
+            count = 1;
+        }
+        if (count > 0 && heights.get(count - 1).equals(height)) {
+            values.set(count - 1, _newBalance);
+        } else {
+            heights.set(count, height);
+            values.set(count, _newBalance);
+            count++;
+        }
+        balanceCheckpointCount.set(_owner, count);
+    }
+
+    /**
+     * Adds `_owner` to the holder list unless it is already there.
+     *
+     * @param _owner The account that now holds tokens
+     */
+    protected void _addHolder(Address _owner) {
+        if (holderPositions.get(_owner) == null) {
+            holders.add(_owner);
+            holderPositions.set(_owner, holders.size());
+        }
+    }
+
+    /**
+     * Removes `_owner` from the holder list by moving the last holder into its position.
+     *
+     * @param _owner The account that no longer holds tokens
+     */
+    protected void _removeHolder(Address _owner) {
+        Integer position = holderPositions.get(_owner);
+        if (position == null) {
+            return;
+        }
+        Address last = holders.pop();
+        if (!last.equals(_owner)) {
+            holders.set(position - 1, last);
+            holderPositions.set(last, position);
+        }
+        holderPositions.set(_owner, null);
+    }
+
+    /**
+     * Sets the balance of `_owner` and keeps its checkpoints and the holder list in sync.
+     * `_checkpointStart` is read once by the caller and shared by all balance writes of the call.
+     * Internal Function
+     *
+     * @param _owner           The account whose balance changes
+     * @param _oldBalance      Balance before the change
+     * @param _newBalance      Balance after the change
+     * @param _checkpointStart Value of `balanceCheckpointStart`
+     */
+    protected void _setBalance(Address _owner, BigInteger _oldBalance, BigInteger _newBalance, BigInteger _checkpointStart) {
+        _balances.set(_owner, _newBalance);
+        _checkpointBalance(_owner, _oldBalance, _newBalance, _checkpointStart);
+
+        if (_oldBalance.signum() == 0 && _newBalance.signum() != 0) {
+            _addHolder(_owner);
+        } else if (_oldBalance.signum() != 0 && _newBalance.signum() == 0) {
+            _removeHolder(_owner);
+        }
+    }
 
     /**
      * Transfers certain amount of tokens from `_from` to `_to`.
@@ -127,18 +328,27 @@ public abstract class AbstractStableCoin implements IRC2Base {
     protected void _transfer(Address _from, Address _to, BigInteger _value, byte[] _data) {
 
         require(_value.compareTo(BigInteger.ZERO) > 0, "Cannot transfer zero or less");
-        require(balanceOf(_from).compareTo(_value) >= 0, "Insufficient Balance");
+        BigInteger fromBalance = balanceOf(_from);
+        require(fromBalance.compareTo(_value) >= 0, "Insufficient Balance");
         require(!_to.equals(EOA_ZERO), "Cannot transfer to zero address");
         require(!_paused.get(), "Cannot transfer when paused");
 
-        _balances.set(_from, balanceOf(_from).subtract(_value));
-        _balances.set(_to, balanceOf(_to).add(_value));
+        boolean toContract = _to.isContract();
+        if (toContract) {
+            // reject known non-receivers before touching any balance
+            require(acceptsTokens(_to), "Receiver contract does not accept tokens");
+        }
+
+        BigInteger checkpointStart = balanceCheckpointStart.get();
+        _setBalance(_from, fromBalance, fromBalance.subtract(_value), checkpointStart);
+        BigInteger toBalance = balanceOf(_to);
+        _setBalance(_to, toBalance, toBalance.add(_value), checkpointStart);
 
         if (_data == null) {
             _data = "None".getBytes();
         }
 
-        if (_to.isContract()) {
+        if (toContract) {
             Context.call(_to, "tokenFallback", _from, _value, _data);
         }
         //Emits an event log `Transfer`
@@ -166,8 +376,11 @@ public abstract class AbstractStableCoin implements IRC2Base {
 
         _whitelistWallet(_to, "whitelist on mint".getBytes());
 
-        totalSupply.set(totalSupply().add(_value));
-        _balances.set(_to, _balances.getOrDefault(_to, BigInteger.ZERO).add(_value));
+        BigInteger supply = totalSupply().add(_value);
+        totalSupply.set(supply);
+        _checkpointSupply(supply);
+        BigInteger balance = _balances.getOrDefault(_to, BigInteger.ZERO);
+        _setBalance(_to, balance, balance.add(_value), balanceCheckpointStart.get());
 
         Transfer(EOA_ZERO, _to, _value, "mint".getBytes());
         Mint(_to, _value);
@@ -183,11 +396,14 @@ public abstract class AbstractStableCoin implements IRC2Base {
     protected void _burn(Address _from, BigInteger _value) {
         require(!_from.equals(EOA_ZERO), "Cannot burn from zero address");
         require(_value.compareTo(BigInteger.ZERO) > 0, "Amount to burn should be greater than zero");
-        require(_balances.getOrDefault(_from, BigInteger.ZERO).compareTo(_value) >= 0, "Insufficient balance to burn");
+        BigInteger balance = _balances.getOrDefault(_from, BigInteger.ZERO);
+        require(balance.compareTo(_value) >= 0, "Insufficient balance to burn");
         require(!_paused.get(), "Cannot burn when paused");
 
-        totalSupply.set(totalSupply().subtract(_value));
-        _balances.set(_from, _balances.getOrDefault(_from, BigInteger.ZERO).subtract(_value));
+        BigInteger supply = totalSupply().subtract(_value);
+        totalSupply.set(supply);
+        _checkpointSupply(supply);
+        _setBalance(_from, balance, balance.subtract(_value), balanceCheckpointStart.get());
 
         Transfer(_from, EOA_ZERO, _value, "burn".getBytes());
         Burn(_from, _value);
@@ -202,9 +418,8 @@ public abstract class AbstractStableCoin implements IRC2Base {
     protected void _whitelistWallet(Address _to, byte[] _data) {
         require(!_to.equals(EOA_ZERO), "Can not whitelist zero wallet address");
 
-        if (_whitelist.at(_to).get(START_HEIGHT) == null) {
-            _whitelist.at(_to).set(START_HEIGHT, BigInteger.valueOf(getBlockHeight()));
-            _whitelist.at(_to).set(TXN_COUNT, BigInteger.ONE);
+        if (freeTxTerms.get(_to) == null) {
+            freeTxTerms.set(_to, new FreeTxTerm(getBlockHeight(), 1));
 
             WhitelistWallet(_to, _data);
         }
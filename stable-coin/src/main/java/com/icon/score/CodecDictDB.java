@@ -0,0 +1,41 @@
+package com.icon.score;
+
+import score.Context;
+import score.DictDB;
+
+/**
+ * Typed wrapper around a {@code DictDB} that stores each value in the byte encoding of a {@link Codec}.
+ * A codec owns the version of its encoding, so entries written by an older codec can still be decoded.
+ */
+public class CodecDictDB<K, V> {
+    public interface Codec<V> {
+        byte[] encode(V value);
+
+        V decode(byte[] bytes);
+    }
+
+    private final DictDB<K, byte[]> db;
+    private final Codec<V> codec;
+
+    public CodecDictDB(String id, Codec<V> codec) {
+        this.db = Context.newDictDB(id, byte[].class);
+        this.codec = codec;
+    }
+
+    /**
+     * @param key The key to look up
+     * @return the decoded value of `key`, or null if there is none
+     */
+    public V get(K key) {
+        byte[] bytes = db.get(key);
+        return bytes == null ? null : codec.decode(bytes);
+    }
+
+    /**
+     * @param key   The key to update
+     * @param value The value to store, or null to remove the entry
+     */
+    public void set(K key, V value) {
+        db.set(key, value == null ? null : codec.encode(value));
+    }
+}
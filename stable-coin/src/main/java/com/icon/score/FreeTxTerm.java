@@ -0,0 +1,78 @@
+package com.icon.score;
+
+import static score.Context.require;
+
+/**
+ * Free transaction term of a whitelisted account.
+ * Stored as one compact entry: a version byte followed by the start height and the
+ * transaction count as unsigned varints.
+ */
+public class FreeTxTerm {
+    public static final byte VERSION = 1;
+    private static final int MAX_VARINT_BYTES = 10;
+
+    public long startHeight;
+    public long count;
+
+    // true if loaded from the pre-codec whitelist layout
+    boolean legacy;
+
+    public FreeTxTerm(long startHeight, long count) {
+        this.startHeight = startHeight;
+        this.count = count;
+    }
+
+    public static class Codec implements CodecDictDB.Codec<FreeTxTerm> {
+        @Override
+        public byte[] encode(FreeTxTerm term) {
+            return term.toBytes();
+        }
+
+        @Override
+        public FreeTxTerm decode(byte[] bytes) {
+            return fromBytes(bytes);
+        }
+    }
+
+    public byte[] toBytes() {
+        byte[] buf = new byte[1 + 2 * MAX_VARINT_BYTES];
+        buf[0] = VERSION;
+        int pos = writeVarLong(buf, 1, startHeight);
+        pos = writeVarLong(buf, pos, count);
+        byte[] out = new byte[pos];
+        System.arraycopy(buf, 0, out, 0, pos);
+        return out;
+    }
+
+    public static FreeTxTerm fromBytes(byte[] bytes) {
+        require(bytes.length > 0 && bytes[0] == VERSION, "Unsupported free tx term encoding");
+        int[] pos = {1};
+        long startHeight = readVarLong(bytes, pos);
+        long count = readVarLong(bytes, pos);
+        return new FreeTxTerm(startHeight, count);
+    }
+
+    private static int writeVarLong(byte[] buf, int pos, long value) {
+        require(value >= 0, "Cannot encode negative value");
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+        return pos;
+    }
+
+    private static long readVarLong(byte[] buf, int[] pos) {
+        long value = 0;
+        int shift = 0;
+        while (true) {
+            require(pos[0] < buf.length && shift < 7 * MAX_VARINT_BYTES, "Malformed free tx term encoding");
+            byte b = buf[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+            shift += 7;
+        }
+    }
+}
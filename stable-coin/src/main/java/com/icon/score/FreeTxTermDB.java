@@ -0,0 +1,60 @@
+package com.icon.score;
+
+import score.Address;
+import score.BranchDB;
+import score.DictDB;
+
+import java.math.BigInteger;
+
+import static com.icon.score.AbstractStableCoin.START_HEIGHT;
+import static com.icon.score.AbstractStableCoin.TXN_COUNT;
+
+/**
+ * {@link CodecDictDB} of {@link FreeTxTerm} entries in their compact encoding.
+ * Accounts whitelisted before the compact encoding are read from the legacy {@code whitelist} branch
+ * and migrated on their next write.
+ */
+public class FreeTxTermDB {
+    private final CodecDictDB<Address, FreeTxTerm> terms;
+    private final BranchDB<Address, DictDB<String, BigInteger>> legacy;
+
+    public FreeTxTermDB(String id, BranchDB<Address, DictDB<String, BigInteger>> legacy) {
+        this.terms = new CodecDictDB<>(id, new FreeTxTerm.Codec());
+        this.legacy = legacy;
+    }
+
+    /**
+     * @param owner The account to look up
+     * @return the free transaction term of `owner`, or null if it is not whitelisted
+     */
+    public FreeTxTerm get(Address owner) {
+        FreeTxTerm term = terms.get(owner);
+        if (term != null) {
+            return term;
+        }
+        DictDB<String, BigInteger> old = legacy.at(owner);
+        BigInteger start = old.get(START_HEIGHT);
+        if (start == null) {
+            return null;
+        }
+        term = new FreeTxTerm(start.longValue(), old.getOrDefault(TXN_COUNT, BigInteger.ZERO).longValue());
+        term.legacy = true;
+        return term;
+    }
+
+    /**
+     * Stores `term` for `owner`, removing its legacy entries if it was loaded from them.
+     *
+     * @param owner The account to update
+     * @param term  The free transaction term to store
+     */
+    public void set(Address owner, FreeTxTerm term) {
+        terms.set(owner, term);
+        if (term.legacy) {
+            DictDB<String, BigInteger> old = legacy.at(owner);
+            old.set(START_HEIGHT, null);
+            old.set(TXN_COUNT, null);
+            term.legacy = false;
+        }
+    }
+}
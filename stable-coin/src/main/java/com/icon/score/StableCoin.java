@@ -2,11 +2,13 @@ package com.icon.score;
 
 import score.Address;
 import score.Context;
-import score.DictDB;
 import score.annotation.External;
 import score.annotation.Optional;
+import scorex.util.ArrayList;
 
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 
 import static score.Context.getBlockHeight;
 import static score.Context.require;
@@ -45,6 +47,10 @@ public class StableCoin extends AbstractStableCoin {
 
             this.freeDailyTxLimit.set(BigInteger.valueOf(50));
         }
+        // first checkpoint on deploy, or on the update that introduced checkpoints
+        if (supplyCheckpointHeights.size() == 0) {
+            _checkpointSupply(totalSupply());
+        }
     }
 
     /**
@@ -76,6 +82,18 @@ public class StableCoin extends AbstractStableCoin {
         return this.totalSupply.getOrDefault(BigInteger.ZERO);
     }
 
+    /**
+     * @param _height The block height to query.
+     * @return total supply at the end of block `_height`.
+     */
+    @External(readonly = true)
+    public BigInteger totalSupplyAt(long _height) {
+        require(_height <= getBlockHeight(), "Height is in the future");
+        int index = findCheckpoint(supplyCheckpointHeights.size(), supplyCheckpointHeights::get, _height);
+        require(index >= 0, "No supply checkpoint at or before height " + _height);
+        return supplyCheckpointValues.get(index);
+    }
+
     /**
      * @param _owner The account whose balance is to be checked.
      * @return Amount of tokens owned by the `_owner` with the given address.
@@ -85,6 +103,89 @@ public class StableCoin extends AbstractStableCoin {
         return _balances.getOrDefault(_owner, BigInteger.ZERO);
     }
 
+    /**
+     * @param _owner  The account whose balance is to be checked.
+     * @param _height The block height to query.
+     * @return balance of `_owner` at the end of block `_height`.
+     */
+    @External(readonly = true)
+    public BigInteger balanceOfAt(Address _owner, long _height) {
+        BigInteger start = balanceCheckpointStart.get();
+        require(start != null, "Balance checkpoints are not enabled");
+        require(_height <= getBlockHeight(), "Height is in the future");
+        require(start.compareTo(BigInteger.valueOf(_height)) <= 0,
+                "No balance checkpoint at or before height " + _height);
+
+        int count = balanceCheckpointCount.getOrDefault(_owner, 0);
+        if (count == 0) {
+            // unchanged since checkpoints were enabled
+            return balanceOf(_owner);
+        }
+        int index = findCheckpoint(count, balanceCheckpointHeights.at(_owner)::get, _height);
+        if (index < 0) {
+            // the first checkpoint is the first change from a zero balance
+            return BigInteger.ZERO;
+        }
+        return balanceCheckpointValues.at(_owner).get(index);
+    }
+
+    /**
+     * @param _id The snapshot id returned in the `Snapshot` event.
+     * @return block height at which snapshot `_id` was taken.
+     */
+    @External(readonly = true)
+    public BigInteger snapshotHeight(int _id) {
+        require(_id >= 0 && _id < snapshotHeights.size(), "Snapshot " + _id + " does not exist");
+        return snapshotHeights.get(_id);
+    }
+
+    /**
+     * @param _owner The account whose balance is to be checked.
+     * @param _id    The snapshot id returned in the `Snapshot` event.
+     * @return balance of `_owner` at the end of the block in which snapshot `_id` was taken.
+     */
+    @External(readonly = true)
+    public BigInteger balanceOfAtSnapshot(Address _owner, int _id) {
+        return balanceOfAt(_owner, snapshotHeight(_id).longValue());
+    }
+
+    /**
+     * @param _id The snapshot id returned in the `Snapshot` event.
+     * @return total supply at the end of the block in which snapshot `_id` was taken.
+     */
+    @External(readonly = true)
+    public BigInteger totalSupplyAtSnapshot(int _id) {
+        return totalSupplyAt(snapshotHeight(_id).longValue());
+    }
+
+    /**
+     * @return number of accounts holding a non-zero balance.
+     */
+    @External(readonly = true)
+    public int holderCount() {
+        return holders.size();
+    }
+
+    /**
+     * @param _offset Position of the first holder to return, at most `holderCount`.
+     * @param _limit  Maximum number of holders to return, capped at `MAX_HOLDERS_PAGE`.
+     * @return list of holders with their balances.
+     */
+    @External(readonly = true)
+    public List<Map<String, Object>> getHolders(int _offset, int _limit) {
+        require(_offset >= 0, "Offset cannot be negative");
+        require(_limit > 0 && _limit <= MAX_HOLDERS_PAGE, "Limit must be between 1 and " + MAX_HOLDERS_PAGE);
+        int size = holders.size();
+        require(_offset <= size, "Offset cannot be past the last holder");
+        int count = Math.min(size - _offset, _limit);
+        List<Map<String, Object>> page = new ArrayList<>();
+        for (int i = _offset; i < _offset + count; i++) {
+            Address holder = holders.get(i);
+            page.add(Map.of("address", holder, "balance", balanceOf(holder)));
+        }
+        return page;
+    }
+
     /**
      * @return the wallet address of admin.
      */
@@ -139,13 +240,12 @@ public class StableCoin extends AbstractStableCoin {
     @External(readonly = true)
     public BigInteger remainingFreeTxThisTerm(Address _owner) {
 
-        DictDB<String, BigInteger> userFeeSharing = _whitelist.at(_owner);
-        BigInteger currentBlockHeight = BigInteger.valueOf(getBlockHeight());
-        if (userFeeSharing.get(START_HEIGHT) != null) {
-            if (userFeeSharing.get(START_HEIGHT).add(TERM_LENGTH).compareTo(currentBlockHeight) < 0) {
+        FreeTxTerm term = freeTxTerms.get(_owner);
+        if (term != null) {
+            if (term.startHeight + TERM_LENGTH.longValue() < getBlockHeight()) {
                 return freeDailyTxLimit.get();
             } else {
-                return freeDailyTxLimit.get().subtract(userFeeSharing.get(TXN_COUNT));
+                return freeDailyTxLimit.get().subtract(BigInteger.valueOf(term.count));
             }
         }
         return BigInteger.ZERO;
@@ -157,10 +257,20 @@ public class StableCoin extends AbstractStableCoin {
      */
     @External(readonly = true)
     public boolean isWhitelisted(Address _owner) {
-        return _whitelist.at(_owner).get(START_HEIGHT) != null;
+        return freeTxTerms.get(_owner) != null;
     }
 
 
+    /**
+     * @param _contract The address to check
+     * @return false if `_contract` is a contract registered as not implementing `tokenFallback`;
+     * true for every other contract and for every wallet, like the checks of `transfer`.
+     */
+    @External(readonly = true)
+    public boolean isTokenReceiver(Address _contract) {
+        return !_contract.isContract() || acceptsTokens(_contract);
+    }
+
     /**
      * Transfers certain amount of tokens from sender to the receiver.
      *
@@ -252,6 +362,82 @@ public class StableCoin extends AbstractStableCoin {
         Approval(Context.getCaller(), _issuer, _value);
     }
 
+    /**
+     * Registers whether the calling contract can receive tokens.
+     * Transfers to a contract registered with `_accepts` false are rejected before any balance is changed.
+     * Only contracts can call this method.
+     *
+     * @param _accepts true if the caller implements `tokenFallback`
+     */
+    @External
+    public void registerTokenReceiver(boolean _accepts) {
+        Address caller = Context.getCaller();
+        require(caller.isContract(), "Only contracts can register as token receiver");
+        _setTokenReceiver(caller, _accepts);
+    }
+
+    /**
+     * Records whether `_contract` can receive tokens on its behalf.
+     * Only admin can call this method.
+     *
+     * @param _contract The contract address to register
+     * @param _accepts  true if `_contract` implements `tokenFallback`
+     */
+    @External
+    public void setTokenReceiver(Address _contract, boolean _accepts) {
+        onlyAdmin("Only admin can set token receiver");
+        require(_contract.isContract(), "Token receiver must be a contract");
+        _setTokenReceiver(_contract, _accepts);
+    }
+
+    /**
+     * Increase the allowance of `_issuer` by `_value`.
+     * Unlike `approve`, concurrent increases and decreases do not overwrite each other.
+     * Only admin can call this method.
+     *
+     * @param _issuer The issuer whose allowance is increased.
+     * @param _value  The amount to add to the allowance.
+     */
+    @External
+    public void increaseIssuerAllowance(Address _issuer, BigInteger _value) {
+        onlyAdmin("Only admin can change issuer allowance");
+        require(_value.signum() > 0, "Allowance change should be greater than zero");
+        _changeIssuerAllowance(_issuer, _value);
+    }
+
+    /**
+     * Decrease the allowance of `_issuer` by `_value`.
+     * Only admin can call this method.
+     *
+     * @param _issuer The issuer whose allowance is decreased.
+     * @param _value  The amount to subtract from the allowance.
+     */
+    @External
+    public void decreaseIssuerAllowance(Address _issuer, BigInteger _value) {
+        onlyAdmin("Only admin can change issuer allowance");
+        require(_value.signum() > 0, "Allowance change should be greater than zero");
+        _changeIssuerAllowance(_issuer, _value.negate());
+    }
+
+    /**
+     * Change the allowances of several issuers in one call.
+     * Each allowance is changed by the delta at the same index; an `Approval` event is emitted per issuer.
+     * Only admin can call this method.
+     *
+     * @param _issuers The issuers whose allowances change, at least one.
+     * @param _deltas  Signed, non-zero amounts to add to each allowance.
+     */
+    @External
+    public void changeIssuerAllowances(Address[] _issuers, BigInteger[] _deltas) {
+        onlyAdmin("Only admin can change issuer allowance");
+        require(_issuers.length == _deltas.length, "Issuers and deltas must have the same length");
+        require(_issuers.length > 0, "At least one issuer is required");
+        for (int i = 0; i < _issuers.length; i++) {
+            require(_deltas[i].signum() != 0, "Allowance change cannot be zero");
+            _changeIssuerAllowance(_issuers[i], _deltas[i]);
+        }
+    }
+
     /**
      * Transfer the admin rights to another `_newAdmin` address
      * Only admin can call this method.
@@ -277,6 +463,52 @@ public class StableCoin extends AbstractStableCoin {
         TogglePause(Context.getCaller(), _paused.get());
     }
 
+    /**
+     * Starts recording per-account balance checkpoints from the current block.
+     * Checkpoints cannot be disabled once enabled, so history stays continuous.
+     * Only admin can call this method.
+     */
+    @External
+    public void enableBalanceCheckpoints() {
+        onlyAdmin("Only admin can enable balance checkpoints");
+        require(balanceCheckpointStart.get() == null, "Balance checkpoints are already enabled");
+        BigInteger height = BigInteger.valueOf(getBlockHeight());
+        balanceCheckpointStart.set(height);
+        EnableBalanceCheckpoints(Context.getCaller(), height);
+    }
+
+    /**
+     * Adds accounts that held tokens before the holder list existed.
+     * Accounts with a zero balance or already in the list are skipped.
+     * Only admin can call this method.
+     *
+     * @param _holders Accounts to add to the holder list
+     */
+    @External
+    public void indexHolders(Address[] _holders) {
+        onlyAdmin("Only admin can index holders");
+        for (Address holder : _holders) {
+            if (balanceOf(holder).signum() != 0) {
+                _addHolder(holder);
+            }
+        }
+    }
+
+    /**
+     * Takes a snapshot of balances and total supply at the current block.
+     * Requires balance checkpoints to be enabled.
+     * Only admin can call this method.
+     */
+    @External
+    public void snapshot() {
+        onlyAdmin("Only admin can take snapshot");
+        require(balanceCheckpointStart.get() != null, "Balance checkpoints are not enabled");
+        BigInteger id = BigInteger.valueOf(snapshotHeights.size());
+        BigInteger height = BigInteger.valueOf(getBlockHeight());
+        snapshotHeights.add(height);
+        Snapshot(id, height);
+    }
+
     /**
      * Creates `_value` number of tokens, and assigns to caller account.
      * Increases the balance of that account and total supply.
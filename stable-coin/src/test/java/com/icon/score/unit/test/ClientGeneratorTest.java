@@ -0,0 +1,112 @@
+package com.icon.score.unit.test;
+
+import com.icon.score.StableCoin;
+import foundation.icon.test.gen.ClientGenerator;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ClientGeneratorTest {
+
+    private static String source;
+
+    @BeforeAll
+    static void generate() {
+        source = new ClientGenerator(StableCoin.class, "com.icon.score.client.StableCoinClient").generate();
+    }
+
+    private static void assertContains(String expected) {
+        assertTrue(source.contains(expected), () -> "missing: " + expected + "\n" + source);
+    }
+
+    private static String body(String signature) {
+        int start = source.indexOf(signature);
+        assertTrue(start >= 0, () -> "missing: " + signature + "\n" + source);
+        return source.substring(start, source.indexOf("    }\n", start));
+    }
+
+    @Test
+    void declares_client_class() {
+        assertContains("package com.icon.score.client;\n");
+        assertContains("public class StableCoinClient extends ScoreClient {\n");
+        assertContains("    public StableCoinClient(TransactionHandler txHandler, Address scoreAddress) {\n");
+    }
+
+    @Test
+    void keeps_parameter_names() {
+        // StableCoin is compiled with -parameters, so the names are the ones of the source
+        assertContains("private static final String[] BALANCE_OF_PARAMS = {\"_owner\"};");
+        assertContains("private static final String[] BALANCE_OF_AT_PARAMS = {\"_owner\", \"_height\"};");
+        assertContains("private static final String[] TRANSFER_PARAMS = {\"_to\", \"_value\", \"_data\"};");
+        assertContains("private static final String[] CHANGE_FREE_DAILY_TX_LIMIT_PARAMS = {\"_new_limit\"};");
+        assertFalse(source.contains("arg0"), source);
+    }
+
+    @Test
+    void readonly_methods_are_calls() {
+        assertContains("    public BigInteger balanceOf(Address _owner) throws IOException {\n"
+                + "        return call(\"balanceOf\", params(BALANCE_OF_PARAMS, _owner)).asInteger();\n");
+        assertContains("    public CompletableFuture<BigInteger> balanceOfAsync(Address _owner) {\n"
+                + "        return callAsync(\"balanceOf\", params(BALANCE_OF_PARAMS, _owner))"
+                + ".thenApply(RpcItem::asInteger);\n");
+        assertContains("    public String name() throws IOException {\n"
+                + "        return call(\"name\", null).asString();\n");
+        assertContains("    public boolean isPaused() throws IOException {\n");
+        assertContains("    public CompletableFuture<Boolean> isPausedAsync() {\n");
+        assertContains("    public Address getAdmin() throws IOException {\n");
+        assertContains("    public List<Address> getIssuers() throws IOException {\n"
+                + "        return toAddressList(call(\"getIssuers\", null));\n");
+        assertContains(".thenApply(ScoreClient::toAddressList);\n");
+        // integer results are decoded as BigInteger, other types are left to the caller
+        assertContains("    public BigInteger holderCount() throws IOException {\n");
+        assertContains("    public BigInteger totalSupplyAt(Long _height) throws IOException {\n");
+        assertContains("    public RpcItem getHolders(Integer _offset, Integer _limit) throws IOException {\n");
+        assertFalse(body("public BigInteger balanceOf(").contains("invoke"));
+    }
+
+    @Test
+    void external_methods_are_transactions() {
+        assertContains("    public Bytes transfer(Wallet wallet, Address _to, BigInteger _value,"
+                + " byte[] _data /* optional */) throws IOException {\n"
+                + "        return invoke(wallet, \"transfer\", params(TRANSFER_PARAMS, _to, _value, _data));\n");
+        assertContains("    public CompletableFuture<Bytes> transferAsync(Wallet wallet, Address _to,"
+                + " BigInteger _value, byte[] _data /* optional */) {\n"
+                + "        return invokeAsync(wallet, \"transfer\", params(TRANSFER_PARAMS, _to, _value, _data));\n");
+        assertContains("    public Bytes togglePause(Wallet wallet) throws IOException {\n"
+                + "        return invoke(wallet, \"togglePause\", null);\n");
+        assertContains("    public Bytes registerTokenReceiver(Wallet wallet, Boolean _accepts) throws IOException {\n");
+        assertFalse(body("public Bytes mintTo(").contains("call("));
+    }
+
+    @Test
+    void array_parameters() {
+        // a lone array is passed as one value, not spread over the varargs of params
+        assertContains("    public Bytes indexHolders(Wallet wallet, Address[] _holders) throws IOException {\n"
+                + "        return invoke(wallet, \"indexHolders\", params(INDEX_HOLDERS_PARAMS, (Object) _holders));\n");
+        assertContains("params(CHANGE_ISSUER_ALLOWANCES_PARAMS, _issuers, _deltas)");
+    }
+
+    @Test
+    void one_method_pair_per_external() {
+        Matcher m = Pattern.compile("\\n    public [^(]+ (\\w+)\\(").matcher(source);
+        int methods = 0;
+        int async = 0;
+        while (m.find()) {
+            if (m.group(1).equals("StableCoinClient")) {
+                continue;
+            }
+            methods++;
+            if (m.group(1).endsWith("Async")) {
+                async++;
+            }
+        }
+        assertEquals(methods, async * 2);
+        assertEquals(1, source.split("public Bytes transfer\\(", -1).length - 1);
+    }
+}
@@ -0,0 +1,27 @@
+package com.icon.score.unit.test;
+
+import com.icon.score.FreeTxTerm;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FreeTxTermTest {
+
+    @Test
+    void encode_decode() {
+        long[][] cases = {{0, 0}, {1, 1}, {127, 128}, {43120, 50}, {75_000_000L, 3}, {Long.MAX_VALUE, Long.MAX_VALUE}};
+        for (long[] c : cases) {
+            FreeTxTerm decoded = FreeTxTerm.fromBytes(new FreeTxTerm(c[0], c[1]).toBytes());
+            assertEquals(c[0], decoded.startHeight);
+            assertEquals(c[1], decoded.count);
+        }
+    }
+
+    @Test
+    void encoding_is_compact() {
+        // version byte + 4 byte height + 1 byte count
+        byte[] bytes = new FreeTxTerm(75_000_000L, 3).toBytes();
+        assertEquals(FreeTxTerm.VERSION, bytes[0]);
+        assertEquals(6, bytes.length);
+    }
+}
@@ -1,5 +1,6 @@
 package com.icon.score.unit.test;
 
+import com.icon.score.AbstractStableCoin;
 import com.icon.score.StableCoin;
 import com.iconloop.score.test.Score;
 import com.iconloop.score.test.TestBase;
@@ -11,15 +12,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.function.Executable;
 
 import java.math.BigInteger;
+import java.util.List;
+import java.util.Map;
 
 import com.iconloop.score.test.Account;
 import com.iconloop.score.test.ServiceManager;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 import score.Address;
+import score.BranchDB;
 import score.Context;
+import score.DictDB;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -40,10 +46,12 @@ public class StableCoinUnitTest extends TestBase {
     public static final Account scoreAccount = Account.newScoreAccount(101);
 
     static MockedStatic<Context> contextMock;
+    static StorageProfiler profiler;
 
     @BeforeAll
     protected static void init() {
         contextMock = Mockito.mockStatic(Context.class, Mockito.CALLS_REAL_METHODS);
+        profiler = StorageProfiler.install(contextMock);
     }
 
     @BeforeEach
@@ -203,6 +211,65 @@ public class StableCoinUnitTest extends TestBase {
         expectErrorMessage(allowanceExceed, expectedErrorMessage);
     }
 
+    @Test
+    void increase_decrease_issuer_allowance() {
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        tokenScore.invoke(owner, "addIssuer", Alice.getAddress());
+        tokenScore.invoke(owner, "addIssuer", Bob.getAddress());
+
+        Executable notByAdmin = () -> tokenScore.invoke(Alice, "increaseIssuerAllowance", Alice.getAddress(), value);
+        String expectedErrorMessage = "Only admin can change issuer allowance";
+        expectErrorMessage(notByAdmin, expectedErrorMessage);
+
+        Executable notAnIssuer = () -> tokenScore.invoke(owner, "increaseIssuerAllowance", Cathy.getAddress(), value);
+        expectedErrorMessage = "Only issuers can be approved";
+        expectErrorMessage(notAnIssuer, expectedErrorMessage);
+
+        tokenScore.invoke(owner, "increaseIssuerAllowance", Alice.getAddress(), value);
+        tokenScore.invoke(owner, "increaseIssuerAllowance", Alice.getAddress(), value);
+        assertEquals(value.multiply(BigInteger.TWO), tokenScore.call("issuerAllowance", Alice.getAddress()));
+
+        tokenScore.invoke(owner, "decreaseIssuerAllowance", Alice.getAddress(), value);
+        assertEquals(value, tokenScore.call("issuerAllowance", Alice.getAddress()));
+
+        Executable belowZero = () -> tokenScore.invoke(owner, "decreaseIssuerAllowance", Alice.getAddress(),
+                value.add(BigInteger.ONE));
+        expectedErrorMessage = "Issuer allowance cannot be negative";
+        expectErrorMessage(belowZero, expectedErrorMessage);
+
+        Executable zeroChange = () -> tokenScore.invoke(owner, "increaseIssuerAllowance", Alice.getAddress(),
+                BigInteger.ZERO);
+        expectedErrorMessage = "Allowance change should be greater than zero";
+        expectErrorMessage(zeroChange, expectedErrorMessage);
+
+        // batch over both issuers
+        tokenScore.invoke(owner, "changeIssuerAllowances",
+                new Address[]{Alice.getAddress(), Bob.getAddress()},
+                new BigInteger[]{value.negate(), value});
+        assertEquals(BigInteger.ZERO, tokenScore.call("issuerAllowance", Alice.getAddress()));
+        assertEquals(value, tokenScore.call("issuerAllowance", Bob.getAddress()));
+
+        Executable lengthMismatch = () -> tokenScore.invoke(owner, "changeIssuerAllowances",
+                new Address[]{Alice.getAddress()}, new BigInteger[]{value, value});
+        expectedErrorMessage = "Issuers and deltas must have the same length";
+        expectErrorMessage(lengthMismatch, expectedErrorMessage);
+
+        Executable empty = () -> tokenScore.invoke(owner, "changeIssuerAllowances",
+                new Address[0], new BigInteger[0]);
+        expectedErrorMessage = "At least one issuer is required";
+        expectErrorMessage(empty, expectedErrorMessage);
+
+        Executable zeroDelta = () -> tokenScore.invoke(owner, "changeIssuerAllowances",
+                new Address[]{Alice.getAddress(), Bob.getAddress()}, new BigInteger[]{BigInteger.ZERO, value});
+        expectedErrorMessage = "Allowance change cannot be zero";
+        expectErrorMessage(zeroDelta, expectedErrorMessage);
+
+        verify(scoreSpy, times(2)).Approval(owner.getAddress(), Alice.getAddress(), value);
+        verify(scoreSpy).Approval(owner.getAddress(), Alice.getAddress(), value.multiply(BigInteger.TWO));
+        verify(scoreSpy).Approval(owner.getAddress(), Alice.getAddress(), BigInteger.ZERO);
+        verify(scoreSpy).Approval(owner.getAddress(), Bob.getAddress(), value);
+    }
+
     @Test
     void mint_test_by_not_nonIssuers() {
         BigInteger value = BigInteger.TEN.pow(decimals.intValue());
@@ -430,6 +497,113 @@ public class StableCoinUnitTest extends TestBase {
 
     }
 
+    @Test
+    void total_supply_at_height() {
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        mint_flow();
+        long mintHeight = sm.getBlock().getHeight();
+
+        sm.getBlock().increase(10);
+        long beforeBurnHeight = sm.getBlock().getHeight();
+        tokenScore.invoke(owner, "burn", value);
+        long burnHeight = sm.getBlock().getHeight();
+
+        assertEquals(value, tokenScore.call("totalSupplyAt", mintHeight));
+        assertEquals(value, tokenScore.call("totalSupplyAt", beforeBurnHeight - 1));
+        assertEquals(BigInteger.ZERO, tokenScore.call("totalSupplyAt", burnHeight));
+
+        Executable futureHeight = () -> tokenScore.call("totalSupplyAt", burnHeight + 100);
+        String expectedErrorMessage = "Height is in the future";
+        expectErrorMessage(futureHeight, expectedErrorMessage);
+    }
+
+    @Test
+    void balance_checkpoints_and_snapshot() {
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        BigInteger transferValue = BigInteger.valueOf(5).pow(decimals.intValue());
+
+        Executable notEnabled = () -> tokenScore.call("balanceOfAt", owner.getAddress(), 0L);
+        String expectedErrorMessage = "Balance checkpoints are not enabled";
+        expectErrorMessage(notEnabled, expectedErrorMessage);
+
+        Executable enableNotByAdmin = () -> tokenScore.invoke(Alice, "enableBalanceCheckpoints");
+        expectedErrorMessage = "Only admin can enable balance checkpoints";
+        expectErrorMessage(enableNotByAdmin, expectedErrorMessage);
+
+        // owner holds tokens before checkpoints are enabled
+        mint_flow();
+        tokenScore.invoke(owner, "enableBalanceCheckpoints");
+        long enabledHeight = sm.getBlock().getHeight();
+
+        sm.getBlock().increase(10);
+        long beforeTransferHeight = sm.getBlock().getHeight();
+        tokenScore.invoke(owner, "transfer", Alice.getAddress(), transferValue, "transfer".getBytes());
+        tokenScore.invoke(owner, "snapshot");
+        BigInteger snapshotHeight = (BigInteger) tokenScore.call("snapshotHeight", 0);
+
+        sm.getBlock().increase(10);
+        tokenScore.invoke(Alice, "burn", transferValue);
+
+        assertEquals(value, tokenScore.call("balanceOfAt", owner.getAddress(), beforeTransferHeight - 1));
+        assertEquals(BigInteger.ZERO, tokenScore.call("balanceOfAt", Alice.getAddress(), beforeTransferHeight - 1));
+        assertEquals(BigInteger.ZERO, tokenScore.call("balanceOfAt", Cathy.getAddress(), enabledHeight));
+
+        assertEquals(value.subtract(transferValue), tokenScore.call("balanceOfAtSnapshot", owner.getAddress(), 0));
+        assertEquals(transferValue, tokenScore.call("balanceOfAtSnapshot", Alice.getAddress(), 0));
+        assertEquals(value, tokenScore.call("totalSupplyAtSnapshot", 0));
+        assertEquals(BigInteger.ZERO, tokenScore.call("balanceOf", Alice.getAddress()));
+
+        Executable missingSnapshot = () -> tokenScore.call("snapshotHeight", 1);
+        expectedErrorMessage = "Snapshot 1 does not exist";
+        expectErrorMessage(missingSnapshot, expectedErrorMessage);
+
+        verify(scoreSpy).Snapshot(BigInteger.ZERO, snapshotHeight);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void holder_index() {
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+        BigInteger transferValue = BigInteger.valueOf(5).pow(decimals.intValue());
+        assertEquals(0, tokenScore.call("holderCount"));
+
+        mint_flow();
+        tokenScore.invoke(owner, "transfer", Alice.getAddress(), transferValue, "transfer".getBytes());
+        assertEquals(2, tokenScore.call("holderCount"));
+
+        List<Map<String, Object>> page = (List<Map<String, Object>>) tokenScore.call("getHolders", 0, 10);
+        assertEquals(2, page.size());
+        assertEquals(owner.getAddress(), page.get(0).get("address"));
+        assertEquals(value.subtract(transferValue), page.get(0).get("balance"));
+        assertEquals(Alice.getAddress(), page.get(1).get("address"));
+        assertEquals(transferValue, page.get(1).get("balance"));
+
+        page = (List<Map<String, Object>>) tokenScore.call("getHolders", 1, 10);
+        assertEquals(1, page.size());
+
+        // owner's balance drops to zero and Alice moves to the first position
+        tokenScore.invoke(owner, "transfer", Alice.getAddress(), value.subtract(transferValue), new byte[0]);
+        assertEquals(1, tokenScore.call("holderCount"));
+        page = (List<Map<String, Object>>) tokenScore.call("getHolders", 0, 10);
+        assertEquals(Alice.getAddress(), page.get(0).get("address"));
+
+        tokenScore.invoke(Alice, "burn", value);
+        assertEquals(0, tokenScore.call("holderCount"));
+
+        Executable pageTooLarge = () -> tokenScore.call("getHolders", 0, 101);
+        String expectedErrorMessage = "Limit must be between 1 and 100";
+        expectErrorMessage(pageTooLarge, expectedErrorMessage);
+
+        Executable offsetTooLarge = () -> tokenScore.call("getHolders", Integer.MAX_VALUE, 100);
+        expectedErrorMessage = "Offset cannot be past the last holder";
+        expectErrorMessage(offsetTooLarge, expectedErrorMessage);
+
+        Executable indexNotByAdmin = () -> tokenScore.invoke(Alice, "indexHolders",
+                (Object) new Address[]{Alice.getAddress()});
+        expectedErrorMessage = "Only admin can index holders";
+        expectErrorMessage(indexNotByAdmin, expectedErrorMessage);
+    }
+
     @Test
     void transfer_test_to_zero_Address() {
         mint_flow();
@@ -485,6 +659,50 @@ public class StableCoinUnitTest extends TestBase {
         tokenScore.invoke(owner, "transfer", scoreAccount.getAddress(), value, "transfer".getBytes());
     }
 
+    @Test
+    void transfer_to_non_receiver_contract() {
+        mint_flow();
+        BigInteger value = BigInteger.TEN.pow(decimals.intValue());
+
+        // only contracts can register themselves
+        Executable registerByEoa = () -> tokenScore.invoke(Alice, "registerTokenReceiver", false);
+        String expectedErrorMessage = "Only contracts can register as token receiver";
+        expectErrorMessage(registerByEoa, expectedErrorMessage);
+
+        assertEquals(true, tokenScore.call("isTokenReceiver", scoreAccount.getAddress()));
+        // wallets always receive
+        assertEquals(true, tokenScore.call("isTokenReceiver", Alice.getAddress()));
+        tokenScore.invoke(scoreAccount, "registerTokenReceiver", false);
+        assertEquals(false, tokenScore.call("isTokenReceiver", scoreAccount.getAddress()));
+
+        Executable transferToNonReceiver = () -> tokenScore.invoke(owner, "transfer", scoreAccount.getAddress(),
+                value, "transfer".getBytes());
+        expectedErrorMessage = "Receiver contract does not accept tokens";
+        expectErrorMessage(transferToNonReceiver, expectedErrorMessage);
+        assertEquals(value, tokenScore.call("balanceOf", owner.getAddress()));
+
+        verify(scoreSpy).TokenReceiver(scoreAccount.getAddress(), scoreAccount.getAddress(), false);
+    }
+
+    @Test
+    void set_token_receiver_by_admin() {
+        Executable notByAdmin = () -> tokenScore.invoke(Alice, "setTokenReceiver", scoreAccount.getAddress(), false);
+        String expectedErrorMessage = "Only admin can set token receiver";
+        expectErrorMessage(notByAdmin, expectedErrorMessage);
+
+        Executable eoaReceiver = () -> tokenScore.invoke(owner, "setTokenReceiver", Alice.getAddress(), true);
+        expectedErrorMessage = "Token receiver must be a contract";
+        expectErrorMessage(eoaReceiver, expectedErrorMessage);
+
+        tokenScore.invoke(owner, "setTokenReceiver", scoreAccount.getAddress(), false);
+        assertEquals(false, tokenScore.call("isTokenReceiver", scoreAccount.getAddress()));
+        tokenScore.invoke(owner, "setTokenReceiver", scoreAccount.getAddress(), true);
+        assertEquals(true, tokenScore.call("isTokenReceiver", scoreAccount.getAddress()));
+
+        verify(scoreSpy).TokenReceiver(owner.getAddress(), scoreAccount.getAddress(), false);
+        verify(scoreSpy).TokenReceiver(owner.getAddress(), scoreAccount.getAddress(), true);
+    }
+
     @Test
     void transfer_flow() {
         mint_flow();
@@ -522,6 +740,94 @@ public class StableCoinUnitTest extends TestBase {
         verify(scoreSpy).Transfer(Alice.getAddress(), Alice.getAddress(), transferValue, "self transfer".getBytes());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void transfer_storage_profile() {
+        mint_flow();
+        StorageProfiler.Profile profile = profiler.profile("transfer", () ->
+                tokenScore.invoke(owner, "transfer", Alice.getAddress(), BigInteger.ONE, new byte[0]));
+
+        // fee sharing reads and writes one compact entry, never the legacy whitelist
+        assertEquals(1, profile.reads("free_tx_terms"));
+        assertEquals(1, profile.writes("free_tx_terms"));
+        assertEquals(0, profile.reads("whitelist"));
+        assertEquals(2, profile.reads("balances"));
+        assertEquals(2, profile.writes("balances"));
+        // both balance writes share one read of the checkpoint start
+        assertEquals(1, profile.reads("balance_checkpoint_start_height"));
+
+        // balances stay non-zero on both sides, so the holder list is untouched
+        profile = profiler.profile("transfer", () ->
+                tokenScore.invoke(owner, "transfer", Alice.getAddress(), BigInteger.ONE, new byte[0]));
+        assertEquals(0, profile.reads("holder_positions"));
+        assertEquals(0, profile.writes("holders"));
+
+        // the sender is drained and the recipient is new: the last holder (Alice) moves into the
+        // sender's slot, then the recipient is appended
+        BigInteger rest = (BigInteger) tokenScore.call("balanceOf", owner.getAddress());
+        profile = profiler.profile("transfer", () ->
+                tokenScore.invoke(owner, "transfer", Bob.getAddress(), rest, new byte[0]));
+        assertEquals(2, profile.reads("holder_positions"));
+        assertEquals(3, profile.writes("holder_positions"));
+        assertEquals(2, profile.reads("holders"));
+        assertEquals(3, profile.writes("holders"));
+
+        assertEquals(2, tokenScore.call("holderCount"));
+        List<Map<String, Object>> page = (List<Map<String, Object>>) tokenScore.call("getHolders", 0, 10);
+        assertEquals(Alice.getAddress(), page.get(0).get("address"));
+        assertEquals(Bob.getAddress(), page.get(1).get("address"));
+    }
+
+    /**
+     * Runs `action` inside a call to the score, where its storage can be reached through {@code Context}.
+     */
+    private void inScore(Runnable action) {
+        Mockito.doAnswer(inv -> {
+            action.run();
+            return null;
+        }).when(scoreSpy).changeFreeDailyTxLimit(Mockito.any());
+        tokenScore.invoke(owner, "changeFreeDailyTxLimit", BigInteger.ZERO);
+    }
+
+    @Test
+    void legacy_free_tx_term_is_migrated() {
+        mint_flow();
+        tokenScore.invoke(owner, "transfer", Bob.getAddress(), BigInteger.TEN, new byte[0]);
+        assertEquals(false, tokenScore.call("isWhitelisted", Bob.getAddress()));
+
+        // Bob was whitelisted by a deployment that kept the term as two BigInteger keys
+        inScore(() -> {
+            BranchDB<Address, DictDB<String, BigInteger>> whitelist = Context.newBranchDB("whitelist", BigInteger.class);
+            whitelist.at(Bob.getAddress()).set(AbstractStableCoin.START_HEIGHT, BigInteger.valueOf(Context.getBlockHeight()));
+            whitelist.at(Bob.getAddress()).set(AbstractStableCoin.TXN_COUNT, BigInteger.valueOf(7));
+        });
+        assertEquals(true, tokenScore.call("isWhitelisted", Bob.getAddress()));
+        assertEquals(BigInteger.valueOf(43), tokenScore.call("remainingFreeTxThisTerm", Bob.getAddress()));
+
+        StorageProfiler.Profile legacy = profiler.profile("legacy transfer", () ->
+                tokenScore.invoke(Bob, "transfer", Alice.getAddress(), BigInteger.ONE, new byte[0]));
+        assertEquals(1, legacy.reads("free_tx_terms"));
+        assertEquals(2, legacy.reads("whitelist"));
+        assertEquals(1, legacy.writes("free_tx_terms"));
+        assertEquals(2, legacy.writes("whitelist"));
+        assertEquals(BigInteger.valueOf(42), tokenScore.call("remainingFreeTxThisTerm", Bob.getAddress()));
+
+        inScore(() -> {
+            BranchDB<Address, DictDB<String, BigInteger>> whitelist = Context.newBranchDB("whitelist", BigInteger.class);
+            assertNull(whitelist.at(Bob.getAddress()).get(AbstractStableCoin.START_HEIGHT));
+            assertNull(whitelist.at(Bob.getAddress()).get(AbstractStableCoin.TXN_COUNT));
+        });
+
+        // the migrated term costs one read and one write, down from three reads and three writes
+        StorageProfiler.Profile compact = profiler.profile("compact transfer", () ->
+                tokenScore.invoke(Bob, "transfer", Alice.getAddress(), BigInteger.ONE, new byte[0]));
+        assertEquals(1, compact.reads("free_tx_terms"));
+        assertEquals(0, compact.reads("whitelist"));
+        assertEquals(1, compact.writes("free_tx_terms"));
+        assertEquals(0, compact.writes("whitelist"));
+        assertEquals(BigInteger.valueOf(41), tokenScore.call("remainingFreeTxThisTerm", Bob.getAddress()));
+    }
+
     @Test
     void check_free_transactions() {
 
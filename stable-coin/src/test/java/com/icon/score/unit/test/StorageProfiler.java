@@ -0,0 +1,291 @@
+package com.icon.score.unit.test;
+
+import org.mockito.MockedStatic;
+import score.Address;
+import score.ArrayDB;
+import score.BranchDB;
+import score.Context;
+import score.DictDB;
+import score.VarDB;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+/**
+ * Counts storage reads and writes made through the {@code Context.new*DB} factories.
+ * Install it on the static {@code Context} mock before deploying the score, then wrap each
+ * external call with {@link #profile(String, Runnable)} to get a per-DB access profile.
+ */
+public class StorageProfiler {
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+
+    public static class Counter {
+        int reads;
+        int writes;
+        long bytesRead;
+        long bytesWritten;
+
+        Counter copy() {
+            Counter c = new Counter();
+            c.reads = reads;
+            c.writes = writes;
+            c.bytesRead = bytesRead;
+            c.bytesWritten = bytesWritten;
+            return c;
+        }
+    }
+
+    public static class Profile {
+        private final String label;
+        private final Map<String, Counter> byDb;
+
+        Profile(String label, Map<String, Counter> byDb) {
+            this.label = label;
+            this.byDb = byDb;
+        }
+
+        public int reads() {
+            return byDb.values().stream().mapToInt(c -> c.reads).sum();
+        }
+
+        public int writes() {
+            return byDb.values().stream().mapToInt(c -> c.writes).sum();
+        }
+
+        public long bytesRead() {
+            return byDb.values().stream().mapToLong(c -> c.bytesRead).sum();
+        }
+
+        public long bytesWritten() {
+            return byDb.values().stream().mapToLong(c -> c.bytesWritten).sum();
+        }
+
+        public int reads(String db) {
+            Counter c = byDb.get(db);
+            return c == null ? 0 : c.reads;
+        }
+
+        public int writes(String db) {
+            Counter c = byDb.get(db);
+            return c == null ? 0 : c.writes;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder buf = new StringBuilder();
+            buf.append(label).append(": ")
+                    .append(reads()).append(" reads, ")
+                    .append(writes()).append(" writes (")
+                    .append(bytesRead()).append("B read, ")
+                    .append(bytesWritten()).append("B written)");
+            for (Map.Entry<String, Counter> e : byDb.entrySet()) {
+                Counter c = e.getValue();
+                buf.append(", ").append(e.getKey()).append(' ').append(c.reads).append(" reads");
+                if (c.writes > 0) {
+                    buf.append(' ').append(c.writes).append(" writes");
+                }
+            }
+            return buf.toString();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static StorageProfiler install(MockedStatic<Context> contextMock) {
+        StorageProfiler profiler = new StorageProfiler();
+        contextMock.when(() -> Context.newVarDB(anyString(), any()))
+                .thenAnswer(inv -> profiler.wrap(inv.getArgument(0), inv.callRealMethod()));
+        contextMock.when(() -> Context.newDictDB(anyString(), any()))
+                .thenAnswer(inv -> profiler.wrap(inv.getArgument(0), inv.callRealMethod()));
+        contextMock.when(() -> Context.newArrayDB(anyString(), any()))
+                .thenAnswer(inv -> profiler.wrap(inv.getArgument(0), inv.callRealMethod()));
+        contextMock.when(() -> Context.newBranchDB(anyString(), any()))
+                .thenAnswer(inv -> profiler.wrap(inv.getArgument(0), inv.callRealMethod()));
+        return profiler;
+    }
+
+    /**
+     * Runs `call` and returns the storage accesses it made.
+     */
+    public Profile profile(String label, Runnable call) {
+        counters.clear();
+        call.run();
+        Map<String, Counter> snapshot = new LinkedHashMap<>();
+        counters.forEach((db, c) -> snapshot.put(db, c.copy()));
+        return new Profile(label, snapshot);
+    }
+
+    private void read(String db, Object value) {
+        Counter c = counters.computeIfAbsent(db, k -> new Counter());
+        c.reads++;
+        c.bytesRead += sizeOf(value);
+    }
+
+    private void write(String db, Object value) {
+        Counter c = counters.computeIfAbsent(db, k -> new Counter());
+        c.writes++;
+        c.bytesWritten += sizeOf(value);
+    }
+
+    private static int sizeOf(Object value) {
+        if (value == null) {
+            return 0;
+        } else if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        } else if (value instanceof BigInteger) {
+            return ((BigInteger) value).toByteArray().length;
+        } else if (value instanceof Integer || value instanceof Long) {
+            return BigInteger.valueOf(((Number) value).longValue()).toByteArray().length;
+        } else if (value instanceof Address) {
+            return ((Address) value).toByteArray().length;
+        } else if (value instanceof String) {
+            return ((String) value).getBytes(StandardCharsets.UTF_8).length;
+        } else if (value instanceof Boolean) {
+            return 1;
+        }
+        return 0;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object wrap(String db, Object target) {
+        if (target instanceof VarDB) {
+            return new ProfiledVarDB(db, (VarDB) target);
+        } else if (target instanceof DictDB) {
+            return new ProfiledDictDB(db, (DictDB) target);
+        } else if (target instanceof ArrayDB) {
+            return new ProfiledArrayDB(db, (ArrayDB) target);
+        } else if (target instanceof BranchDB) {
+            return new ProfiledBranchDB(db, (BranchDB) target);
+        }
+        return target;
+    }
+
+    private class ProfiledVarDB<E> implements VarDB<E> {
+        private final String db;
+        private final VarDB<E> target;
+
+        ProfiledVarDB(String db, VarDB<E> target) {
+            this.db = db;
+            this.target = target;
+        }
+
+        @Override
+        public void set(E value) {
+            write(db, value);
+            target.set(value);
+        }
+
+        @Override
+        public E get() {
+            E value = target.get();
+            read(db, value);
+            return value;
+        }
+
+        @Override
+        public E getOrDefault(E defaultValue) {
+            E value = target.get();
+            read(db, value);
+            return value == null ? defaultValue : value;
+        }
+    }
+
+    private class ProfiledDictDB<K, V> implements DictDB<K, V> {
+        private final String db;
+        private final DictDB<K, V> target;
+
+        ProfiledDictDB(String db, DictDB<K, V> target) {
+            this.db = db;
+            this.target = target;
+        }
+
+        @Override
+        public void set(K key, V value) {
+            write(db, value);
+            target.set(key, value);
+        }
+
+        @Override
+        public V get(K key) {
+            V value = target.get(key);
+            read(db, value);
+            return value;
+        }
+
+        @Override
+        public V getOrDefault(K key, V defaultValue) {
+            V value = target.get(key);
+            read(db, value);
+            return value == null ? defaultValue : value;
+        }
+    }
+
+    private class ProfiledArrayDB<E> implements ArrayDB<E> {
+        private final String db;
+        private final ArrayDB<E> target;
+
+        ProfiledArrayDB(String db, ArrayDB<E> target) {
+            this.db = db;
+            this.target = target;
+        }
+
+        @Override
+        public void add(E value) {
+            write(db, value);
+            target.add(value);
+        }
+
+        @Override
+        public void set(int index, E value) {
+            write(db, value);
+            target.set(index, value);
+        }
+
+        @Override
+        public void removeLast() {
+            write(db, null);
+            target.removeLast();
+        }
+
+        @Override
+        public E get(int index) {
+            E value = target.get(index);
+            read(db, value);
+            return value;
+        }
+
+        @Override
+        public int size() {
+            read(db, null);
+            return target.size();
+        }
+
+        @Override
+        public E pop() {
+            E value = target.pop();
+            read(db, value);
+            write(db, null);
+            return value;
+        }
+    }
+
+    private class ProfiledBranchDB<K, V> implements BranchDB<K, V> {
+        private final String db;
+        private final BranchDB<K, V> target;
+
+        ProfiledBranchDB(String db, BranchDB<K, V> target) {
+            this.db = db;
+            this.target = target;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V at(K key) {
+            return (V) wrap(db, target.at(key));
+        }
+    }
+}
@@ -16,19 +16,33 @@
 
 package foundation.icon.test;
 
+import foundation.icon.icx.IconService;
 import foundation.icon.icx.KeyWallet;
 import foundation.icon.icx.Wallet;
 import foundation.icon.icx.crypto.KeystoreException;
+import foundation.icon.icx.transport.http.HttpProvider;
+import foundation.icon.test.rpc.EndpointRouter;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
 
 public class Env {
     public static final Log LOG = Log.getGlobal();
     private static Chain chain;
+    private static Properties props;
+    private static OkHttpClient httpClient;
+    private static WalletStore walletStore;
+    private static String confPath;
 
     static {
         String envFile = System.getProperty("env.props", "conf/env.props");
@@ -42,8 +56,9 @@ public class Env {
             System.err.printf("'%s' does not exist\n", envFile);
             throw new IllegalArgumentException(e.getMessage());
         }
-        String confPath = Path.of(envFile).getParent().toString() + "/";
+        confPath = Path.of(envFile).getParent().toString() + "/";
         readProperties(props, confPath);
+        Env.props = props;
     }
 
     private static void readProperties(Properties props, String confPath) {
@@ -61,11 +76,61 @@ public class Env {
             throw new IllegalArgumentException(e.getMessage());
         }
         String nodeName = "node";
+        List<String> urls = new ArrayList<>();
         String url = props.getProperty(nodeName + ".url");
-        if (url == null) {
+        if (url != null) {
+            urls.add(url.trim());
+        }
+        // additional nodes of the same chain, see Chain.getRouter
+        for (String u : props.getProperty(nodeName + ".urls", "").split(",")) {
+            if (!u.isBlank() && !urls.contains(u.trim())) {
+                urls.add(u.trim());
+            }
+        }
+        if (urls.isEmpty()) {
             throw new IllegalArgumentException("node url not found");
         }
-        chain = new Chain(Integer.parseInt(nid.substring(2), 16), godWallet, url);
+        chain = new Chain(Integer.parseInt(nid.substring(2), 16), godWallet, urls);
+    }
+
+    private static int intProperty(String key, int defaultValue) {
+        String value = props == null ? null : props.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Returns the HTTP client shared by every transport created from this environment, configured by
+     * the {@code http.*} properties of env.props:
+     * <pre>
+     * http.maxIdleConnections   idle connections kept per pool (default 32)
+     * http.keepAliveSeconds     how long an idle connection is kept (default 300)
+     * http.maxRequests          concurrent async requests (default 256)
+     * http.maxRequestsPerHost   concurrent async requests per node (default 64)
+     * http.connectTimeoutMs     (default 5000)
+     * http.readTimeoutMs        (default 30000)
+     * http.writeTimeoutMs       (default 30000)
+     * http.http2                negotiate HTTP/2 on TLS endpoints (default true)
+     * </pre>
+     * Responses are requested and decoded with gzip by OkHttp itself.
+     */
+    public static synchronized OkHttpClient getHttpClient() {
+        if (httpClient == null) {
+            Dispatcher dispatcher = new Dispatcher();
+            dispatcher.setMaxRequests(intProperty("http.maxRequests", 256));
+            dispatcher.setMaxRequestsPerHost(intProperty("http.maxRequestsPerHost", 64));
+            boolean http2 = props == null || Boolean.parseBoolean(props.getProperty("http.http2", "true"));
+            httpClient = new OkHttpClient.Builder()
+                    .connectionPool(new ConnectionPool(intProperty("http.maxIdleConnections", 32),
+                            intProperty("http.keepAliveSeconds", 300), TimeUnit.SECONDS))
+                    .dispatcher(dispatcher)
+                    .protocols(http2 ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1) : List.of(Protocol.HTTP_1_1))
+                    .connectTimeout(intProperty("http.connectTimeoutMs", 5000), TimeUnit.MILLISECONDS)
+                    .readTimeout(intProperty("http.readTimeoutMs", 30000), TimeUnit.MILLISECONDS)
+                    .writeTimeout(intProperty("http.writeTimeoutMs", 30000), TimeUnit.MILLISECONDS)
+                    .retryOnConnectionFailure(true)
+                    .build();
+        }
+        return httpClient;
     }
 
     private static KeyWallet readWalletFromFile(String path, String password) throws IOException {
@@ -78,6 +143,34 @@ public class Env {
         }
     }
 
+    /**
+     * Returns the test wallets of the run, configured by env.props:
+     * <pre>
+     * wallets.dir        directory of keystores relative to env.props, decrypted in parallel
+     * wallets.password   password of those keystores
+     * wallets.seed       derive wallets.count wallets from this seed instead
+     * wallets.count      (default 100)
+     * wallets.threads    (default the number of cores)
+     * </pre>
+     * The keys are zeroed when the JVM exits.
+     */
+    public static synchronized WalletStore getWalletStore() throws IOException {
+        if (walletStore == null) {
+            String dir = props.getProperty("wallets.dir");
+            String seed = props.getProperty("wallets.seed");
+            int threads = intProperty("wallets.threads", Runtime.getRuntime().availableProcessors());
+            if (dir != null) {
+                walletStore = WalletStore.load(Path.of(confPath + dir), props.getProperty("wallets.password"), threads);
+            } else if (seed != null) {
+                walletStore = WalletStore.derive(seed, intProperty("wallets.count", 100), threads);
+            } else {
+                throw new IllegalArgumentException("wallets.dir or wallets.seed is required");
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(walletStore::close));
+        }
+        return walletStore;
+    }
+
     public static Chain getDefaultChain() {
         if (chain == null) {
             throw new AssertionError("Chain not found");
@@ -88,16 +181,93 @@ public class Env {
     public static class Chain {
         public final int networkId;
         public final Wallet godWallet;
-        private final String nodeUrl;
+        private final List<String> nodeUrls;
+        private EndpointRouter router;
 
         public Chain(int networkId, Wallet godWallet, String url) {
+            this(networkId, godWallet, List.of(url));
+        }
+
+        public Chain(int networkId, Wallet godWallet, List<String> urls) {
             this.networkId = networkId;
             this.godWallet = godWallet;
-            this.nodeUrl = url;
+            this.nodeUrls = List.copyOf(urls);
         }
 
+        /**
+         * @return the endpoint of the first node
+         */
         public String getEndpointURL(int v) {
-            return this.nodeUrl + "/api/v" + v;
+            return this.nodeUrls.get(0) + "/api/v" + v;
+        }
+
+        public List<String> getEndpointURLs(int v) {
+            List<String> urls = new ArrayList<>(nodeUrls.size());
+            for (String url : nodeUrls) {
+                urls.add(url + "/api/v" + v);
+            }
+            return urls;
+        }
+
+        /**
+         * Returns the router shared by all clients of this chain, configured by env.props:
+         * <pre>
+         * node.sendRouting        sticky or round-robin (default sticky)
+         * node.failureThreshold   consecutive failures before a node is taken out (default 2)
+         * node.maxLagBlocks       blocks a node may trail the highest one (default 5)
+         * node.probeIntervalMs    health probe interval (default 5000)
+         * </pre>
+         */
+        public synchronized EndpointRouter getRouter() {
+            if (router == null) {
+                String routing = props == null ? "sticky" : props.getProperty("node.sendRouting", "sticky");
+                router = new EndpointRouter(getEndpointURLs(3),
+                        routing.equals("round-robin") ? EndpointRouter.SendRouting.ROUND_ROBIN
+                                : EndpointRouter.SendRouting.STICKY,
+                        intProperty("node.failureThreshold", 2), intProperty("node.maxLagBlocks", 5));
+                router.startProbes(getHttpClient(), intProperty("node.probeIntervalMs", 5000));
+            }
+            return router;
+        }
+
+        /**
+         * @return an HTTP client sharing the environment's connection pool that routes requests over
+         * all nodes (see {@link EndpointRouter}), or the shared client itself if there is only one node.
+         * Requests are routed as reads unless they are marked as sends.
+         */
+        public OkHttpClient newHttpClient() {
+            OkHttpClient shared = getHttpClient();
+            if (nodeUrls.size() == 1) {
+                return shared;
+            }
+            return shared.newBuilder()
+                    .addInterceptor(getRouter())
+                    .build();
+        }
+
+        /**
+         * @return like {@link #newHttpClient}, with every request routed as a send
+         */
+        public OkHttpClient newSendHttpClient() {
+            OkHttpClient shared = getHttpClient();
+            if (nodeUrls.size() == 1) {
+                return shared;
+            }
+            return shared.newBuilder()
+                    .addInterceptor(EndpointRouter.MARK_SENDS)
+                    .addInterceptor(getRouter())
+                    .build();
+        }
+
+        public IconService newIconService() {
+            return new IconService(new HttpProvider(newHttpClient(), getEndpointURL(3)));
+        }
+
+        /**
+         * @return an IconService for {@code icx_sendTransaction} only, see {@link #newSendHttpClient}
+         */
+        public IconService newSendIconService() {
+            return new IconService(new HttpProvider(newSendHttpClient(), getEndpointURL(3)));
         }
     }
 }
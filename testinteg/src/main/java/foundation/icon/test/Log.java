@@ -16,11 +16,25 @@
 
 package foundation.icon.test;
 
-import java.util.EmptyStackException;
-import java.util.Stack;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Supplier;
 
+/**
+ * Test log with {@code infoEntering}/{@code infoExiting} indentation tracked per thread.
+ * Messages are only built once the level check passes; use the {@link Supplier} overloads for
+ * messages that are expensive to build. The output is configured by system properties:
+ * <pre>
+ * log.level    none, severe, warning, info or debug (default info)
+ * log.format   text or json, one JSON object per line (default text)
+ * log.async    true to write from a background thread through a ring buffer (default false)
+ * log.buffer   ring buffer capacity in lines (default 8192)
+ * </pre>
+ */
 public class Log {
     private static final String[] PREFIX_LEVELS = {null, "[S]", "[W]", null, null};
+    private static final String[] LEVEL_NAMES = {"NONE", "SEVERE", "WARNING", "INFO", "DEBUG"};
     private static final String PREFIX_STEP_IN = "--> ";
     private static final String PREFIX_STEP_OUT = "<-- ";
     private static final String DEPTH_STRING = "   ";
@@ -33,11 +47,42 @@ public class Log {
     public static final int LEVEL_DEBUG = LEVEL_INFO + 1;
     private static final int LEVEL_END = LEVEL_DEBUG;
 
-    private int level = LEVEL_INFO;
-    private Stack<String> frames = new Stack<>();
+    private static final Log GLOBAL = new Log(System.out);
+
+    private volatile int level = LEVEL_INFO;
+    private volatile boolean json;
+    private final ThreadLocal<Deque<String>> frames = ThreadLocal.withInitial(ArrayDeque::new);
+    private final Appender appender;
+
+    /**
+     * Destination of formatted lines.
+     */
+    public interface Appender {
+        void append(String line);
+
+        default void flush() {
+        }
+    }
+
+    Log(PrintStream out) {
+        this(System.getProperty("log.async", "false").equals("true")
+                ? new AsyncAppender(out, Integer.getInteger("log.buffer", 8192))
+                : out::println);
+        String name = System.getProperty("log.level");
+        for (int i = LEVEL_START; name != null && i <= LEVEL_END; i++) {
+            if (LEVEL_NAMES[i].equalsIgnoreCase(name)) {
+                level = i;
+            }
+        }
+        json = System.getProperty("log.format", "text").equals("json");
+    }
+
+    public Log(Appender appender) {
+        this.appender = appender;
+    }
 
     public static Log getGlobal() {
-        return new Log();
+        return GLOBAL;
     }
 
     public void setLevel(int newLevel) {
@@ -46,7 +91,11 @@ public class Log {
         }
     }
 
-    private boolean isLoggable(int level) {
+    public void setJson(boolean json) {
+        this.json = json;
+    }
+
+    public boolean isLoggable(int level) {
         return this.level >= level && level > LEVEL_START;
     }
 
@@ -54,28 +103,40 @@ public class Log {
         log(LEVEL_INFO, msg);
     }
 
+    public void info(Supplier<String> msg) {
+        log(LEVEL_INFO, msg);
+    }
+
     public void warning(String msg) {
         log(LEVEL_WARNING, msg);
     }
 
+    public void warning(Supplier<String> msg) {
+        log(LEVEL_WARNING, msg);
+    }
+
     public void severe(String msg) {
         log(LEVEL_SEVERE, msg);
     }
 
+    public void severe(Supplier<String> msg) {
+        log(LEVEL_SEVERE, msg);
+    }
+
     public void infoEntering(String taskName, String msg) {
         if (taskName == null) {
             taskName = "";
         }
-        if (msg == null) {
-            msg = "";
-        }
-        StringBuilder buf = new StringBuilder(5 + taskName.length() + msg.length());
-        buf.append(PREFIX_STEP_IN).append(taskName);
-        if (msg.length() > 0) {
-            buf.append(": ").append(msg);
+        if (isLoggable(LEVEL_INFO)) {
+            StringBuilder buf = new StringBuilder(PREFIX_STEP_IN.length() + taskName.length() + 2
+                    + (msg == null ? 0 : msg.length()));
+            buf.append(PREFIX_STEP_IN).append(taskName);
+            if (msg != null && msg.length() > 0) {
+                buf.append(": ").append(msg);
+            }
+            log(LEVEL_INFO, buf.toString());
         }
-        log(LEVEL_INFO, buf.toString());
-        frames.push(taskName);
+        frames.get().push(taskName);
     }
 
     public void infoEntering(String taskName) {
@@ -83,19 +144,19 @@ public class Log {
     }
 
     public void infoExiting(String msg) {
-        if (msg == null) {
-            msg = "";
+        String taskName = frames.get().poll();
+        if (taskName == null) {
+            log(LEVEL_WARNING, "(INVALID) Exiting without no entering" + (msg == null ? "" : msg));
+            return;
         }
-        try {
-            String taskName = frames.pop();
-            StringBuilder buf = new StringBuilder(5 + taskName.length() + msg.length());
+        if (isLoggable(LEVEL_INFO)) {
+            StringBuilder buf = new StringBuilder(PREFIX_STEP_OUT.length() + taskName.length() + 2
+                    + (msg == null ? 0 : msg.length()));
             buf.append(PREFIX_STEP_OUT).append(taskName);
-            if (msg.length() > 0) {
+            if (msg != null && msg.length() > 0) {
                 buf.append(": ").append(msg);
             }
             log(LEVEL_INFO, buf.toString());
-        } catch (EmptyStackException e) {
-            log(LEVEL_WARNING, "(INVALID) Exiting without no entering" + msg);
         }
     }
 
@@ -107,20 +168,174 @@ public class Log {
         log(LEVEL_DEBUG, msg);
     }
 
+    public void debug(Supplier<String> msg) {
+        log(LEVEL_DEBUG, msg);
+    }
+
+    public void log(int level, Supplier<String> msg) {
+        if (isLoggable(level)) {
+            log(level, msg.get());
+        }
+    }
+
     public void log(int level, String msg) {
         if (msg != null && isLoggable(level)) {
-            if (PREFIX_LEVELS[level] != null || !frames.empty()) {
-                StringBuilder buf = new StringBuilder(msg.length() + frames.size() * 3 + 3);
-                for (int i = frames.size(); i > 0; i--) {
-                    buf.append(DEPTH_STRING);
+            write(level, msg, frames.get().size());
+        }
+    }
+
+    /**
+     * Waits until the lines logged so far are written.
+     */
+    public void flush() {
+        appender.flush();
+    }
+
+    private void write(int level, String msg, int depth) {
+        if (json) {
+            appender.append(toJson(level, msg, depth));
+            return;
+        }
+        if (PREFIX_LEVELS[level] != null || depth > 0) {
+            StringBuilder buf = new StringBuilder(msg.length() + depth * DEPTH_STRING.length() + 3);
+            for (int i = depth; i > 0; i--) {
+                buf.append(DEPTH_STRING);
+            }
+            if (PREFIX_LEVELS[level] != null) {
+                buf.append(PREFIX_LEVELS[level]);
+            }
+            buf.append(msg);
+            msg = buf.toString();
+        }
+        appender.append(msg);
+    }
+
+    private String toJson(int level, String msg, int depth) {
+        StringBuilder buf = new StringBuilder(msg.length() + 96);
+        buf.append("{\"ts\":").append(System.currentTimeMillis())
+                .append(",\"level\":\"").append(LEVEL_NAMES[level]).append('"')
+                .append(",\"thread\":");
+        quote(buf, Thread.currentThread().getName());
+        buf.append(",\"depth\":").append(depth);
+        Deque<String> stack = frames.get();
+        if (!stack.isEmpty()) {
+            buf.append(",\"task\":");
+            quote(buf, stack.peek());
+        }
+        buf.append(",\"msg\":");
+        quote(buf, msg);
+        return buf.append('}').toString();
+    }
+
+    private static void quote(StringBuilder buf, String s) {
+        buf.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    buf.append("\\\"");
+                    break;
+                case '\\':
+                    buf.append("\\\\");
+                    break;
+                case '\n':
+                    buf.append("\\n");
+                    break;
+                case '\r':
+                    buf.append("\\r");
+                    break;
+                case '\t':
+                    buf.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        buf.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        buf.append(c);
+                    }
+            }
+        }
+        buf.append('"');
+    }
+
+    /**
+     * Hands lines to a writer thread through a bounded ring buffer. Callers only block when the
+     * buffer is full, so a slow console never drops lines but rarely stalls the threads logging.
+     */
+    public static class AsyncAppender implements Appender {
+        private final PrintStream out;
+        private final String[] ring;
+        private long head;
+        private long tail;
+        private long written;
+        private final Thread writer;
+
+        public AsyncAppender(PrintStream out, int capacity) {
+            this.out = out;
+            this.ring = new String[capacity];
+            this.writer = new Thread(this::drain, "log-writer");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(this::flush));
+        }
+
+        @Override
+        public synchronized void append(String line) {
+            while (tail - head == ring.length) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    out.println(line);
+                    return;
+                }
+            }
+            ring[(int) (tail++ % ring.length)] = line;
+            notifyAll();
+        }
+
+        @Override
+        public synchronized void flush() {
+            while (written != tail && writer.isAlive()) {
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+
+        private void drain() {
+            StringBuilder batch = new StringBuilder();
+            while (true) {
+                long taken;
+                synchronized (this) {
+                    while (head == tail) {
+                        try {
+                            wait();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                    }
+                    // take everything available in one go, leaving the lock to the loggers
+                    while (head != tail) {
+                        int index = (int) (head % ring.length);
+                        batch.append(ring[index]).append(System.lineSeparator());
+                        ring[index] = null;
+                        head++;
+                    }
+                    taken = head;
+                    notifyAll();
                 }
-                if (PREFIX_LEVELS[level] != null) {
-                    buf.append(PREFIX_LEVELS[level]);
+                out.print(batch);
+                out.flush();
+                batch.setLength(0);
+                synchronized (this) {
+                    written = taken;
+                    notifyAll();
                 }
-                buf.append(msg);
-                msg = buf.toString();
             }
-            System.out.println(msg);
         }
     }
 }
@@ -17,7 +17,9 @@
 package foundation.icon.test;
 
 import foundation.icon.icx.Call;
+import foundation.icon.icx.Callback;
 import foundation.icon.icx.IconService;
+import foundation.icon.icx.Request;
 import foundation.icon.icx.SignedTransaction;
 import foundation.icon.icx.Transaction;
 import foundation.icon.icx.TransactionBuilder;
@@ -30,8 +32,14 @@ import foundation.icon.icx.data.TransactionResult;
 import foundation.icon.icx.transport.jsonrpc.RpcError;
 import foundation.icon.icx.transport.jsonrpc.RpcItem;
 import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.test.metrics.Histogram;
+import foundation.icon.test.metrics.RpcMetrics;
+import foundation.icon.test.rpc.BatchCall;
+import foundation.icon.test.rpc.JsonRpcClient;
 import foundation.icon.test.score.ChainScore;
 import foundation.icon.test.score.Score;
+import foundation.icon.test.tx.SigningFarm;
+import foundation.icon.test.tx.TxStatusTracker;
 import foundation.icon.test.util.ZipFile;
 
 import java.io.IOException;
@@ -39,12 +47,16 @@ import java.math.BigInteger;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static foundation.icon.test.Env.LOG;
 
 public class TransactionHandler {
     private final IconService iconService;
     private final Env.Chain chain;
+    private JsonRpcClient rpcClient;
+    private IconService sendService;
+    private final RpcMetrics metrics = RpcMetrics.getGlobal();
 
     public TransactionHandler(IconService iconService, Env.Chain chain) {
         this.iconService = iconService;
@@ -84,8 +96,7 @@ public class TransactionHandler {
         if (steps == null) {
             steps = estimateStep(transaction);
         }
-        SignedTransaction signedTransaction = new SignedTransaction(transaction, owner, steps);
-        return iconService.sendTransaction(signedTransaction).execute();
+        return send(new SignedTransaction(transaction, owner, steps));
     }
 
     public Score getScore(Bytes txHash)
@@ -115,7 +126,7 @@ public class TransactionHandler {
 
     public BigInteger estimateStep(Transaction transaction) throws IOException {
         try {
-            return iconService.estimateStep(transaction).execute();
+            return timed(iconService.estimateStep(transaction), metrics.estimateLatency(), RpcMetrics.ESTIMATE_STEP);
         } catch (RpcError e) {
             LOG.info("estimateStep failed(" + e.getCode() + ", " + e.getMessage() + "); use default steps.");
             return Constants.DEFAULT_STEPS.multiply(BigInteger.TWO);
@@ -123,14 +134,119 @@ public class TransactionHandler {
     }
 
     public RpcItem call(Call<RpcItem> call) throws IOException {
-        return this.iconService.call(call).execute();
+        return timed(this.iconService.call(call), metrics.callLatency(), RpcMetrics.CALL);
+    }
+
+    /**
+     * Sends a transaction signed beforehand, e.g. by a {@link SigningFarm}.
+     */
+    public Bytes send(SignedTransaction tx) throws IOException {
+        long start = System.nanoTime();
+        Bytes txHash = timed(getSendService().sendTransaction(tx), metrics.sendLatency(),
+                RpcMetrics.SEND_TRANSACTION);
+        metrics.sent(txHash, start);
+        return txHash;
+    }
+
+    private <T> T timed(Request<T> request, Histogram latency, String method) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return request.execute();
+        } catch (RpcError e) {
+            metrics.error(method, e.getCode());
+            throw e;
+        } finally {
+            latency.recordSince(start);
+        }
     }
 
     public Bytes invoke(Wallet wallet, Transaction tx, BigInteger steps) throws IOException {
         if (steps == null) {
             steps = estimateStep(tx);
         }
-        return this.iconService.sendTransaction(new SignedTransaction(tx, wallet, steps)).execute();
+        return send(new SignedTransaction(tx, wallet, steps));
+    }
+
+    /**
+     * @return an empty batch of readonly calls to the chain's endpoint
+     */
+    public BatchCall newBatchCall() {
+        return new BatchCall(getRpcClient());
+    }
+
+    /**
+     * @return a tracker polling the results of many transactions in batches; close it when done
+     */
+    public TxStatusTracker newStatusTracker() {
+        return new TxStatusTracker(getRpcClient());
+    }
+
+    /**
+     * @return a farm signing on every core and sending through this handler with `senders` threads
+     */
+    public SigningFarm newSigningFarm(int senders) {
+        SigningFarm farm = new SigningFarm(getNetworkId());
+        farm.submitTo(this::send, senders);
+        return farm;
+    }
+
+    private synchronized JsonRpcClient getRpcClient() {
+        if (rpcClient == null) {
+            rpcClient = new JsonRpcClient(chain.newHttpClient(), chain.getEndpointURL(3));
+        }
+        return rpcClient;
+    }
+
+    /**
+     * @return the service transactions are sent with, marked as sends for the endpoint router
+     */
+    private synchronized IconService getSendService() {
+        if (sendService == null) {
+            sendService = chain.newSendIconService();
+        }
+        return sendService;
+    }
+
+    public CompletableFuture<RpcItem> callAsync(Call<RpcItem> call) {
+        return toFuture(this.iconService.call(call), metrics.callLatency(), RpcMetrics.CALL);
+    }
+
+    public CompletableFuture<Bytes> invokeAsync(Wallet wallet, Transaction tx, BigInteger steps) {
+        CompletableFuture<BigInteger> limit = steps != null
+                ? CompletableFuture.completedFuture(steps)
+                : toFuture(iconService.estimateStep(tx), metrics.estimateLatency(), RpcMetrics.ESTIMATE_STEP)
+                        .exceptionally(e -> Constants.DEFAULT_STEPS.multiply(BigInteger.TWO));
+        return limit.thenCompose(s -> {
+            long start = System.nanoTime();
+            return toFuture(getSendService().sendTransaction(new SignedTransaction(tx, wallet, s)),
+                    metrics.sendLatency(), RpcMetrics.SEND_TRANSACTION)
+                    .thenApply(txHash -> {
+                        metrics.sent(txHash, start);
+                        return txHash;
+                    });
+        });
+    }
+
+    private <T> CompletableFuture<T> toFuture(Request<T> request, Histogram latency, String method) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        long start = System.nanoTime();
+        request.execute(new Callback<>() {
+            @Override
+            public void onSuccess(T result) {
+                latency.recordSince(start);
+                future.complete(result);
+            }
+
+            @Override
+            public void onFailure(Exception exception) {
+                latency.recordSince(start);
+                if (exception instanceof RpcError) {
+                    metrics.error(method, ((RpcError) exception).getCode());
+                }
+                future.completeExceptionally(exception);
+            }
+        });
+        return future;
     }
 
     public TransactionResult getResult(Bytes txHash)
@@ -143,7 +259,10 @@ public class TransactionHandler {
         long limitTime = System.currentTimeMillis() + waiting;
         while (true) {
             try {
-                return iconService.getTransactionResult(txHash).execute();
+                TransactionResult result = timed(iconService.getTransactionResult(txHash),
+                        metrics.pollLatency(), RpcMetrics.GET_RESULT);
+                metrics.finalized(txHash);
+                return result;
             } catch (RpcError e) {
                 if (e.getCode() == -31002 /* pending */
                         || e.getCode() == -31003 /* executing */
@@ -184,8 +303,7 @@ public class TransactionHandler {
         if (steps == null) {
             steps = estimateStep(transaction).add(BigInteger.valueOf(10000));
         }
-        SignedTransaction signedTransaction = new SignedTransaction(transaction, owner, steps);
-        return iconService.sendTransaction(signedTransaction).execute();
+        return send(new SignedTransaction(transaction, owner, steps));
     }
 
     public void refundAll(Wallet owner) throws IOException {
@@ -211,7 +329,6 @@ public class TransactionHandler {
         if (steps == null) {
             steps = estimateStep(transaction).add(BigInteger.valueOf(10000));
         }
-        SignedTransaction signedTransaction = new SignedTransaction(transaction, owner, steps);
-        return iconService.sendTransaction(signedTransaction).execute();
+        return send(new SignedTransaction(transaction, owner, steps));
     }
 }
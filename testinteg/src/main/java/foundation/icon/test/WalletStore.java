@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test;
+
+import foundation.icon.icx.KeyWallet;
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.test.util.Hex;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Private keys of many test wallets, decrypted or derived once for the run and kept in a direct
+ * buffer of 52 bytes per wallet (the key and the address body). Keystores are decrypted on a pool
+ * of threads, since each one costs a full scrypt run; derived wallets skip scrypt altogether.
+ * <p>
+ * {@link #get} builds a {@link KeyWallet} on demand, so only the wallets in use live on the heap.
+ * {@link #close} overwrites the buffer with zeros; copies held by the wallets handed out are left
+ * to the garbage collector.
+ */
+public class WalletStore implements Closeable {
+    private static final int KEY_SIZE = 32;
+    private static final int ADDRESS_SIZE = 20;
+    private static final int SLOT_SIZE = KEY_SIZE + ADDRESS_SIZE;
+    // order of the secp256k1 group, private keys are in [1, N)
+    private static final BigInteger N =
+            new BigInteger("fffffffffffffffffffffffffffffffebaaedce6af48a03bbfd25e8cd0364141", 16);
+
+    private final ByteBuffer slots;
+    private final int size;
+    private final int threads;
+    private volatile boolean closed;
+
+    private interface Source {
+        KeyWallet load(int index) throws Exception;
+    }
+
+    private WalletStore(int size, int threads) {
+        this.size = size;
+        this.threads = threads;
+        this.slots = ByteBuffer.allocateDirect(size * SLOT_SIZE);
+    }
+
+    /**
+     * Decrypts every file of `dir`, in name order, with `password`.
+     */
+    public static WalletStore load(Path dir, String password, int threads) throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(dir)) {
+            files = list.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        return load(files, password, threads);
+    }
+
+    public static WalletStore load(List<Path> keystores, String password, int threads) throws IOException {
+        return fill(new WalletStore(keystores.size(), threads), i -> {
+            try {
+                return KeyWallet.load(password, keystores.get(i).toFile());
+            } catch (Exception e) {
+                throw new IOException("cannot load " + keystores.get(i) + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    /**
+     * Derives `count` wallets from `seed`: the key of wallet i is the SHA-256 of the seed and i.
+     * The same seed always gives the same wallets, which still need to be funded for a run.
+     */
+    public static WalletStore derive(String seed, int count, int threads) throws IOException {
+        byte[] prefix = seed.getBytes(StandardCharsets.UTF_8);
+        return fill(new WalletStore(count, threads), i -> {
+            byte[] key = deriveKey(prefix, i);
+            try {
+                // Bytes keeps the array it is given, the wallet needs its own copy
+                return KeyWallet.load(new Bytes(key.clone()));
+            } finally {
+                Arrays.fill(key, (byte) 0);
+            }
+        });
+    }
+
+    static byte[] deriveKey(byte[] seed, int index) throws NoSuchAlgorithmException {
+        MessageDigest sha = MessageDigest.getInstance("SHA-256");
+        for (int counter = 0; ; counter++) {
+            sha.update(seed);
+            sha.update(ByteBuffer.allocate(8).putInt(index).putInt(counter).array());
+            byte[] key = sha.digest();
+            BigInteger value = new BigInteger(1, key);
+            // out of range for about one seed in 2^128
+            if (value.signum() > 0 && value.compareTo(N) < 0) {
+                return key;
+            }
+        }
+    }
+
+    private static WalletStore fill(WalletStore store, Source source) throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(store.threads, r -> {
+            Thread t = new Thread(r, "wallet-store");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(store.size);
+            for (int i = 0; i < store.size; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> {
+                    store.put(index, source.load(index));
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return store;
+        } catch (ExecutionException e) {
+            store.close();
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            store.close();
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void put(int index, KeyWallet wallet) {
+        byte[] key = wallet.getPrivateKey().toByteArray();
+        byte[] address = Hex.toBytes(wallet.getAddress().toString().substring(2));
+        // right-aligned, the key may come with a sign byte or without its leading zeros
+        int skip = Math.max(0, key.length - KEY_SIZE);
+        ByteBuffer slot = slots.duplicate();
+        slot.position(index * SLOT_SIZE + KEY_SIZE - (key.length - skip));
+        slot.put(key, skip, key.length - skip);
+        slot.position(index * SLOT_SIZE + KEY_SIZE);
+        slot.put(address);
+        Arrays.fill(key, (byte) 0);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Address getAddress(int index) {
+        byte[] address = read(index, KEY_SIZE, ADDRESS_SIZE);
+        return new Address("hx" + String.format("%040x", new BigInteger(1, address)));
+    }
+
+    /**
+     * @return a new wallet with the key at `index`
+     */
+    public KeyWallet get(int index) {
+        byte[] key = read(index, 0, KEY_SIZE);
+        try {
+            return KeyWallet.load(new Bytes(key.clone()));
+        } finally {
+            Arrays.fill(key, (byte) 0);
+        }
+    }
+
+    /**
+     * @return all wallets, built on the store's threads
+     */
+    public List<Wallet> wallets() throws IOException {
+        Wallet[] wallets = new Wallet[size];
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                int index = i;
+                futures.add(pool.submit(() -> wallets[index] = get(index)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted");
+        } finally {
+            pool.shutdownNow();
+        }
+        return Arrays.asList(wallets);
+    }
+
+    private byte[] read(int index, int offset, int length) {
+        if (closed) {
+            throw new IllegalStateException("wallet store is closed");
+        }
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("wallet " + index + " of " + size);
+        }
+        byte[] bytes = new byte[length];
+        ByteBuffer slot = slots.duplicate();
+        slot.position(index * SLOT_SIZE + offset);
+        slot.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Overwrites the keys with zeros; the store cannot be used afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        ByteBuffer zeros = ByteBuffer.allocate(Math.min(slots.capacity(), 1 << 16));
+        ByteBuffer target = slots.duplicate();
+        target.clear();
+        while (target.hasRemaining()) {
+            zeros.clear().limit(Math.min(zeros.capacity(), target.remaining()));
+            target.put(zeros);
+        }
+    }
+}
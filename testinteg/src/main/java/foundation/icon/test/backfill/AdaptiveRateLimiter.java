@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.backfill;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Spaces requests to a target rate that adapts to the node: it grows slowly while requests
+ * succeed and halves when the node throttles or fails (additive increase, multiplicative
+ * decrease). Halving happens at most once per second, so a burst of failures from concurrent
+ * workers counts as one signal.
+ */
+public class AdaptiveRateLimiter {
+    private static final double INCREASE = 0.05;
+    private static final long DECREASE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final double minRate;
+    private final double maxRate;
+    private double rate;
+    private long nextSlot;
+    private long lastDecrease;
+
+    /**
+     * @param rate    initial requests per second
+     * @param minRate lowest rate to back off to
+     * @param maxRate highest rate to grow to
+     */
+    public AdaptiveRateLimiter(double rate, double minRate, double maxRate) {
+        if (minRate <= 0 || rate < minRate || maxRate < rate) {
+            throw new IllegalArgumentException("need 0 < minRate <= rate <= maxRate");
+        }
+        this.rate = rate;
+        this.minRate = minRate;
+        this.maxRate = maxRate;
+        this.nextSlot = System.nanoTime();
+        this.lastDecrease = nextSlot - DECREASE_INTERVAL;
+    }
+
+    /**
+     * Blocks until the next request may be sent.
+     */
+    public void acquire() throws InterruptedException {
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(nextSlot, now);
+            nextSlot = slot + (long) (1e9 / rate);
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+
+    public synchronized void onSuccess() {
+        rate = Math.min(maxRate, rate + INCREASE);
+    }
+
+    public synchronized void onThrottle() {
+        long now = System.nanoTime();
+        if (now - lastDecrease >= DECREASE_INTERVAL) {
+            lastDecrease = now;
+            rate = Math.max(minRate, rate / 2);
+        }
+    }
+
+    public synchronized double getRate() {
+        return rate;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.backfill;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.test.Log;
+import foundation.icon.test.events.EventDecoder;
+import foundation.icon.test.events.StableCoinEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import foundation.icon.test.ledger.TransferLedger;
+import foundation.icon.test.profile.StepProfiler;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.util.Hex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Extracts the StableCoin events of a block range. The range is split into chunks fetched by a
+ * pool of workers, each chunk with batched {@code icx_getBlockByHeight} and
+ * {@code icx_getTransactionResult} requests. The request rate adapts to the nodes. Finished chunks
+ * go through a reorder buffer, so the sink sees them in height order. After each chunk, the next
+ * height is written to a checkpoint file, so an interrupted run resumes where it stopped. A chunk
+ * written just before a crash may be emitted again on resume.
+ * <p>
+ * By default only transactions sent to the contract are read. With {@code --all-results} every
+ * result is read, which also finds events emitted by calls from other contracts. With
+ * {@code --ledger}, transfers are also appended to a {@link TransferLedger}.
+ *
+ * <pre>
+ * BlockBackfill --url http://host/api/v3[,http://host2/api/v3] --score cx... --from 1 --to 1000000
+ *     [--out events.jsonl] [--checkpoint backfill.ckpt] [--chunk 100] [--workers 8] [--batch 10]
+ *     [--rate 50] [--max-rate 1000] [--all-results] [--ledger dir]
+ * </pre>
+ */
+public class BlockBackfill {
+    private static final Log LOG = Log.getGlobal();
+
+    private final List<JsonRpcClient> clients;
+    private final String scoreAddress;
+    private int chunkSize = 100;
+    private int workers = 8;
+    private int batchSize = 10;
+    private int maxRetries = 8;
+    private long retryDelayMillis = 500;
+    private boolean allResults;
+    private AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(50, 1, 1000);
+
+    /**
+     * Events of the blocks `from` to `to` of one chunk, in block and log order.
+     */
+    public static class Chunk {
+        public final long from;
+        public final long to;
+        public final int transactions;
+        public final List<StableCoinEvent> events;
+
+        Chunk(long from, long to, int transactions, List<StableCoinEvent> events) {
+            this.from = from;
+            this.to = to;
+            this.transactions = transactions;
+            this.events = events;
+        }
+    }
+
+    /**
+     * @param clients chunks are spread over these endpoints
+     */
+    public BlockBackfill(List<JsonRpcClient> clients, String scoreAddress) {
+        if (clients.isEmpty()) {
+            throw new IllegalArgumentException("no endpoint");
+        }
+        this.clients = clients;
+        this.scoreAddress = scoreAddress;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    public void setWorkers(int workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @param batchSize requests per JSON-RPC batch; nodes limit the size of a batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setRetries(int maxRetries, long retryDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public void setAllResults(boolean allResults) {
+        this.allResults = allResults;
+    }
+
+    public void setRateLimiter(AdaptiveRateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Fetches blocks `from` to `to`, both inclusive, resuming after the height in `checkpoint` if
+     * it exists, and passes the chunks to `sink` in height order.
+     *
+     * @param checkpoint file holding the next height to fetch, or null to not keep one
+     * @return the number of events passed to `sink`
+     */
+    public long run(long from, long to, Path checkpoint, ReorderBuffer.Sink<Chunk> sink)
+            throws IOException, InterruptedException {
+        if (checkpoint != null && Files.exists(checkpoint)) {
+            long resume = readCheckpoint(checkpoint);
+            if (resume > from) {
+                LOG.info("resuming at height " + resume);
+                from = resume;
+            }
+        }
+        if (from > to) {
+            return 0;
+        }
+        final long start = from;
+        long chunks = (to - from) / chunkSize + 1;
+        long begin = System.nanoTime();
+        long[] emitted = new long[1];
+        ReorderBuffer<Chunk> buffer = new ReorderBuffer<>(0, workers * 4, chunk -> {
+            sink.accept(chunk);
+            emitted[0] += chunk.events.size();
+            if (checkpoint != null) {
+                writeCheckpoint(checkpoint, chunk.to + 1);
+            }
+            long done = chunk.to - start + 1;
+            if ((chunk.to - start) / chunkSize % 100 == 99) {
+                LOG.info(() -> String.format("height %d, %d events, %.0f blocks/s, rate %.0f req/s",
+                        chunk.to, emitted[0], done / ((System.nanoTime() - begin) / 1e9), limiter.getRate()));
+            }
+        });
+
+        AtomicInteger threadIds = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers, r -> {
+            Thread t = new Thread(r, "backfill-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            for (long i = 0; i < chunks; i++) {
+                buffer.awaitSlot(i);
+                long seq = i;
+                long chunkFrom = start + i * chunkSize;
+                long chunkTo = Math.min(to, chunkFrom + chunkSize - 1);
+                JsonRpcClient client = clients.get((int) (i % clients.size()));
+                pool.execute(() -> {
+                    try {
+                        buffer.put(seq, fetchWithRetry(client, chunkFrom, chunkTo));
+                    } catch (Exception e) {
+                        buffer.fail(e);
+                    }
+                });
+            }
+            buffer.awaitAll(chunks);
+        } finally {
+            pool.shutdownNow();
+        }
+        return emitted[0];
+    }
+
+    private Chunk fetchWithRetry(JsonRpcClient client, long from, long to)
+            throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return fetch(client, from, to);
+            } catch (IOException e) {
+                limiter.onThrottle();
+                if (attempt >= maxRetries) {
+                    throw new IOException("blocks " + from + "-" + to + " failed after " + attempt + " retries", e);
+                }
+                LOG.debug("blocks " + from + "-" + to + ": " + e.getMessage() + "; retrying");
+                Thread.sleep(Math.min(30_000, retryDelayMillis << Math.min(attempt, 16)));
+            }
+        }
+    }
+
+    private Chunk fetch(JsonRpcClient client, long from, long to) throws IOException, InterruptedException {
+        List<JsonNode> blockRequests = new ArrayList<>();
+        for (long height = from; height <= to; height++) {
+            blockRequests.add(client.newRequest("icx_getBlockByHeight",
+                    client.newParams().put("height", Hex.of(height))));
+        }
+        // position of each transaction in the chunk, to order events of results answered out of order
+        Map<String, Integer> positions = new HashMap<>();
+        List<JsonNode> resultRequests = new ArrayList<>();
+        for (JsonNode block : postBatches(client, blockRequests)) {
+            for (JsonNode tx : block.path("confirmed_transaction_list")) {
+                if (allResults || scoreAddress.equals(tx.path("to").asText())) {
+                    String txHash = tx.has("txHash") ? tx.get("txHash").asText() : tx.path("tx_hash").asText();
+                    if (!txHash.startsWith("0x")) {
+                        txHash = "0x" + txHash;
+                    }
+                    positions.put(txHash, positions.size());
+                    resultRequests.add(client.newRequest("icx_getTransactionResult",
+                            client.newParams().put("txHash", txHash)));
+                }
+            }
+        }
+
+        List<StableCoinEvent> events = new ArrayList<>();
+        EventDecoder decoder = new EventDecoder(scoreAddress);
+        List<JsonNode> todo = resultRequests;
+        for (int attempt = 0; !todo.isEmpty(); attempt++) {
+            // only the failed results are asked again, the others were decoded already
+            Map<Long, RpcError> failed = new HashMap<>();
+            for (int i = 0; i < todo.size(); i += batchSize) {
+                ArrayNode batch = MAPPER.createArrayNode();
+                batch.addAll(todo.subList(i, Math.min(todo.size(), i + batchSize)));
+                limiter.acquire();
+                client.post(batch, in -> {
+                    decoder.decode(in, events::add, failed::put);
+                    return null;
+                });
+                limiter.onSuccess();
+            }
+            if (failed.isEmpty()) {
+                break;
+            }
+            RpcError error = failed.values().iterator().next();
+            if (attempt >= maxRetries) {
+                throw new IOException(failed.size() + " results of blocks " + from + "-" + to + " failed after "
+                        + attempt + " retries", error);
+            }
+            limiter.onThrottle();
+            LOG.debug("blocks " + from + "-" + to + ": " + failed.size() + " results failed, " + error.getMessage()
+                    + "; retrying them");
+            Thread.sleep(Math.min(30_000, retryDelayMillis << Math.min(attempt, 16)));
+            List<JsonNode> retry = new ArrayList<>(failed.size());
+            for (JsonNode request : todo) {
+                if (failed.containsKey(request.get("id").asLong())) {
+                    retry.add(request);
+                }
+            }
+            todo = retry;
+        }
+        events.sort(Comparator.<StableCoinEvent>comparingInt(e -> positions.getOrDefault(e.getTxHash(), -1))
+                .thenComparingInt(StableCoinEvent::getLogIndex));
+        return new Chunk(from, to, resultRequests.size(), events);
+    }
+
+    /**
+     * @return the results of `requests` in request order
+     */
+    private List<JsonNode> postBatches(JsonRpcClient client, List<JsonNode> requests)
+            throws IOException, InterruptedException {
+        List<JsonNode> results = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i += batchSize) {
+            List<JsonNode> slice = requests.subList(i, Math.min(requests.size(), i + batchSize));
+            ArrayNode batch = MAPPER.createArrayNode();
+            batch.addAll(slice);
+            limiter.acquire();
+            JsonNode response = client.post(batch);
+            if (!response.isArray()) {
+                JsonRpcClient.unwrap(response);
+                throw new IOException("not a batch response: " + response);
+            }
+            Map<Long, JsonNode> byId = new HashMap<>();
+            for (JsonNode item : response) {
+                byId.put(item.path("id").asLong(), item);
+            }
+            for (JsonNode request : slice) {
+                JsonNode item = byId.get(request.get("id").asLong());
+                if (item == null) {
+                    throw new IOException("no response for " + request);
+                }
+                results.add(JsonRpcClient.unwrap(item));
+            }
+            limiter.onSuccess();
+        }
+        return results;
+    }
+
+    public static long readCheckpoint(Path checkpoint) throws IOException {
+        return Long.parseLong(Files.readString(checkpoint).trim());
+    }
+
+    /**
+     * Replaces the checkpoint atomically, so a crash leaves either the old or the new height.
+     */
+    public static void writeCheckpoint(Path checkpoint, long next) throws IOException {
+        Path tmp = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        Files.writeString(tmp, Long.toString(next));
+        Files.move(tmp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the event as a flat JSON object: its kind, location and arguments, numbers in hex
+     */
+    public static ObjectNode toJson(StableCoinEvent event) {
+        ObjectNode node = MAPPER.createObjectNode();
+        String kind = event.getClass().getSimpleName();
+        node.put("event", kind.endsWith("Event") ? kind.substring(0, kind.length() - 5) : kind);
+        node.put("blockHeight", event.getBlockHeight());
+        node.put("txHash", event.getTxHash());
+        node.put("txIndex", event.getTxIndex());
+        node.put("logIndex", event.getLogIndex());
+        for (Field field : event.getClass().getFields()) {
+            if (Modifier.isStatic(field.getModifiers())) {
+                continue;
+            }
+            Object value;
+            try {
+                value = field.get(event);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            if (value == null) {
+                node.putNull(field.getName());
+            } else if (value instanceof BigInteger) {
+                node.put(field.getName(), Hex.of((BigInteger) value));
+            } else if (value instanceof byte[]) {
+                node.put(field.getName(), toHex((byte[]) value));
+            } else if (value instanceof Boolean) {
+                node.put(field.getName(), (Boolean) value);
+            } else {
+                node.put(field.getName(), value.toString());
+            }
+        }
+        return node;
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder buf = new StringBuilder(2 + bytes.length * 2).append("0x");
+        for (byte b : bytes) {
+            buf.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return buf.toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StepProfiler.parseArgs(args);
+        if (!options.containsKey("url") || !options.containsKey("score")
+                || !options.containsKey("from") || !options.containsKey("to")) {
+            throw new IllegalArgumentException("--url, --score, --from and --to are required");
+        }
+        List<JsonRpcClient> clients = new ArrayList<>();
+        for (String url : options.get("url").split(",")) {
+            clients.add(new JsonRpcClient(url.trim()));
+        }
+        BlockBackfill backfill = new BlockBackfill(clients, options.get("score"));
+        backfill.setChunkSize(Integer.parseInt(options.getOrDefault("chunk", "100")));
+        backfill.setWorkers(Integer.parseInt(options.getOrDefault("workers", "8")));
+        backfill.setBatchSize(Integer.parseInt(options.getOrDefault("batch", "10")));
+        backfill.setAllResults(options.containsKey("all-results"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+        backfill.setRateLimiter(new AdaptiveRateLimiter(rate, Math.min(1, rate),
+                Double.parseDouble(options.getOrDefault("max-rate", "1000"))));
+
+        Path out = Path.of(options.getOrDefault("out", "events.jsonl"));
+        Path checkpoint = Path.of(options.getOrDefault("checkpoint", out + ".ckpt"));
+        long begin = System.nanoTime();
+        long events;
+        try (Writer writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             TransferLedger ledger = options.containsKey("ledger")
+                     ? TransferLedger.open(Path.of(options.get("ledger"))) : null) {
+            events = backfill.run(Long.parseLong(options.get("from")), Long.parseLong(options.get("to")),
+                    checkpoint, chunk -> {
+                        for (StableCoinEvent event : chunk.events) {
+                            writer.write(MAPPER.writeValueAsString(toJson(event)));
+                            writer.write('\n');
+                            if (ledger != null && event instanceof TransferEvent) {
+                                ledger.append((TransferEvent) event);
+                            }
+                        }
+                        // the checkpoint must not get ahead of the events on disk
+                        writer.flush();
+                        if (ledger != null) {
+                            ledger.commit(true);
+                        }
+                    });
+        }
+        LOG.info(String.format("%d events in %.1f s", events, (System.nanoTime() - begin) / 1e9));
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.backfill;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Releases items completed out of order to a sink in sequence order. Producers wait in
+ * {@link #awaitSlot} so that at most `window` items are held at once.
+ * <p>
+ * The sink is called without holding the buffer's lock, by one thread at a time: the thread that
+ * completes the next item in sequence drains the run that became ready, and items completed
+ * meanwhile are left for it.
+ */
+public class ReorderBuffer<T> {
+    private final Map<Long, T> completed = new HashMap<>();
+    private final Sink<T> sink;
+    private final int window;
+    // every item before next went to the sink
+    private long next;
+    private boolean draining;
+    private Throwable failure;
+
+    public interface Sink<T> {
+        void accept(T item) throws IOException;
+    }
+
+    public ReorderBuffer(long first, int window, Sink<T> sink) {
+        this.next = first;
+        this.window = window;
+        this.sink = sink;
+    }
+
+    /**
+     * Blocks until item `seq` fits in the window.
+     *
+     * @throws IOException if the buffer failed
+     */
+    public synchronized void awaitSlot(long seq) throws IOException, InterruptedException {
+        while (failure == null && seq - next >= window) {
+            wait();
+        }
+        checkFailure();
+    }
+
+    /**
+     * Adds item `seq` and, unless another thread is already draining, passes every item that is
+     * now in sequence to the sink.
+     */
+    public void put(long seq, T item) {
+        List<T> ready;
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            completed.put(seq, item);
+            if (draining) {
+                return;
+            }
+            ready = takeReady();
+            if (ready.isEmpty()) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            try {
+                for (T t : ready) {
+                    sink.accept(t);
+                }
+            } catch (IOException | RuntimeException e) {
+                synchronized (this) {
+                    draining = false;
+                }
+                fail(e);
+                return;
+            }
+            synchronized (this) {
+                next += ready.size();
+                notifyAll();
+                ready = failure == null ? takeReady() : List.of();
+                if (ready.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<T> takeReady() {
+        List<T> ready = new ArrayList<>();
+        T item;
+        while ((item = completed.remove(next + ready.size())) != null) {
+            ready.add(item);
+        }
+        return ready;
+    }
+
+    public synchronized void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        notifyAll();
+    }
+
+    /**
+     * Blocks until every item before `end` went to the sink.
+     */
+    public synchronized void awaitAll(long end) throws IOException, InterruptedException {
+        while (failure == null && next < end) {
+            wait();
+        }
+        checkFailure();
+    }
+
+    public synchronized long next() {
+        return next;
+    }
+
+    private void checkFailure() throws IOException {
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        } else if (failure != null) {
+            throw new IOException(failure);
+        }
+    }
+}
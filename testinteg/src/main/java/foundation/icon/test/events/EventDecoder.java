@@ -0,0 +1,369 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.events;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.test.events.StableCoinEvent.AddIssuerEvent;
+import foundation.icon.test.events.StableCoinEvent.ApprovalEvent;
+import foundation.icon.test.events.StableCoinEvent.BurnEvent;
+import foundation.icon.test.events.StableCoinEvent.DailyTransactionLimitEvent;
+import foundation.icon.test.events.StableCoinEvent.EnableBalanceCheckpointsEvent;
+import foundation.icon.test.events.StableCoinEvent.MintEvent;
+import foundation.icon.test.events.StableCoinEvent.RemoveIssuerEvent;
+import foundation.icon.test.events.StableCoinEvent.SnapshotEvent;
+import foundation.icon.test.events.StableCoinEvent.TogglePauseEvent;
+import foundation.icon.test.events.StableCoinEvent.TokenReceiverEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferAdminEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import foundation.icon.test.events.StableCoinEvent.WhitelistWalletEvent;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.util.Hex;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Decodes StableCoin event logs straight from the JSON token stream of a transaction result, a
+ * JSON-RPC response or batch response holding results, or an array of results. No tree is built:
+ * the signature of each log is looked up in a fixed table and its arguments are converted as they
+ * are read. Logs of other contracts or with unknown signatures are skipped unread.
+ * <p>
+ * An error response throws {@link RpcError}. The errors of the entries of a batch response are
+ * handed to a {@link BatchErrors} with the id of the entry, or skipped if none is given, so one
+ * failed request does not lose the results of the others.
+ * <p>
+ * A decoder reuses its buffers, so it must not be shared between threads.
+ */
+public class EventDecoder {
+    private static final JsonFactory FACTORY = new JsonFactory();
+    private static final int MAX_ARGS = 8;
+
+    private interface Factory {
+        StableCoinEvent create(String[] args);
+    }
+
+    private static class Signature {
+        final int arity;
+        final Factory factory;
+
+        Signature(String signature, Factory factory) {
+            this.arity = signature.endsWith("()") ? 0 : signature.split(",").length;
+            this.factory = factory;
+        }
+    }
+
+    private static final Map<String, Signature> SIGNATURES = new HashMap<>();
+
+    /**
+     * Receives the error of each failed entry of a batch response.
+     */
+    public interface BatchErrors {
+        void error(long id, RpcError error);
+    }
+
+    // where an object is in the payload: only the errors of responses are read
+    private enum Level {RESPONSE, BATCH_ENTRY, NESTED}
+
+    private static void register(String signature, Factory factory) {
+        SIGNATURES.put(signature, new Signature(signature, factory));
+    }
+
+    static {
+        register("Transfer(Address,Address,int,bytes)",
+                a -> new TransferEvent(a[0], a[1], toInt(a[2]), Hex.toBytes(a[3])));
+        register("Mint(Address,int)", a -> new MintEvent(a[0], toInt(a[1])));
+        register("Burn(Address,int)", a -> new BurnEvent(a[0], toInt(a[1])));
+        register("Approval(Address,Address,int)", a -> new ApprovalEvent(a[0], a[1], toInt(a[2])));
+        register("WhitelistWallet(Address,bytes)", a -> new WhitelistWalletEvent(a[0], Hex.toBytes(a[1])));
+        register("DailyTransactionLimit(Address,int)",
+                a -> new DailyTransactionLimitEvent(a[0], toInt(a[1])));
+        register("AddIssuer(Address,Address)", a -> new AddIssuerEvent(a[0], a[1]));
+        register("RemoveIssuer(Address,Address,int)",
+                a -> new RemoveIssuerEvent(a[0], a[1], toInt(a[2])));
+        register("TransferAdmin(Address,Address)", a -> new TransferAdminEvent(a[0], a[1]));
+        register("TogglePause(Address,bool)", a -> new TogglePauseEvent(a[0], toBool(a[1])));
+        register("EnableBalanceCheckpoints(Address,int)",
+                a -> new EnableBalanceCheckpointsEvent(a[0], toInt(a[1])));
+        register("Snapshot(int,int)", a -> new SnapshotEvent(toInt(a[0]), toInt(a[1])));
+        register("TokenReceiver(Address,Address,bool)",
+                a -> new TokenReceiverEvent(a[0], a[1], toBool(a[2])));
+    }
+
+    private final String scoreAddress;
+    private final String[] indexed = new String[MAX_ARGS];
+    private final String[] data = new String[MAX_ARGS];
+    private final String[] args = new String[2 * MAX_ARGS];
+    private final List<StableCoinEvent> pending = new ArrayList<>();
+
+    /**
+     * @param scoreAddress only decode the events of this contract, or of any contract if null
+     */
+    public EventDecoder(String scoreAddress) {
+        this.scoreAddress = scoreAddress;
+    }
+
+    /**
+     * @return whether events with `signature` are decoded
+     */
+    public static boolean isKnownSignature(String signature) {
+        return SIGNATURES.containsKey(signature);
+    }
+
+    public List<StableCoinEvent> decode(byte[] json) throws IOException {
+        List<StableCoinEvent> events = new ArrayList<>();
+        try (JsonParser p = FACTORY.createParser(json)) {
+            decode(p, events::add, null);
+        }
+        return events;
+    }
+
+    public List<StableCoinEvent> decode(String json) throws IOException {
+        return decode(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Streams the events in `in` to `sink` in the order of the payload, each one once the
+     * transaction result holding it has been read. Failed entries of a batch are skipped.
+     *
+     * @throws RpcError if the payload is a JSON-RPC error response
+     */
+    public void decode(InputStream in, Consumer<? super StableCoinEvent> sink) throws IOException {
+        decode(in, sink, null);
+    }
+
+    /**
+     * Like {@link #decode(InputStream, Consumer)}, passing failed entries of a batch to `errors`.
+     */
+    public void decode(InputStream in, Consumer<? super StableCoinEvent> sink, BatchErrors errors)
+            throws IOException {
+        try (JsonParser p = FACTORY.createParser(in)) {
+            decode(p, sink, errors);
+        }
+    }
+
+    /**
+     * Fetches the result of `txHash` and decodes its events.
+     */
+    public List<StableCoinEvent> getEvents(JsonRpcClient client, String txHash) throws IOException {
+        return client.post(client.newRequest("icx_getTransactionResult", client.newParams().put("txHash", txHash)),
+                in -> {
+                    List<StableCoinEvent> events = new ArrayList<>();
+                    decode(in, events::add);
+                    return events;
+                });
+    }
+
+    private void decode(JsonParser p, Consumer<? super StableCoinEvent> sink, BatchErrors errors)
+            throws IOException {
+        if (p.nextToken() != null) {
+            value(p, sink, errors, Level.RESPONSE);
+        }
+    }
+
+    private void value(JsonParser p, Consumer<? super StableCoinEvent> sink, BatchErrors errors, Level level)
+            throws IOException {
+        JsonToken token = p.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            Level entries = level == Level.RESPONSE ? Level.BATCH_ENTRY : Level.NESTED;
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                value(p, sink, errors, entries);
+            }
+        } else if (token == JsonToken.START_OBJECT) {
+            object(p, sink, errors, level);
+        }
+    }
+
+    /**
+     * Reads a response or a transaction result. Fields may come in any order, so the events of a
+     * result are held until its end to fill in the transaction hash and height.
+     */
+    private void object(JsonParser p, Consumer<? super StableCoinEvent> sink, BatchErrors errors, Level level)
+            throws IOException {
+        String txHash = null;
+        long height = -1;
+        int txIndex = -1;
+        long id = -1;
+        RpcError error = null;
+        int first = pending.size();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            JsonToken token = p.nextToken();
+            switch (name) {
+                case "txHash":
+                    txHash = p.getText();
+                    break;
+                case "blockHeight":
+                    height = Hex.toLong(p.getText());
+                    break;
+                case "txIndex":
+                    txIndex = (int) Hex.toLong(p.getText());
+                    break;
+                case "eventLogs":
+                    eventLogs(p);
+                    break;
+                case "result":
+                    value(p, sink, errors, Level.NESTED);
+                    break;
+                case "id":
+                    id = p.getValueAsLong(-1);
+                    break;
+                case "error":
+                    if (token == JsonToken.START_OBJECT && level != Level.NESTED) {
+                        error = error(p);
+                        if (level == Level.RESPONSE) {
+                            throw error;
+                        }
+                    } else {
+                        p.skipChildren();
+                    }
+                    break;
+                default:
+                    p.skipChildren();
+            }
+        }
+        if (pending.size() > first) {
+            for (int i = first; i < pending.size(); i++) {
+                StableCoinEvent event = pending.get(i);
+                event.txHash = txHash;
+                event.blockHeight = height;
+                event.txIndex = txIndex;
+                sink.accept(event);
+            }
+            pending.subList(first, pending.size()).clear();
+        }
+        if (error != null && errors != null) {
+            errors.error(id, error);
+        }
+    }
+
+    private void eventLogs(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return;
+        }
+        int index = 0;
+        while (p.nextToken() == JsonToken.START_OBJECT) {
+            StableCoinEvent event = eventLog(p);
+            if (event != null) {
+                event.logIndex = index;
+                pending.add(event);
+            }
+            index++;
+        }
+    }
+
+    private StableCoinEvent eventLog(JsonParser p) throws IOException {
+        String score = null;
+        Signature signature = null;
+        boolean skip = false;
+        int indexedCount = -1;
+        int dataCount = 0;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            if (skip) {
+                p.skipChildren();
+            } else if (name.equals("scoreAddress")) {
+                score = p.getText();
+                skip = scoreAddress != null && !scoreAddress.equals(score);
+            } else if (name.equals("indexed")) {
+                JsonToken first = p.nextToken();
+                signature = first == JsonToken.VALUE_STRING ? SIGNATURES.get(p.getText()) : null;
+                if (signature == null) {
+                    skip = true;
+                    if (first != JsonToken.END_ARRAY) {
+                        p.skipChildren();
+                        skipRest(p);
+                    }
+                } else {
+                    indexedCount = readValues(p, indexed);
+                }
+            } else if (name.equals("data")) {
+                dataCount = readValues(p, data);
+            } else {
+                p.skipChildren();
+            }
+        }
+        if (skip || signature == null) {
+            return null;
+        }
+        if (indexedCount + dataCount != signature.arity) {
+            throw new IOException("expected " + signature.arity + " arguments in " + score + " event, got "
+                    + (indexedCount + dataCount));
+        }
+        System.arraycopy(indexed, 0, args, 0, indexedCount);
+        System.arraycopy(data, 0, args, indexedCount, dataCount);
+        StableCoinEvent event = signature.factory.create(args);
+        event.scoreAddress = score;
+        return event;
+    }
+
+    private static void skipRest(JsonParser p) throws IOException {
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            p.skipChildren();
+        }
+    }
+
+    /**
+     * Reads the remaining values of the current array into `values`.
+     */
+    private static int readValues(JsonParser p, String[] values) throws IOException {
+        int count = 0;
+        while (p.nextToken() != JsonToken.END_ARRAY) {
+            if (count == values.length) {
+                throw new IOException("too many event arguments");
+            }
+            values[count++] = p.currentToken() == JsonToken.VALUE_NULL ? null : p.getText();
+        }
+        return count;
+    }
+
+    private static RpcError error(JsonParser p) throws IOException {
+        long code = 0;
+        String message = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String name = p.getCurrentName();
+            p.nextToken();
+            if (name.equals("code")) {
+                code = p.getLongValue();
+            } else if (name.equals("message")) {
+                message = p.getText();
+            } else {
+                p.skipChildren();
+            }
+        }
+        return new RpcError(code, message);
+    }
+
+    private static BigInteger toInt(String value) {
+        return value == null ? null : Hex.toBigInteger(value);
+    }
+
+    private static boolean toBool(String value) {
+        return "0x1".equals(value);
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.events;
+
+import java.math.BigInteger;
+
+/**
+ * An event log of the StableCoin contract, decoded into its typed arguments. Addresses are kept
+ * as their string form (hx... or cx...) so that decoding does not allocate per-address objects.
+ */
+public abstract class StableCoinEvent {
+    String scoreAddress;
+    String txHash;
+    long blockHeight = -1;
+    int txIndex = -1;
+    int logIndex;
+
+    public String getScoreAddress() {
+        return scoreAddress;
+    }
+
+    /**
+     * @return the transaction that emitted the event, null if it was not in the payload
+     */
+    public String getTxHash() {
+        return txHash;
+    }
+
+    /**
+     * @return the height of the block, -1 if it was not in the payload
+     */
+    public long getBlockHeight() {
+        return blockHeight;
+    }
+
+    /**
+     * @return the position of the transaction in its block, -1 if it was not in the payload
+     */
+    public int getTxIndex() {
+        return txIndex;
+    }
+
+    /**
+     * @return the position of the event in the transaction's event logs
+     */
+    public int getLogIndex() {
+        return logIndex;
+    }
+
+    public static final class TransferEvent extends StableCoinEvent {
+        public final String from;
+        public final String to;
+        public final BigInteger value;
+        public final byte[] data;
+
+        TransferEvent(String from, String to, BigInteger value, byte[] data) {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+            this.data = data;
+        }
+
+        @Override
+        public String toString() {
+            return "Transfer(" + from + ", " + to + ", " + value + ")";
+        }
+    }
+
+    public static final class MintEvent extends StableCoinEvent {
+        public final String to;
+        public final BigInteger value;
+
+        MintEvent(String to, BigInteger value) {
+            this.to = to;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Mint(" + to + ", " + value + ")";
+        }
+    }
+
+    public static final class BurnEvent extends StableCoinEvent {
+        public final String from;
+        public final BigInteger value;
+
+        BurnEvent(String from, BigInteger value) {
+            this.from = from;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Burn(" + from + ", " + value + ")";
+        }
+    }
+
+    public static final class ApprovalEvent extends StableCoinEvent {
+        public final String from;
+        public final String to;
+        public final BigInteger value;
+
+        ApprovalEvent(String from, String to, BigInteger value) {
+            this.from = from;
+            this.to = to;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return "Approval(" + from + ", " + to + ", " + value + ")";
+        }
+    }
+
+    public static final class WhitelistWalletEvent extends StableCoinEvent {
+        public final String to;
+        public final byte[] data;
+
+        WhitelistWalletEvent(String to, byte[] data) {
+            this.to = to;
+            this.data = data;
+        }
+
+        @Override
+        public String toString() {
+            return "WhitelistWallet(" + to + ")";
+        }
+    }
+
+    public static final class DailyTransactionLimitEvent extends StableCoinEvent {
+        public final String caller;
+        public final BigInteger limit;
+
+        DailyTransactionLimitEvent(String caller, BigInteger limit) {
+            this.caller = caller;
+            this.limit = limit;
+        }
+
+        @Override
+        public String toString() {
+            return "DailyTransactionLimit(" + caller + ", " + limit + ")";
+        }
+    }
+
+    public static final class AddIssuerEvent extends StableCoinEvent {
+        public final String caller;
+        public final String issuer;
+
+        AddIssuerEvent(String caller, String issuer) {
+            this.caller = caller;
+            this.issuer = issuer;
+        }
+
+        @Override
+        public String toString() {
+            return "AddIssuer(" + caller + ", " + issuer + ")";
+        }
+    }
+
+    public static final class RemoveIssuerEvent extends StableCoinEvent {
+        public final String caller;
+        public final String issuer;
+        public final BigInteger issuerAllowance;
+
+        RemoveIssuerEvent(String caller, String issuer, BigInteger issuerAllowance) {
+            this.caller = caller;
+            this.issuer = issuer;
+            this.issuerAllowance = issuerAllowance;
+        }
+
+        @Override
+        public String toString() {
+            return "RemoveIssuer(" + caller + ", " + issuer + ", " + issuerAllowance + ")";
+        }
+    }
+
+    public static final class TransferAdminEvent extends StableCoinEvent {
+        public final String caller;
+        public final String newAdmin;
+
+        TransferAdminEvent(String caller, String newAdmin) {
+            this.caller = caller;
+            this.newAdmin = newAdmin;
+        }
+
+        @Override
+        public String toString() {
+            return "TransferAdmin(" + caller + ", " + newAdmin + ")";
+        }
+    }
+
+    public static final class TogglePauseEvent extends StableCoinEvent {
+        public final String caller;
+        public final boolean status;
+
+        TogglePauseEvent(String caller, boolean status) {
+            this.caller = caller;
+            this.status = status;
+        }
+
+        @Override
+        public String toString() {
+            return "TogglePause(" + caller + ", " + status + ")";
+        }
+    }
+
+    public static final class EnableBalanceCheckpointsEvent extends StableCoinEvent {
+        public final String caller;
+        public final BigInteger height;
+
+        EnableBalanceCheckpointsEvent(String caller, BigInteger height) {
+            this.caller = caller;
+            this.height = height;
+        }
+
+        @Override
+        public String toString() {
+            return "EnableBalanceCheckpoints(" + caller + ", " + height + ")";
+        }
+    }
+
+    public static final class SnapshotEvent extends StableCoinEvent {
+        public final BigInteger id;
+        public final BigInteger height;
+
+        SnapshotEvent(BigInteger id, BigInteger height) {
+            this.id = id;
+            this.height = height;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot(" + id + ", " + height + ")";
+        }
+    }
+
+    public static final class TokenReceiverEvent extends StableCoinEvent {
+        public final String caller;
+        public final String contract;
+        public final boolean accepts;
+
+        TokenReceiverEvent(String caller, String contract, boolean accepts) {
+            this.caller = caller;
+            this.contract = contract;
+            this.accepts = accepts;
+        }
+
+        @Override
+        public String toString() {
+            return "TokenReceiver(" + caller + ", " + contract + ", " + accepts + ")";
+        }
+    }
+}
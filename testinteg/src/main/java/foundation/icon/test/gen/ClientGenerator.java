@@ -0,0 +1,273 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.gen;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Generates a typed client for the {@code @External} methods of a SCORE class, with a blocking and
+ * a {@code CompletableFuture} variant of every method. The SCORE class must be compiled with
+ * {@code -parameters}; annotations are matched by name so the javaee API is only needed on the
+ * classpath of the run, not of this project.
+ * <pre>
+ * ClientGenerator SCORE_CLASS CLIENT_CLASS OUTPUT_DIR
+ * </pre>
+ */
+public class ClientGenerator {
+    private static final String EXTERNAL = "score.annotation.External";
+    private static final String OPTIONAL = "score.annotation.Optional";
+
+    private final Class<?> scoreClass;
+    private final String packageName;
+    private final String simpleName;
+
+    public ClientGenerator(Class<?> scoreClass, String clientClass) {
+        this.scoreClass = scoreClass;
+        int dot = clientClass.lastIndexOf('.');
+        this.packageName = clientClass.substring(0, dot);
+        this.simpleName = clientClass.substring(dot + 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 3) {
+            System.err.println("usage: ClientGenerator SCORE_CLASS CLIENT_CLASS OUTPUT_DIR");
+            System.exit(2);
+        }
+        ClientGenerator generator = new ClientGenerator(Class.forName(args[0]), args[1]);
+        Path written = generator.writeTo(Paths.get(args[2]));
+        System.out.println("generated " + written);
+    }
+
+    public Path writeTo(Path outputDir) throws IOException {
+        Path file = outputDir.resolve(packageName.replace('.', '/')).resolve(simpleName + ".java");
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, generate());
+        return file;
+    }
+
+    public String generate() {
+        Map<String, Method> externals = new LinkedHashMap<>();
+        Arrays.stream(scoreClass.getMethods())
+                .filter(m -> annotation(m, EXTERNAL) != null)
+                .sorted(Comparator.comparing(Method::getName))
+                .forEach(m -> externals.putIfAbsent(m.getName(), m));
+
+        StringBuilder out = new StringBuilder();
+        out.append("// Generated by ").append(getClass().getName()).append(" from ")
+                .append(scoreClass.getName()).append(". Do not edit.\n");
+        out.append("package ").append(packageName).append(";\n\n");
+        out.append("import foundation.icon.icx.Wallet;\n");
+        out.append("import foundation.icon.icx.data.Address;\n");
+        out.append("import foundation.icon.icx.data.Bytes;\n");
+        out.append("import foundation.icon.icx.transport.jsonrpc.RpcItem;\n");
+        out.append("import foundation.icon.test.TransactionHandler;\n");
+        out.append("import foundation.icon.test.score.ScoreClient;\n\n");
+        out.append("import java.io.IOException;\n");
+        out.append("import java.math.BigInteger;\n");
+        out.append("import java.util.List;\n");
+        out.append("import java.util.concurrent.CompletableFuture;\n\n");
+        out.append("public class ").append(simpleName).append(" extends ScoreClient {\n");
+
+        for (Method m : externals.values()) {
+            if (m.getParameterCount() > 0) {
+                out.append("    private static final String[] ").append(constantName(m)).append(" = {")
+                        .append(Arrays.stream(m.getParameters())
+                                .map(p -> "\"" + p.getName() + "\"")
+                                .collect(Collectors.joining(", ")))
+                        .append("};\n");
+            }
+        }
+        out.append('\n');
+        out.append("    public ").append(simpleName).append("(TransactionHandler txHandler, Address scoreAddress) {\n");
+        out.append("        super(txHandler, scoreAddress);\n");
+        out.append("    }\n");
+
+        for (Method m : externals.values()) {
+            out.append('\n');
+            if (isReadonly(m)) {
+                appendReadonly(out, m);
+            } else {
+                appendInvoke(out, m);
+            }
+        }
+        out.append("}\n");
+        return out.toString();
+    }
+
+    private void appendReadonly(StringBuilder out, Method m) {
+        String type = returnType(m.getReturnType());
+        String decode = decoder(m.getReturnType());
+        out.append("    public ").append(type).append(' ').append(m.getName()).append('(')
+                .append(parameterList(m, false)).append(") throws IOException {\n");
+        out.append("        return ").append(applyDecoder(decode, "call(\"" + m.getName() + "\", "
+                + paramsExpression(m) + ")")).append(";\n");
+        out.append("    }\n\n");
+        out.append("    public CompletableFuture<").append(boxed(type)).append("> ").append(m.getName())
+                .append("Async(").append(parameterList(m, false)).append(") {\n");
+        out.append("        return callAsync(\"").append(m.getName()).append("\", ").append(paramsExpression(m))
+                .append(")");
+        if (decode != null) {
+            out.append(".thenApply(").append(decode.startsWith(".")
+                    ? "RpcItem::" + decode.substring(1, decode.indexOf('('))
+                    : "ScoreClient::" + decode.substring(0, decode.indexOf('('))).append(')');
+        }
+        out.append(";\n");
+        out.append("    }\n");
+    }
+
+    private void appendInvoke(StringBuilder out, Method m) {
+        String params = parameterList(m, true);
+        out.append("    public Bytes ").append(m.getName()).append('(').append(params)
+                .append(") throws IOException {\n");
+        out.append("        return invoke(wallet, \"").append(m.getName()).append("\", ").append(paramsExpression(m))
+                .append(");\n");
+        out.append("    }\n\n");
+        out.append("    public CompletableFuture<Bytes> ").append(m.getName()).append("Async(").append(params)
+                .append(") {\n");
+        out.append("        return invokeAsync(wallet, \"").append(m.getName()).append("\", ")
+                .append(paramsExpression(m)).append(");\n");
+        out.append("    }\n");
+    }
+
+    private static String applyDecoder(String decode, String expression) {
+        if (decode == null) {
+            return expression;
+        } else if (decode.startsWith(".")) {
+            return expression + decode;
+        }
+        return decode.replace("()", "(" + expression + ")");
+    }
+
+    private String paramsExpression(Method m) {
+        if (m.getParameterCount() == 0) {
+            return "null";
+        }
+        Parameter[] parameters = m.getParameters();
+        if (parameters.length == 1 && parameters[0].getType().isArray() && parameters[0].getType() != byte[].class) {
+            // keep a lone array from being spread over the varargs
+            return "params(" + constantName(m) + ", (Object) " + parameters[0].getName() + ")";
+        }
+        return "params(" + constantName(m) + ", " + Arrays.stream(parameters)
+                .map(Parameter::getName)
+                .collect(Collectors.joining(", ")) + ")";
+    }
+
+    private static String parameterList(Method m, boolean withWallet) {
+        StringBuilder list = new StringBuilder(withWallet ? "Wallet wallet" : "");
+        for (Parameter p : m.getParameters()) {
+            if (list.length() > 0) {
+                list.append(", ");
+            }
+            list.append(parameterType(p.getType())).append(' ').append(p.getName());
+            if (annotation(p, OPTIONAL) != null) {
+                list.append(" /* optional */");
+            }
+        }
+        return list.toString();
+    }
+
+    private static String constantName(Method m) {
+        return m.getName().replaceAll("([a-z0-9])([A-Z])", "$1_$2").toUpperCase() + "_PARAMS";
+    }
+
+    private static String parameterType(Class<?> type) {
+        if (type.isArray() && type != byte[].class) {
+            return parameterType(type.getComponentType()) + "[]";
+        } else if (type.getName().equals("score.Address")) {
+            return "Address";
+        } else if (type == int.class || type == long.class) {
+            // boxed so optional integer parameters can be left out
+            return type == long.class ? "Long" : "Integer";
+        } else if (type == boolean.class) {
+            return "Boolean";
+        } else if (type == BigInteger.class || type == String.class || type == byte[].class
+                || type == Boolean.class || type == Integer.class || type == Long.class) {
+            return type.getSimpleName();
+        }
+        throw new IllegalArgumentException("Unsupported parameter type " + type.getName());
+    }
+
+    private static String returnType(Class<?> type) {
+        if (type.getName().equals("score.Address")) {
+            return "Address";
+        } else if (type.isArray() && type.getComponentType().getName().equals("score.Address")) {
+            return "List<Address>";
+        } else if (type == BigInteger.class || type == String.class || type == byte[].class) {
+            return type.getSimpleName();
+        } else if (type == boolean.class || type == Boolean.class) {
+            return "boolean";
+        } else if (type == int.class || type == Integer.class || type == long.class || type == Long.class) {
+            // integers are returned as hex strings and may exceed the Java type on other SCOREs
+            return "BigInteger";
+        }
+        return "RpcItem";
+    }
+
+    private static String decoder(Class<?> type) {
+        switch (returnType(type)) {
+            case "Address":
+                return ".asAddress()";
+            case "List<Address>":
+                return "toAddressList()";
+            case "BigInteger":
+                return ".asInteger()";
+            case "String":
+                return ".asString()";
+            case "byte[]":
+                return ".asByteArray()";
+            case "boolean":
+                return ".asBoolean()";
+            default:
+                return null;
+        }
+    }
+
+    private static String boxed(String type) {
+        return type.equals("boolean") ? "Boolean" : type;
+    }
+
+    private static boolean isReadonly(Method m) {
+        Annotation external = annotation(m, EXTERNAL);
+        try {
+            return (Boolean) external.annotationType().getMethod("readonly").invoke(external);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Annotation annotation(java.lang.reflect.AnnotatedElement element, String name) {
+        for (Annotation a : element.getAnnotations()) {
+            if (a.annotationType().getName().equals(name)) {
+                return a;
+            }
+        }
+        return null;
+    }
+}
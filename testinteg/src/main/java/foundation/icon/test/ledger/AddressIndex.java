@@ -0,0 +1,246 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.ledger;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Posting lists of the ledger: an open-addressing hash table from address to a run of record
+ * numbers, followed by the runs themselves. Lookups take a probe or two in the mapped table.
+ * <pre>
+ * header  64 bytes: magic, version, slots, addresses, covered records, postings count
+ * slots   40 bytes each: used flag, 21-byte address, first posting, posting count
+ * postings  8 bytes each: record numbers in ledger order
+ * </pre>
+ */
+final class AddressIndex implements Closeable {
+    static final String FILE = "index.dat";
+    private static final long MAGIC = 0x5553445349445831L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_SIZE = 40;
+    private static final int SLOT_OFFSET = 24;
+    private static final int SLOT_COUNT = 32;
+    // longs per mapping, a mapping is limited to 2GB
+    private static final int WINDOW_BITS = 27;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer table;
+    private final MappedByteBuffer[] windows;
+    private final int slots;
+    private final int addresses;
+    private final long covered;
+    private final long postings;
+
+    interface Visitor {
+        void visit(byte[] address, long first, int count) throws IOException;
+    }
+
+    private AddressIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION) {
+            throw new IOException("not a ledger index");
+        }
+        slots = header.getInt(12);
+        addresses = header.getInt(16);
+        covered = header.getLong(24);
+        postings = header.getLong(32);
+        table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) slots * SLOT_SIZE);
+        long base = HEADER_SIZE + (long) slots * SLOT_SIZE;
+        windows = new MappedByteBuffer[(int) ((postings + (1L << WINDOW_BITS) - 1) >>> WINDOW_BITS)];
+        for (int i = 0; i < windows.length; i++) {
+            long first = (long) i << WINDOW_BITS;
+            long length = Math.min(1L << WINDOW_BITS, postings - first);
+            windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, base + first * 8, length * 8);
+        }
+    }
+
+    static AddressIndex load(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            return new AddressIndex(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of ledger records the postings cover
+     */
+    long covered() {
+        return covered;
+    }
+
+    int addresses() {
+        return addresses;
+    }
+
+    long postings() {
+        return postings;
+    }
+
+    /**
+     * @return the slot of `address`, or -1 if it has no postings
+     */
+    int find(byte[] address) {
+        int mask = slots - 1;
+        for (int slot = hash(address) & mask; ; slot = (slot + 1) & mask) {
+            int base = slot * SLOT_SIZE;
+            if (table.get(base) == 0) {
+                return -1;
+            }
+            if (TransferRecord.equalsAt(table, base + 1, address)) {
+                return slot;
+            }
+        }
+    }
+
+    long first(int slot) {
+        return table.getLong(slot * SLOT_SIZE + SLOT_OFFSET);
+    }
+
+    int count(int slot) {
+        return table.getInt(slot * SLOT_SIZE + SLOT_COUNT);
+    }
+
+    long posting(long index) {
+        return windows[(int) (index >>> WINDOW_BITS)].getLong((int) (index & ((1L << WINDOW_BITS) - 1)) * 8);
+    }
+
+    void forEach(Visitor visitor) throws IOException {
+        for (int slot = 0; slot < slots; slot++) {
+            int base = slot * SLOT_SIZE;
+            if (table.get(base) != 0) {
+                byte[] address = new byte[TransferRecord.ADDRESS_SIZE];
+                for (int i = 0; i < address.length; i++) {
+                    address[i] = table.get(base + 1 + i);
+                }
+                visitor.visit(address, first(slot), count(slot));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    static int hash(byte[] address) {
+        long h = 0;
+        for (byte b : address) {
+            h = h * 31 + (b & 0xff);
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Writes an index file. Call {@link #add} once per address followed by its postings.
+     */
+    static final class Writer implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer table;
+        private final int slots;
+        private final ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        private final long postingsEnd;
+        private long written;
+        private int currentSlot = -1;
+        private int currentCount;
+
+        Writer(Path file, long covered, int addresses, long postings) throws IOException {
+            int size = Integer.highestOneBit(Math.max(16, addresses * 2 - 1)) << 1;
+            if ((long) size * SLOT_SIZE > Integer.MAX_VALUE) {
+                throw new IOException("too many addresses: " + addresses);
+            }
+            slots = size;
+            postingsEnd = postings;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(0, MAGIC).putInt(8, VERSION).putInt(12, slots).putInt(16, addresses)
+                    .putLong(24, covered).putLong(32, postings);
+            channel.write(header, 0);
+            table = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE, (long) slots * SLOT_SIZE);
+            channel.position(HEADER_SIZE + (long) slots * SLOT_SIZE);
+        }
+
+        void add(byte[] address) {
+            finishSlot();
+            int mask = slots - 1;
+            int slot = hash(address) & mask;
+            while (table.get(slot * SLOT_SIZE) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            int base = slot * SLOT_SIZE;
+            table.put(base, (byte) 1);
+            for (int i = 0; i < address.length; i++) {
+                table.put(base + 1 + i, address[i]);
+            }
+            table.putLong(base + SLOT_OFFSET, written);
+            currentSlot = slot;
+            currentCount = 0;
+        }
+
+        void posting(long record) throws IOException {
+            if (!out.hasRemaining()) {
+                drain();
+            }
+            out.putLong(record);
+            written++;
+            currentCount++;
+        }
+
+        private void finishSlot() {
+            if (currentSlot >= 0) {
+                table.putInt(currentSlot * SLOT_SIZE + SLOT_COUNT, currentCount);
+            }
+        }
+
+        private void drain() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                channel.write(out);
+            }
+            out.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                finishSlot();
+                drain();
+                if (written != postingsEnd) {
+                    throw new IOException("wrote " + written + " postings, expected " + postingsEnd);
+                }
+                table.force();
+                channel.force(true);
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
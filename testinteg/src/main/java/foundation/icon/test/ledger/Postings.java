@@ -0,0 +1,50 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.ledger;
+
+/**
+ * Record numbers of the transfers from or to one address, in ledger order.
+ */
+public final class Postings {
+    static final Postings EMPTY = new Postings(null, 0, 0, null);
+
+    private final AddressIndex index;
+    private final long first;
+    private final int indexed;
+    private final LongList tail;
+
+    Postings(AddressIndex index, long first, int indexed, LongList tail) {
+        this.index = index;
+        this.first = first;
+        this.indexed = indexed;
+        this.tail = tail;
+    }
+
+    public int size() {
+        return indexed + (tail == null ? 0 : tail.size());
+    }
+
+    /**
+     * @return the record number of the `i`th transfer of the address
+     */
+    public long get(int i) {
+        if (i < 0 || i >= size()) {
+            throw new IndexOutOfBoundsException(i);
+        }
+        return i < indexed ? index.posting(first + i) : tail.get(i - indexed);
+    }
+}
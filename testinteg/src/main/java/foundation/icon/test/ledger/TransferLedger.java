@@ -0,0 +1,545 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.ledger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import foundation.icon.test.Log;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import foundation.icon.test.profile.StepProfiler;
+import foundation.icon.test.util.Hex;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Append-only file store of StableCoin transfers, in a directory of memory-mapped segments of
+ * fixed-width {@link TransferRecord}s. Records are kept in chain order, (height, txIndex, logIndex)
+ * strictly increasing. An append at or before the last record is ignored, so re-sending events
+ * after a crash does not create duplicates.
+ * <p>
+ * The history of an address is a posting list of record numbers, so a lookup costs one hash probe
+ * plus one read per record. Postings are written to {@code index.dat} when the ledger is closed.
+ * Records appended since then are indexed in memory when the ledger is opened. A sparse index,
+ * holding the height of every 1024th record, finds the start of a height range.
+ * <p>
+ * Reads go straight to the mapped segments. One thread may append while no other thread reads;
+ * after that, any number of threads may read at once.
+ *
+ * <pre>
+ * TransferLedger --dir ledger --import events.jsonl     append the transfers written by BlockBackfill
+ * TransferLedger --dir ledger --compact ledger2 [--segment N] [--from-height H]
+ * TransferLedger --dir ledger --history hx...
+ * </pre>
+ */
+public class TransferLedger implements Closeable {
+    private static final Log LOG = Log.getGlobal();
+    public static final int DEFAULT_SEGMENT_RECORDS = 1 << 20;
+    private static final long SEGMENT_MAGIC = 0x5553445353454731L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int HEADER_CAPACITY = 16;
+    private static final int HEADER_COUNT = 20;
+    private static final int SPARSE_STRIDE = 1024;
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final List<FileChannel> channels = new ArrayList<>();
+    private final Map<ByteBuffer, LongList> tail = new HashMap<>();
+    private final TransferRecord lastView = new TransferRecord();
+    private long[] sparse = new long[16];
+    private AddressIndex index;
+    private long count;
+    private long committed;
+
+    private TransferLedger(Path dir, int segmentRecords) {
+        this.dir = dir;
+        this.segmentRecords = segmentRecords;
+    }
+
+    public static TransferLedger open(Path dir) throws IOException {
+        return open(dir, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    /**
+     * Opens the ledger in `dir`, creating it if needed.
+     *
+     * @param segmentRecords records per segment of a new ledger; an existing ledger keeps its own
+     */
+    public static TransferLedger open(Path dir, int segmentRecords) throws IOException {
+        Files.createDirectories(dir);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "segment-*.dat")) {
+            stream.forEach(files::add);
+        }
+        files.sort(null);
+        if (!files.isEmpty()) {
+            try (FileChannel first = FileChannel.open(files.get(0), StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                first.read(header, 0);
+                segmentRecords = header.getInt(HEADER_CAPACITY);
+            }
+        }
+        TransferLedger ledger = new TransferLedger(dir, segmentRecords);
+        try {
+            ledger.load(files);
+        } catch (IOException | RuntimeException e) {
+            ledger.closeFiles();
+            throw e;
+        }
+        return ledger;
+    }
+
+    private void load(List<Path> files) throws IOException {
+        boolean partial = false;
+        for (int i = 0; i < files.size(); i++) {
+            if (!files.get(i).getFileName().toString().equals(segmentName(i))) {
+                throw new IOException("missing segment " + segmentName(i) + " in " + dir);
+            }
+            MappedByteBuffer segment = mapSegment(i);
+            int records = segment.getInt(HEADER_COUNT);
+            if (records < 0 || records > segmentRecords) {
+                throw new IOException(files.get(i) + " has a bad record count " + records);
+            }
+            if (partial) {
+                // mapped before its records were committed, they are appended again
+                if (records != 0) {
+                    LOG.warning(files.get(i) + " follows a segment that is not full, dropping "
+                            + records + " records");
+                    segment.putInt(HEADER_COUNT, 0);
+                }
+                continue;
+            }
+            count += records;
+            partial = records < segmentRecords;
+        }
+        committed = count;
+
+        Path indexFile = dir.resolve(AddressIndex.FILE);
+        long covered = 0;
+        if (Files.exists(indexFile)) {
+            index = AddressIndex.load(indexFile);
+            if (index.covered() > count) {
+                LOG.warning("ledger index is ahead of the records, rebuilding it");
+                index.close();
+                index = null;
+            } else {
+                covered = index.covered();
+            }
+        }
+        TransferRecord view = new TransferRecord();
+        byte[] from = new byte[TransferRecord.ADDRESS_SIZE];
+        byte[] to = new byte[TransferRecord.ADDRESS_SIZE];
+        for (long i = covered; i < count; i++) {
+            read(i, view);
+            copyAddress(view, TransferRecord.FROM, from);
+            copyAddress(view, TransferRecord.TO, to);
+            addPostings(from, to, i);
+        }
+        for (long i = 0; i < count; i += SPARSE_STRIDE) {
+            addSparse(i, read(i, view).getHeight());
+        }
+    }
+
+    public long size() {
+        return count;
+    }
+
+    /**
+     * Appends a transfer unless it is at or before the last record in chain order.
+     *
+     * @return whether the record was appended
+     */
+    public boolean append(long height, int txIndex, int logIndex, String from, String to, BigInteger amount)
+            throws IOException {
+        if (count > 0 && read(count - 1, lastView).compareTo(height, txIndex, logIndex) >= 0) {
+            return false;
+        }
+        byte[] fromBytes = TransferRecord.encodeAddress(from);
+        byte[] toBytes = TransferRecord.encodeAddress(to);
+        ByteBuffer segment = segmentFor(count);
+        TransferRecord.write(segment, offset(count), height, txIndex, logIndex, fromBytes, toBytes, amount);
+        addRecord(fromBytes, toBytes, height);
+        return true;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the event was decoded without its block position
+     */
+    public boolean append(TransferEvent event) throws IOException {
+        if (event.getBlockHeight() < 0 || event.getTxIndex() < 0) {
+            throw new IllegalArgumentException("transfer without block height or tx index: " + event);
+        }
+        return append(event.getBlockHeight(), event.getTxIndex(), event.getLogIndex(),
+                event.from, event.to, event.value);
+    }
+
+    /**
+     * Appends a copy of `record`, which may belong to another ledger.
+     */
+    boolean appendRecord(TransferRecord record) throws IOException {
+        if (count > 0 && read(count - 1, lastView)
+                .compareTo(record.getHeight(), record.getTxIndex(), record.getLogIndex()) >= 0) {
+            return false;
+        }
+        ByteBuffer segment = segmentFor(count);
+        int offset = offset(count);
+        for (int i = 0; i < TransferRecord.SIZE; i++) {
+            segment.put(offset + i, record.buffer.get(record.offset + i));
+        }
+        byte[] from = new byte[TransferRecord.ADDRESS_SIZE];
+        byte[] to = new byte[TransferRecord.ADDRESS_SIZE];
+        copyAddress(record, TransferRecord.FROM, from);
+        copyAddress(record, TransferRecord.TO, to);
+        addRecord(from, to, record.getHeight());
+        return true;
+    }
+
+    private void addRecord(byte[] from, byte[] to, long height) {
+        addPostings(from, to, count);
+        if (count % SPARSE_STRIDE == 0) {
+            addSparse(count, height);
+        }
+        count++;
+    }
+
+    private void addPostings(byte[] from, byte[] to, long record) {
+        tail.computeIfAbsent(ByteBuffer.wrap(from.clone()), k -> new LongList()).add(record);
+        if (!Arrays.equals(from, to)) {
+            tail.computeIfAbsent(ByteBuffer.wrap(to.clone()), k -> new LongList()).add(record);
+        }
+    }
+
+    private void addSparse(long record, long height) {
+        int slot = (int) (record / SPARSE_STRIDE);
+        if (slot == sparse.length) {
+            sparse = Arrays.copyOf(sparse, sparse.length * 2);
+        }
+        sparse[slot] = height;
+    }
+
+    /**
+     * Makes the records appended so far part of the ledger on disk. Records appended after the
+     * last commit are lost if the process stops, except those of segments filled in the meantime.
+     *
+     * @param force also wait until the segments are written to the storage device
+     */
+    public void commit(boolean force) {
+        if (committed == count) {
+            return;
+        }
+        int first = (int) (committed / segmentRecords);
+        int last = (int) ((count - 1) / segmentRecords);
+        for (int i = first; i <= last; i++) {
+            MappedByteBuffer segment = segments.get(i);
+            segment.putInt(HEADER_COUNT, (int) Math.min(segmentRecords, count - (long) i * segmentRecords));
+            if (force) {
+                segment.force();
+            }
+        }
+        committed = count;
+    }
+
+    /**
+     * Positions `view` on record `number`.
+     *
+     * @param view a view to reuse, or null for a new one
+     */
+    public TransferRecord read(long number, TransferRecord view) {
+        if (number < 0 || number >= count) {
+            throw new IndexOutOfBoundsException("record " + number + " of " + count);
+        }
+        if (view == null) {
+            view = new TransferRecord();
+        }
+        view.buffer = segments.get((int) (number / segmentRecords));
+        view.offset = offset(number);
+        view.number = number;
+        return view;
+    }
+
+    /**
+     * @return the transfers from or to `address`
+     */
+    public Postings history(String address) {
+        byte[] key = TransferRecord.encodeAddress(address);
+        int slot = index == null ? -1 : index.find(key);
+        LongList recent = tail.get(ByteBuffer.wrap(key));
+        if (slot < 0 && recent == null) {
+            return Postings.EMPTY;
+        }
+        return new Postings(index, slot < 0 ? 0 : index.first(slot), slot < 0 ? 0 : index.count(slot), recent);
+    }
+
+    /**
+     * Passes every address with at least one transfer to `visitor`, in no particular order.
+     */
+    public void forEachAddress(Consumer<String> visitor) throws IOException {
+        if (index != null) {
+            index.forEach((address, first, n) ->
+                    visitor.accept(TransferRecord.decodeAddress(ByteBuffer.wrap(address), 0)));
+        }
+        for (ByteBuffer key : tail.keySet()) {
+            if (index == null || index.find(key.array()) < 0) {
+                visitor.accept(TransferRecord.decodeAddress(key, 0));
+            }
+        }
+    }
+
+    /**
+     * @return the number of the first record at or after `height`, or {@link #size()} if none
+     */
+    public long firstAtOrAfter(long height) {
+        int lo = 0;
+        int hi = (int) ((count + SPARSE_STRIDE - 1) / SPARSE_STRIDE);
+        // find the last sampled record below `height`, the answer is within the next stride
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sparse[mid] < height) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        long i = lo == 0 ? 0 : (long) (lo - 1) * SPARSE_STRIDE;
+        TransferRecord view = new TransferRecord();
+        while (i < count && read(i, view).getHeight() < height) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Passes the records of blocks `fromHeight` to `toHeight`, both inclusive, to `visitor`
+     * through one reused view.
+     */
+    public void scan(long fromHeight, long toHeight, Consumer<TransferRecord> visitor) {
+        TransferRecord view = new TransferRecord();
+        for (long i = firstAtOrAfter(fromHeight); i < count; i++) {
+            if (read(i, view).getHeight() > toHeight) {
+                break;
+            }
+            visitor.accept(view);
+        }
+    }
+
+    /**
+     * Commits, writes the posting lists and closes the segments.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            commit(true);
+            writeIndex();
+        } finally {
+            closeFiles();
+        }
+    }
+
+    private void closeFiles() throws IOException {
+        if (index != null) {
+            index.close();
+        }
+        for (FileChannel channel : channels) {
+            channel.close();
+        }
+        segments.clear();
+        channels.clear();
+    }
+
+    /**
+     * Merges the postings indexed in memory into the index file.
+     */
+    private void writeIndex() throws IOException {
+        if (tail.isEmpty() && index != null && index.covered() == count) {
+            return;
+        }
+        int addresses = index == null ? 0 : index.addresses();
+        long postings = index == null ? 0 : index.postings();
+        for (Map.Entry<ByteBuffer, LongList> e : tail.entrySet()) {
+            if (index == null || index.find(e.getKey().array()) < 0) {
+                addresses++;
+            }
+            postings += e.getValue().size();
+        }
+        Path tmp = dir.resolve(AddressIndex.FILE + ".tmp");
+        try (AddressIndex.Writer writer = new AddressIndex.Writer(tmp, count, addresses, postings)) {
+            if (index != null) {
+                AddressIndex old = index;
+                old.forEach((address, first, n) -> {
+                    writer.add(address);
+                    for (int i = 0; i < n; i++) {
+                        writer.posting(old.posting(first + i));
+                    }
+                    LongList recent = tail.get(ByteBuffer.wrap(address));
+                    for (int i = 0; recent != null && i < recent.size(); i++) {
+                        writer.posting(recent.get(i));
+                    }
+                });
+            }
+            for (Map.Entry<ByteBuffer, LongList> e : tail.entrySet()) {
+                byte[] address = e.getKey().array();
+                if (index == null || index.find(address) < 0) {
+                    writer.add(address);
+                    LongList recent = e.getValue();
+                    for (int i = 0; i < recent.size(); i++) {
+                        writer.posting(recent.get(i));
+                    }
+                }
+            }
+        }
+        if (index != null) {
+            index.close();
+        }
+        Path file = dir.resolve(AddressIndex.FILE);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = AddressIndex.load(file);
+        tail.clear();
+    }
+
+    /**
+     * Copies the records of `source` accepted by `keep` into a new ledger in `target`, with full
+     * segments of `segmentRecords` and one index without in-memory postings. The source is left as
+     * it is; swap the directories once the copy is done.
+     *
+     * @return the number of records copied
+     */
+    public static long compact(Path source, Path target, int segmentRecords, Predicate<TransferRecord> keep)
+            throws IOException {
+        if (Files.exists(target.resolve(segmentName(0)))) {
+            throw new IOException("target ledger is not empty: " + target);
+        }
+        try (TransferLedger from = open(source); TransferLedger to = open(target, segmentRecords)) {
+            TransferRecord view = new TransferRecord();
+            for (long i = 0; i < from.size(); i++) {
+                if (keep.test(from.read(i, view))) {
+                    to.appendRecord(view);
+                }
+            }
+            return to.size();
+        }
+    }
+
+    private ByteBuffer segmentFor(long record) throws IOException {
+        int segment = (int) (record / segmentRecords);
+        if (segment > 0 && record % segmentRecords == 0) {
+            // the previous segment is full; record that before a later one exists on disk
+            segments.get(segment - 1).putInt(HEADER_COUNT, segmentRecords);
+        }
+        while (segment >= segments.size()) {
+            mapSegment(segments.size());
+        }
+        return segments.get(segment);
+    }
+
+    private MappedByteBuffer mapSegment(int i) throws IOException {
+        FileChannel channel = FileChannel.open(dir.resolve(segmentName(i)), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer segment;
+        try {
+            boolean created = channel.size() == 0;
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) segmentRecords * TransferRecord.SIZE);
+            if (created) {
+                segment.putLong(0, SEGMENT_MAGIC).putInt(8, VERSION).putInt(12, TransferRecord.SIZE)
+                        .putInt(HEADER_CAPACITY, segmentRecords).putInt(HEADER_COUNT, 0);
+            } else if (segment.getLong(0) != SEGMENT_MAGIC || segment.getInt(8) != VERSION
+                    || segment.getInt(12) != TransferRecord.SIZE || segment.getInt(HEADER_CAPACITY) != segmentRecords) {
+                throw new IOException("not a ledger segment: " + dir.resolve(segmentName(i)));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        channels.add(channel);
+        segments.add(segment);
+        return segment;
+    }
+
+    private int offset(long record) {
+        return HEADER_SIZE + (int) (record % segmentRecords) * TransferRecord.SIZE;
+    }
+
+    private static void copyAddress(TransferRecord record, int field, byte[] into) {
+        for (int i = 0; i < into.length; i++) {
+            into[i] = record.buffer.get(record.offset + field + i);
+        }
+    }
+
+    private static String segmentName(int i) {
+        return String.format("segment-%06d.dat", i);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StepProfiler.parseArgs(args);
+        Path dir = Path.of(options.getOrDefault("dir", "ledger"));
+        if (options.containsKey("compact")) {
+            long fromHeight = Long.parseLong(options.getOrDefault("from-height", "0"));
+            long kept = compact(dir, Path.of(options.get("compact")),
+                    Integer.parseInt(options.getOrDefault("segment", String.valueOf(DEFAULT_SEGMENT_RECORDS))),
+                    r -> r.getHeight() >= fromHeight);
+            LOG.info("compacted " + kept + " records into " + options.get("compact"));
+            return;
+        }
+        try (TransferLedger ledger = open(dir)) {
+            if (options.containsKey("import")) {
+                long appended = 0;
+                try (BufferedReader reader = Files.newBufferedReader(Path.of(options.get("import")),
+                        StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        JsonNode event = MAPPER.readTree(line);
+                        if ("Transfer".equals(event.path("event").asText()) && ledger.append(
+                                event.path("blockHeight").asLong(), event.path("txIndex").asInt(),
+                                event.path("logIndex").asInt(), event.path("from").asText(),
+                                event.path("to").asText(), Hex.toBigInteger(event.path("value").asText()))) {
+                            appended++;
+                        }
+                    }
+                }
+                LOG.info("appended " + appended + " transfers, " + ledger.size() + " in the ledger");
+            }
+            if (options.containsKey("history")) {
+                Postings postings = ledger.history(options.get("history"));
+                TransferRecord view = new TransferRecord();
+                for (int i = 0; i < postings.size(); i++) {
+                    LOG.info(ledger.read(postings.get(i), view).toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.ledger;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * View of one fixed-width ledger record. The accessors read the mapped segment directly, so a
+ * view is only valid until it is moved to another record; use {@link #copy()} to keep one.
+ * <pre>
+ * offset size
+ *      0    8  block height
+ *      8    4  transaction index in the block
+ *     12    4  event log index in the transaction
+ *     16   21  from, address type (0 hx, 1 cx) and 20 bytes
+ *     37   21  to
+ *     58   32  amount, unsigned big-endian
+ *     90    6  reserved
+ * </pre>
+ */
+public final class TransferRecord {
+    public static final int SIZE = 96;
+    static final int HEIGHT = 0;
+    static final int TX_INDEX = 8;
+    static final int LOG_INDEX = 12;
+    static final int FROM = 16;
+    static final int TO = 37;
+    static final int AMOUNT = 58;
+    static final int ADDRESS_SIZE = 21;
+    static final int AMOUNT_SIZE = 32;
+
+    ByteBuffer buffer;
+    int offset;
+    long number = -1;
+
+    /**
+     * @return the position of the record in the ledger
+     */
+    public long getNumber() {
+        return number;
+    }
+
+    public long getHeight() {
+        return buffer.getLong(offset + HEIGHT);
+    }
+
+    public int getTxIndex() {
+        return buffer.getInt(offset + TX_INDEX);
+    }
+
+    public int getLogIndex() {
+        return buffer.getInt(offset + LOG_INDEX);
+    }
+
+    public String getFrom() {
+        return decodeAddress(buffer, offset + FROM);
+    }
+
+    public String getTo() {
+        return decodeAddress(buffer, offset + TO);
+    }
+
+    /**
+     * @param address as returned by {@link #encodeAddress}
+     */
+    public boolean isFrom(byte[] address) {
+        return equalsAt(buffer, offset + FROM, address);
+    }
+
+    public boolean isTo(byte[] address) {
+        return equalsAt(buffer, offset + TO, address);
+    }
+
+    public BigInteger getAmount() {
+        byte[] bytes = new byte[AMOUNT_SIZE];
+        for (int i = 0; i < AMOUNT_SIZE; i++) {
+            bytes[i] = buffer.get(offset + AMOUNT + i);
+        }
+        return new BigInteger(1, bytes);
+    }
+
+    /**
+     * @return a view of a heap copy of this record
+     */
+    public TransferRecord copy() {
+        TransferRecord copy = new TransferRecord();
+        copy.buffer = ByteBuffer.allocate(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            copy.buffer.put(i, buffer.get(offset + i));
+        }
+        copy.offset = 0;
+        copy.number = number;
+        return copy;
+    }
+
+    /**
+     * Compares the position of this record in the chain with (height, txIndex, logIndex).
+     */
+    int compareTo(long height, int txIndex, int logIndex) {
+        int c = Long.compare(getHeight(), height);
+        if (c == 0) {
+            c = Integer.compare(getTxIndex(), txIndex);
+        }
+        return c != 0 ? c : Integer.compare(getLogIndex(), logIndex);
+    }
+
+    @Override
+    public String toString() {
+        return "#" + number + " " + getHeight() + "/" + getTxIndex() + "/" + getLogIndex()
+                + " " + getFrom() + " -> " + getTo() + " " + getAmount();
+    }
+
+    static void write(ByteBuffer buffer, int offset, long height, int txIndex, int logIndex,
+                      byte[] from, byte[] to, BigInteger amount) {
+        if (amount.signum() < 0 || amount.bitLength() > AMOUNT_SIZE * 8) {
+            throw new IllegalArgumentException("amount out of range: " + amount);
+        }
+        buffer.putLong(offset + HEIGHT, height);
+        buffer.putInt(offset + TX_INDEX, txIndex);
+        buffer.putInt(offset + LOG_INDEX, logIndex);
+        for (int i = 0; i < ADDRESS_SIZE; i++) {
+            buffer.put(offset + FROM + i, from[i]);
+            buffer.put(offset + TO + i, to[i]);
+        }
+        byte[] bytes = amount.toByteArray();
+        int skip = bytes.length > AMOUNT_SIZE ? bytes.length - AMOUNT_SIZE : 0;
+        int pad = AMOUNT_SIZE - (bytes.length - skip);
+        for (int i = 0; i < AMOUNT_SIZE; i++) {
+            buffer.put(offset + AMOUNT + i, i < pad ? 0 : bytes[skip + i - pad]);
+        }
+    }
+
+    /**
+     * @return the 21-byte form of an hx... or cx... address
+     */
+    public static byte[] encodeAddress(String address) {
+        if (address == null || address.length() != 42
+                || !(address.startsWith("hx") || address.startsWith("cx"))) {
+            throw new IllegalArgumentException("invalid address: " + address);
+        }
+        byte[] bytes = new byte[ADDRESS_SIZE];
+        bytes[0] = (byte) (address.charAt(0) == 'c' ? 1 : 0);
+        for (int i = 0; i < 20; i++) {
+            int hi = Character.digit(address.charAt(2 + 2 * i), 16);
+            int lo = Character.digit(address.charAt(3 + 2 * i), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("invalid address: " + address);
+            }
+            bytes[1 + i] = (byte) (hi << 4 | lo);
+        }
+        return bytes;
+    }
+
+    static String decodeAddress(ByteBuffer buffer, int offset) {
+        char[] chars = new char[42];
+        chars[0] = buffer.get(offset) == 1 ? 'c' : 'h';
+        chars[1] = 'x';
+        for (int i = 0; i < 20; i++) {
+            int b = buffer.get(offset + 1 + i) & 0xff;
+            chars[2 + 2 * i] = Character.forDigit(b >> 4, 16);
+            chars[3 + 2 * i] = Character.forDigit(b & 0xf, 16);
+        }
+        return new String(chars);
+    }
+
+    static boolean equalsAt(ByteBuffer buffer, int offset, byte[] address) {
+        for (int i = ADDRESS_SIZE - 1; i >= 0; i--) {
+            if (buffer.get(offset + i) != address[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.metrics;
+
+import foundation.icon.test.Log;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Named counters, gauges and latency histograms of the test client. A metric is identified by its
+ * name and label pairs, e.g. {@code counter("rpc_errors_total", "code", "-31002")}; look metrics
+ * up once and keep them on hot paths.
+ * <p>
+ * The global registry can be exported with system properties:
+ * <pre>
+ * metrics.csv          file appended with a snapshot of every metric each interval
+ * metrics.prometheus   file rewritten in Prometheus text format each interval and at exit
+ * metrics.interval     seconds between exports (default 10)
+ * </pre>
+ */
+public class MetricsRegistry {
+    private static final Log LOG = Log.getGlobal();
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final MetricsRegistry GLOBAL = createGlobal();
+
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService exporter;
+
+    public static MetricsRegistry getGlobal() {
+        return GLOBAL;
+    }
+
+    private static MetricsRegistry createGlobal() {
+        MetricsRegistry registry = new MetricsRegistry();
+        String csv = System.getProperty("metrics.csv");
+        String prometheus = System.getProperty("metrics.prometheus");
+        if (csv != null || prometheus != null) {
+            registry.startExport(csv == null ? null : Paths.get(csv),
+                    prometheus == null ? null : Paths.get(prometheus),
+                    Long.getLong("metrics.interval", 10));
+        }
+        return registry;
+    }
+
+    static String key(String name, String... labels) {
+        if (labels.length == 0) {
+            return name;
+        }
+        StringBuilder buf = new StringBuilder(name).append('{');
+        for (int i = 0; i + 1 < labels.length; i += 2) {
+            if (i > 0) {
+                buf.append(',');
+            }
+            buf.append(labels[i]).append("=\"").append(labels[i + 1].replace("\"", "\\\"")).append('"');
+        }
+        return buf.append('}').toString();
+    }
+
+    public LongAdder counter(String name, String... labels) {
+        return counters.computeIfAbsent(key(name, labels), k -> new LongAdder());
+    }
+
+    public void gauge(Supplier<? extends Number> value, String name, String... labels) {
+        gauges.put(key(name, labels), value);
+    }
+
+    public Histogram histogram(String name, String... labels) {
+        return histograms.computeIfAbsent(key(name, labels), k -> new Histogram());
+    }
+
+    /**
+     * Writes every metric in the Prometheus text exposition format. Histograms are written as
+     * summaries in seconds.
+     */
+    public void writePrometheus(Writer out) throws IOException {
+        Map<String, String> types = new TreeMap<>();
+        StringBuilder body = new StringBuilder();
+        new TreeMap<>(counters).forEach((key, counter) -> {
+            types.put(baseName(key), "counter");
+            body.append(key).append(' ').append(counter.sum()).append('\n');
+        });
+        new TreeMap<>(gauges).forEach((key, gauge) -> {
+            types.put(baseName(key), "gauge");
+            body.append(key).append(' ').append(gauge.get()).append('\n');
+        });
+        new TreeMap<>(histograms).forEach((key, h) -> {
+            String name = baseName(key);
+            types.put(name, "summary");
+            for (double q : QUANTILES) {
+                body.append(withLabel(key, "quantile", String.valueOf(q))).append(' ')
+                        .append(seconds(h.getQuantileMicros(q))).append('\n');
+            }
+            body.append(suffixed(key, "_sum")).append(' ').append(seconds(h.getSumMicros())).append('\n');
+            body.append(suffixed(key, "_count")).append(' ').append(h.getCount()).append('\n');
+        });
+        for (Map.Entry<String, String> type : types.entrySet()) {
+            out.write("# TYPE " + type.getKey() + " " + type.getValue() + "\n");
+        }
+        out.write(body.toString());
+        out.flush();
+    }
+
+    /**
+     * Appends one CSV row per metric: time, metric, count, and for histograms p50, p90, p99 and
+     * max in milliseconds.
+     */
+    public void writeCsv(Writer out, boolean header) throws IOException {
+        long now = System.currentTimeMillis();
+        StringBuilder buf = new StringBuilder();
+        if (header) {
+            buf.append("time,metric,count,p50_ms,p90_ms,p99_ms,max_ms\n");
+        }
+        new TreeMap<>(counters).forEach((key, c) -> buf.append(now).append(',').append(csvQuote(key)).append(',')
+                .append(c.sum()).append(",,,,\n"));
+        new TreeMap<>(gauges).forEach((key, g) -> buf.append(now).append(',').append(csvQuote(key)).append(',')
+                .append(g.get()).append(",,,,\n"));
+        new TreeMap<>(histograms).forEach((key, h) -> buf.append(now).append(',').append(csvQuote(key)).append(',')
+                .append(h.getCount()).append(',')
+                .append(millis(h.getQuantileMicros(0.5))).append(',')
+                .append(millis(h.getQuantileMicros(0.9))).append(',')
+                .append(millis(h.getQuantileMicros(0.99))).append(',')
+                .append(millis(h.getMaxMicros())).append('\n'));
+        out.write(buf.toString());
+        out.flush();
+    }
+
+    /**
+     * Exports to `csv` and `prometheus` (either may be null) every `intervalSeconds` and at exit.
+     */
+    public synchronized void startExport(Path csv, Path prometheus, long intervalSeconds) {
+        if (exporter != null) {
+            return;
+        }
+        exporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-export");
+            t.setDaemon(true);
+            return t;
+        });
+        Runnable export = () -> {
+            try {
+                if (csv != null) {
+                    boolean header = !Files.exists(csv);
+                    try (Writer out = Files.newBufferedWriter(csv, StandardCharsets.UTF_8,
+                            StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                        writeCsv(out, header);
+                    }
+                }
+                if (prometheus != null) {
+                    try (Writer out = Files.newBufferedWriter(prometheus, StandardCharsets.UTF_8)) {
+                        writePrometheus(out);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warning("metrics export failed: " + e);
+            }
+        };
+        exporter.scheduleAtFixedRate(export, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(export));
+    }
+
+    private static String baseName(String key) {
+        int brace = key.indexOf('{');
+        return brace < 0 ? key : key.substring(0, brace);
+    }
+
+    private static String suffixed(String key, String suffix) {
+        int brace = key.indexOf('{');
+        return brace < 0 ? key + suffix : key.substring(0, brace) + suffix + key.substring(brace);
+    }
+
+    private static String withLabel(String key, String label, String value) {
+        String pair = label + "=\"" + value + "\"";
+        return key.endsWith("}") ? key.substring(0, key.length() - 1) + "," + pair + "}" : key + "{" + pair + "}";
+    }
+
+    private static String csvQuote(String s) {
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String seconds(long micros) {
+        return String.valueOf(micros / 1e6);
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1e3);
+    }
+}
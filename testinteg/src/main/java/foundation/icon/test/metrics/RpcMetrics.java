@@ -0,0 +1,122 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.metrics;
+
+import foundation.icon.icx.data.Bytes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Client-side timings of the JSON-RPC methods used by the tests, so a slow run can be told apart
+ * between the node (time to finalize, pending polls), the network (request latency) and the
+ * client. Latencies are kept in the histogram {@code rpc_latency} labelled by method, RPC errors in
+ * {@code rpc_errors_total} labelled by method and code, and the time from sending a transaction to
+ * reading its result in {@code tx_finalize_latency}. Transactions sent while too many others are
+ * still waiting for their result are not timed and counted in {@code tx_untimed_total}.
+ */
+public class RpcMetrics {
+    public static final String SEND_TRANSACTION = "icx_sendTransaction";
+    public static final String ESTIMATE_STEP = "debug_estimateStep";
+    public static final String CALL = "icx_call";
+    public static final String GET_RESULT = "icx_getTransactionResult";
+    // transactions that were sent but never polled must not grow the map forever
+    private static final int MAX_IN_FLIGHT = 100_000;
+
+    private static final RpcMetrics GLOBAL = new RpcMetrics(MetricsRegistry.getGlobal());
+
+    private final MetricsRegistry registry;
+    private final Histogram sendLatency;
+    private final Histogram estimateLatency;
+    private final Histogram callLatency;
+    private final Histogram pollLatency;
+    private final Histogram finalizeLatency;
+    private final Map<Bytes, Long> sentAt = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final LongAdder untimed;
+
+    public RpcMetrics(MetricsRegistry registry) {
+        this(registry, MAX_IN_FLIGHT);
+    }
+
+    RpcMetrics(MetricsRegistry registry, int maxInFlight) {
+        this.registry = registry;
+        this.maxInFlight = maxInFlight;
+        sendLatency = latency(SEND_TRANSACTION);
+        estimateLatency = latency(ESTIMATE_STEP);
+        callLatency = latency(CALL);
+        pollLatency = latency(GET_RESULT);
+        finalizeLatency = registry.histogram("tx_finalize_latency");
+        registry.gauge(sentAt::size, "tx_in_flight");
+        untimed = registry.counter("tx_untimed_total");
+    }
+
+    public static RpcMetrics getGlobal() {
+        return GLOBAL;
+    }
+
+    public Histogram latency(String method) {
+        return registry.histogram("rpc_latency", "method", method);
+    }
+
+    public Histogram sendLatency() {
+        return sendLatency;
+    }
+
+    public Histogram estimateLatency() {
+        return estimateLatency;
+    }
+
+    public Histogram callLatency() {
+        return callLatency;
+    }
+
+    public Histogram pollLatency() {
+        return pollLatency;
+    }
+
+    public Histogram finalizeLatency() {
+        return finalizeLatency;
+    }
+
+    public void error(String method, long code) {
+        registry.counter("rpc_errors_total", "method", method, "code", String.valueOf(code)).increment();
+    }
+
+    /**
+     * Marks `txHash` as sent at `startNanos`, the {@link System#nanoTime()} before the request.
+     * While the map is full the transaction is only counted, the ones in flight keep their times.
+     */
+    public void sent(Bytes txHash, long startNanos) {
+        if (sentAt.size() >= maxInFlight) {
+            untimed.increment();
+            return;
+        }
+        sentAt.put(txHash, startNanos);
+    }
+
+    /**
+     * Records the time to finalize of `txHash` if it was sent through {@link #sent}.
+     */
+    public void finalized(Bytes txHash) {
+        Long start = sentAt.remove(txHash);
+        if (start != null) {
+            finalizeLatency.recordSince(start);
+        }
+    }
+}
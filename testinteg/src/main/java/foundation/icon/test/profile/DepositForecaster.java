@@ -0,0 +1,266 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import foundation.icon.icx.KeyWallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.test.Constants;
+import foundation.icon.test.Env;
+import foundation.icon.test.Log;
+import foundation.icon.test.TransactionHandler;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.util.Hex;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Forecasts how fast fee sharing drains the StableCoin deposit and plans top-ups.
+ *
+ * <pre>
+ * DepositForecaster --fixture recent.json --deposit 20000 [--limit 50]
+ * DepositForecaster --url http://localhost:9082/api/v3 --score cx... --recent 43120 [--execute --keystore f --password p]
+ * DepositForecaster --simulate traffic.json --initial-deposit 20000
+ * </pre>
+ */
+public class DepositForecaster {
+    private static final Log LOG = Log.getGlobal();
+    // same as AbstractStableCoin.TERM_LENGTH
+    public static final long TERM_LENGTH = 43120;
+    // only transfer calls are sponsored by the contract
+    public static final String SPONSORED_METHOD = "transfer";
+    private static final BigDecimal ICX = new BigDecimal(BigInteger.TEN.pow(18));
+
+    private final List<TxRecord> records;
+
+    public DepositForecaster(List<TxRecord> records) {
+        this.records = new ArrayList<>(records);
+        this.records.sort(Comparator.comparingLong(r -> r.height));
+    }
+
+    public long windowBlocks() {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        return records.get(records.size() - 1).height - records.get(0).height + 1;
+    }
+
+    /**
+     * @return contract-paid fee per block observed over the records, in loop
+     */
+    public BigDecimal observedBurnPerBlock() {
+        long window = windowBlocks();
+        if (window == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigInteger total = BigInteger.ZERO;
+        for (TxRecord r : records) {
+            total = total.add(r.scoreFee());
+        }
+        return new BigDecimal(total).divide(BigDecimal.valueOf(window), MathContext.DECIMAL64);
+    }
+
+    /**
+     * Projects the burn rate if each sender could have at most `limit` sponsored transfers per term.
+     * Demand is every transfer a sender made, sponsored or not, scaled to one term;
+     * the cost of a sponsored transfer is the observed average.
+     *
+     * @return contract-paid fee per block, in loop
+     */
+    public BigDecimal projectedBurnPerBlock(long limit) {
+        long window = windowBlocks();
+        if (window == 0) {
+            return BigDecimal.ZERO;
+        }
+        Map<String, Long> demand = new HashMap<>();
+        BigInteger sponsoredFee = BigInteger.ZERO;
+        long sponsored = 0;
+        for (TxRecord r : records) {
+            if (!SPONSORED_METHOD.equals(r.method)) {
+                continue;
+            }
+            demand.merge(r.from, 1L, Long::sum);
+            if (r.isSponsored()) {
+                sponsored++;
+                sponsoredFee = sponsoredFee.add(r.scoreFee());
+            }
+        }
+        if (sponsored == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal avgCost = new BigDecimal(sponsoredFee).divide(BigDecimal.valueOf(sponsored), MathContext.DECIMAL64);
+        double scale = (double) TERM_LENGTH / window;
+        double perTerm = 0;
+        for (long count : demand.values()) {
+            perTerm += Math.min(count * scale, limit);
+        }
+        return avgCost.multiply(BigDecimal.valueOf(perTerm))
+                .divide(BigDecimal.valueOf(TERM_LENGTH), MathContext.DECIMAL64);
+    }
+
+    public static long blocksToEmpty(BigInteger deposit, BigDecimal burnPerBlock) {
+        if (burnPerBlock.signum() <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return new BigDecimal(deposit).divide(burnPerBlock, MathContext.DECIMAL64).longValue();
+    }
+
+    public static class SimulationResult {
+        public int topUps;
+        public BigInteger deposited = BigInteger.ZERO;
+        public BigInteger minDeposit;
+        public int unsponsored;
+        public long firstDrainHeight = -1;
+
+        @Override
+        public String toString() {
+            return "topUps=" + topUps
+                    + ", deposited=" + StepProfiler.toIcx(deposited) + " ICX"
+                    + ", minDeposit=" + StepProfiler.toIcx(minDeposit) + " ICX"
+                    + ", unsponsored=" + unsponsored
+                    + (firstDrainHeight < 0 ? "" : ", firstDrainHeight=" + firstDrainHeight);
+        }
+    }
+
+    /**
+     * Replays the records against a deposit, topping up by `policy` whenever the deposit falls below the reserve.
+     * The burn rate is estimated from the trailing term of traffic, as a live planner would see it.
+     */
+    public SimulationResult simulate(BigInteger initialDeposit, TopUpPlan.Policy policy) {
+        SimulationResult result = new SimulationResult();
+        BigInteger deposit = initialDeposit;
+        result.minDeposit = deposit;
+        ArrayDeque<TxRecord> window = new ArrayDeque<>();
+        BigInteger windowFee = BigInteger.ZERO;
+        long start = records.isEmpty() ? 0 : records.get(0).height;
+
+        for (TxRecord r : records) {
+            while (!window.isEmpty() && window.peekFirst().height <= r.height - TERM_LENGTH) {
+                windowFee = windowFee.subtract(window.pollFirst().scoreFee());
+            }
+            long elapsed = Math.max(1, Math.min(TERM_LENGTH, r.height - start + 1));
+            BigDecimal burn = new BigDecimal(windowFee).divide(BigDecimal.valueOf(elapsed), MathContext.DECIMAL64);
+            if (burn.signum() > 0 && deposit.compareTo(policy.reserve(burn)) < 0) {
+                for (BigInteger amount : policy.batch(burn)) {
+                    deposit = deposit.add(amount);
+                    result.deposited = result.deposited.add(amount);
+                    result.topUps++;
+                }
+            }
+
+            BigInteger fee = r.scoreFee();
+            if (fee.compareTo(deposit) > 0) {
+                // the contract could not have paid; the sender pays instead
+                result.unsponsored++;
+                if (result.firstDrainHeight < 0) {
+                    result.firstDrainHeight = r.height;
+                }
+            } else {
+                deposit = deposit.subtract(fee);
+            }
+            // unsponsored transfers still count as demand for the rate estimate
+            window.addLast(r);
+            windowFee = windowFee.add(fee);
+            result.minDeposit = result.minDeposit.min(deposit);
+        }
+        return result;
+    }
+
+    static BigInteger icx(String value) {
+        return new BigDecimal(value).multiply(ICX).toBigIntegerExact();
+    }
+
+    static BigInteger availableDeposit(JsonRpcClient client, String score) throws java.io.IOException {
+        JsonNode status = client.call(Constants.ZERO_ADDRESS.toString(), "getScoreStatus",
+                client.newParams().put("address", score));
+        JsonNode info = status.path("depositInfo");
+        return Hex.toBigInteger(info.path("availableDeposit").asText("0x0"));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StepProfiler.parseArgs(args);
+        long blocksPerDay = (long) (86400 / Double.parseDouble(options.getOrDefault("block-time", "2")));
+        TopUpPlan.Policy policy = new TopUpPlan.Policy(
+                (long) (Double.parseDouble(options.getOrDefault("reserve-days", "3")) * blocksPerDay),
+                (long) (Double.parseDouble(options.getOrDefault("cover-days", "14")) * blocksPerDay),
+                (long) (Double.parseDouble(options.getOrDefault("horizon-days", "60")) * blocksPerDay),
+                icx(options.getOrDefault("min-deposit", "5000")),
+                icx(options.getOrDefault("max-deposit", "100000")));
+
+        if (options.containsKey("simulate")) {
+            TxFixture traffic = TxFixture.load(Path.of(options.get("simulate")));
+            String score = options.getOrDefault("score", traffic.firstDestination());
+            DepositForecaster forecaster = new DepositForecaster(traffic.toRecords(score));
+            BigInteger initial = icx(options.getOrDefault("initial-deposit", "0"));
+            LOG.info("simulation: " + forecaster.simulate(initial, policy));
+            return;
+        }
+
+        JsonRpcClient client = options.containsKey("url") ? new JsonRpcClient(options.get("url")) : null;
+        if (client != null && options.containsKey("recent")) {
+            long last = Hex.toLong(client.getLastBlock().path("height").asText());
+            options.put("from", String.valueOf(last - Long.parseLong(options.get("recent")) + 1));
+            options.put("to", String.valueOf(last));
+        }
+        TxFixture fixture = StepProfiler.loadFixture(options);
+        String score = options.getOrDefault("score", fixture.firstDestination());
+        DepositForecaster forecaster = new DepositForecaster(fixture.toRecords(score));
+
+        BigInteger deposit;
+        if (options.containsKey("deposit")) {
+            deposit = icx(options.get("deposit"));
+        } else if (client != null) {
+            deposit = availableDeposit(client, score);
+        } else {
+            throw new IllegalArgumentException("--deposit is required without --url");
+        }
+        BigDecimal burn = options.containsKey("limit")
+                ? forecaster.projectedBurnPerBlock(Long.parseLong(options.get("limit")))
+                : forecaster.observedBurnPerBlock();
+        long blocks = blocksToEmpty(deposit, burn);
+        LOG.info("deposit=" + StepProfiler.toIcx(deposit) + " ICX, burn/day="
+                + burn.multiply(BigDecimal.valueOf(blocksPerDay)).divide(ICX, MathContext.DECIMAL64) + " ICX");
+        LOG.info(blocks == Long.MAX_VALUE ? "deposit is not being consumed"
+                : "time to empty: " + blocks + " blocks (" + String.format("%.1f", (double) blocks / blocksPerDay) + " days)");
+
+        long height = forecaster.records.isEmpty() ? 0 : forecaster.records.get(forecaster.records.size() - 1).height;
+        TopUpPlan plan = TopUpPlan.create(deposit, height, burn, policy);
+        for (TopUpPlan.TopUp topUp : plan.getTopUps()) {
+            LOG.info(topUp.toString());
+        }
+
+        if (options.containsKey("execute")) {
+            Env.Chain chain = Env.getDefaultChain();
+            TransactionHandler txHandler = new TransactionHandler(chain.newIconService(), chain);
+            KeyWallet wallet = KeyWallet.load(options.get("password"), new File(options.get("keystore")));
+            for (Bytes txHash : plan.execute(txHandler, wallet, new Address(score), height)) {
+                LOG.info("deposit " + txHash + ": status=" + txHandler.getResult(txHash).getStatus());
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import foundation.icon.test.rpc.JsonRpcClient;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Aggregates {@code stepUsed}, fees and the fee-sharing split of StableCoin transactions
+ * by method, by event type and by day.
+ *
+ * <pre>
+ * StepProfiler --fixture conf/fixtures/stablecoin-tx.json [--score cx...] [--csv]
+ * StepProfiler --url http://localhost:9082/api/v3 --score cx... --from 100 --to 200 [--record out.json]
+ * StepProfiler --url http://localhost:9082/api/v3 --score cx... --hashes 0x...,0x...
+ * </pre>
+ */
+public class StepProfiler {
+    private static final BigDecimal ICX = new BigDecimal(BigInteger.TEN.pow(18));
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private final Map<String, StepStats> byMethod = new TreeMap<>();
+    private final Map<String, StepStats> byEvent = new TreeMap<>();
+    private final Map<LocalDate, Map<String, StepStats>> byDay = new TreeMap<>();
+    private final StepStats total = new StepStats();
+
+    public void add(TxRecord record) {
+        total.add(record);
+        byMethod.computeIfAbsent(record.method, k -> new StepStats()).add(record);
+        for (String event : record.events) {
+            byEvent.computeIfAbsent(event, k -> new StepStats()).add(record);
+        }
+        byDay.computeIfAbsent(record.day(), k -> new TreeMap<>())
+                .computeIfAbsent(record.method, k -> new StepStats()).add(record);
+    }
+
+    public void addAll(List<TxRecord> records) {
+        for (TxRecord record : records) {
+            add(record);
+        }
+    }
+
+    public StepStats getTotal() {
+        return total;
+    }
+
+    public Map<String, StepStats> getByMethod() {
+        return byMethod;
+    }
+
+    public Map<LocalDate, Map<String, StepStats>> getByDay() {
+        return byDay;
+    }
+
+    public void printText(PrintStream out) {
+        String header = String.format("%-28s %8s %8s %8s %8s %10s %14s %18s %18s",
+                "", "count", "fail", "p50", "p90", "p99", "steps", "fee(ICX)", "scorePaid(ICX)");
+        out.println("== by method ==");
+        out.println(header);
+        byMethod.forEach((method, stats) -> out.println(textRow(method, stats)));
+        out.println(textRow("TOTAL", total));
+        out.println();
+        out.println("== by event ==");
+        out.println(header);
+        byEvent.forEach((event, stats) -> out.println(textRow(event, stats)));
+        for (Map.Entry<LocalDate, Map<String, StepStats>> day : byDay.entrySet()) {
+            out.println();
+            out.println("== " + day.getKey() + " ==");
+            out.println(header);
+            day.getValue().forEach((method, stats) -> out.println(textRow(method, stats)));
+        }
+    }
+
+    public void printCsv(PrintStream out) {
+        out.println("scope,key,method,count,failures,p50,p90,p99,max,total_steps,total_fee,score_fee");
+        byMethod.forEach((method, stats) -> out.println(csvRow("method", "", method, stats)));
+        byEvent.forEach((event, stats) -> out.println(csvRow("event", "", event, stats)));
+        byDay.forEach((day, methods) ->
+                methods.forEach((method, stats) -> out.println(csvRow("day", day.toString(), method, stats))));
+        out.println(csvRow("total", "", "", total));
+    }
+
+    private static String textRow(String key, StepStats stats) {
+        return String.format("%-28s %8d %8d %8d %8d %10d %14s %18s %18s",
+                key, stats.getCount(), stats.getFailures(),
+                stats.percentile(PERCENTILES[0]), stats.percentile(PERCENTILES[1]), stats.percentile(PERCENTILES[2]),
+                stats.getTotalSteps(), toIcx(stats.getTotalFee()), toIcx(stats.getScoreFee()));
+    }
+
+    private static String csvRow(String scope, String key, String name, StepStats stats) {
+        return String.join(",", scope, key, name,
+                String.valueOf(stats.getCount()), String.valueOf(stats.getFailures()),
+                String.valueOf(stats.percentile(50)), String.valueOf(stats.percentile(90)),
+                String.valueOf(stats.percentile(99)), String.valueOf(stats.percentile(100)),
+                stats.getTotalSteps().toString(), stats.getTotalFee().toString(), stats.getScoreFee().toString());
+    }
+
+    static String toIcx(BigInteger loop) {
+        return new BigDecimal(loop).divide(ICX).stripTrailingZeros().toPlainString();
+    }
+
+    public static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            }
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                options.put(key, args[++i]);
+            } else {
+                options.put(key, "true");
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Loads a fixture, or fetches one from a node when {@code --url} is given.
+     */
+    static TxFixture loadFixture(Map<String, String> options) throws IOException {
+        TxFixture fixture;
+        if (options.containsKey("fixture")) {
+            fixture = TxFixture.load(Path.of(options.get("fixture")));
+        } else if (options.containsKey("url")) {
+            JsonRpcClient client = new JsonRpcClient(options.get("url"));
+            if (options.containsKey("hashes")) {
+                fixture = TxFixture.fetchByHashes(client, Arrays.asList(options.get("hashes").split(",")));
+            } else {
+                String score = options.get("score");
+                if (score == null || !options.containsKey("from") || !options.containsKey("to")) {
+                    throw new IllegalArgumentException("--score, --from and --to are required for a block range");
+                }
+                fixture = TxFixture.fetchByBlocks(client, score,
+                        Long.parseLong(options.get("from")), Long.parseLong(options.get("to")));
+            }
+            if (options.containsKey("record")) {
+                fixture.save(Path.of(options.get("record")));
+            }
+        } else {
+            throw new IllegalArgumentException("Either --fixture or --url is required");
+        }
+        return fixture;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = parseArgs(args);
+        TxFixture fixture = loadFixture(options);
+        String score = options.getOrDefault("score", fixture.firstDestination());
+        if (score == null) {
+            throw new IllegalArgumentException("No transactions found");
+        }
+
+        StepProfiler profiler = new StepProfiler();
+        profiler.addAll(fixture.toRecords(score));
+        if (options.containsKey("csv")) {
+            profiler.printCsv(System.out);
+        } else {
+            profiler.printText(System.out);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * Step usage aggregated over a group of transactions.
+ */
+public class StepStats {
+    private long[] steps = new long[16];
+    private int count;
+    private int failures;
+    private BigInteger totalSteps = BigInteger.ZERO;
+    private BigInteger totalFee = BigInteger.ZERO;
+    private BigInteger scoreFee = BigInteger.ZERO;
+    private boolean sorted = true;
+
+    public void add(TxRecord record) {
+        if (count == steps.length) {
+            steps = Arrays.copyOf(steps, count * 2);
+        }
+        steps[count++] = record.stepUsed.longValue();
+        sorted = false;
+        if (!record.success) {
+            failures++;
+        }
+        totalSteps = totalSteps.add(record.stepUsed);
+        totalFee = totalFee.add(record.fee());
+        scoreFee = scoreFee.add(record.scoreFee());
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getFailures() {
+        return failures;
+    }
+
+    public BigInteger getTotalSteps() {
+        return totalSteps;
+    }
+
+    public BigInteger getTotalFee() {
+        return totalFee;
+    }
+
+    /**
+     * @return the part of {@link #getTotalFee()} paid by the contract through fee sharing
+     */
+    public BigInteger getScoreFee() {
+        return scoreFee;
+    }
+
+    /**
+     * @param p percentile in (0, 100]
+     * @return nearest-rank percentile of steps used
+     */
+    public long percentile(double p) {
+        if (count == 0) {
+            return 0;
+        }
+        if (!sorted) {
+            Arrays.sort(steps, 0, count);
+            sorted = true;
+        }
+        int rank = (int) Math.ceil(p / 100 * count);
+        return steps[Math.max(0, Math.min(count, rank) - 1)];
+    }
+}
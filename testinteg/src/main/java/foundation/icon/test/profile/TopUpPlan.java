@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.test.TransactionHandler;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Schedule of fee-sharing deposits that keeps the contract's deposit above a reserve.
+ */
+public class TopUpPlan {
+    public static class Policy {
+        public long reserveBlocks;
+        public long coverBlocks;
+        public long horizonBlocks;
+        public BigInteger minDeposit;
+        public BigInteger maxDeposit;
+
+        public Policy(long reserveBlocks, long coverBlocks, long horizonBlocks,
+                      BigInteger minDeposit, BigInteger maxDeposit) {
+            if (maxDeposit.signum() <= 0) {
+                throw new IllegalArgumentException("maxDeposit must be positive");
+            }
+            if (minDeposit.compareTo(maxDeposit) > 0) {
+                throw new IllegalArgumentException("minDeposit is larger than maxDeposit");
+            }
+            this.reserveBlocks = reserveBlocks;
+            this.coverBlocks = coverBlocks;
+            this.horizonBlocks = horizonBlocks;
+            this.minDeposit = minDeposit;
+            this.maxDeposit = maxDeposit;
+        }
+
+        public BigInteger reserve(BigDecimal burnPerBlock) {
+            return burnPerBlock.multiply(BigDecimal.valueOf(reserveBlocks)).setScale(0, RoundingMode.CEILING)
+                    .toBigInteger();
+        }
+
+        /**
+         * Splits the amount needed to cover {@code coverBlocks} into deposits within [minDeposit, maxDeposit].
+         */
+        public List<BigInteger> batch(BigDecimal burnPerBlock) {
+            BigInteger need = burnPerBlock.multiply(BigDecimal.valueOf(coverBlocks))
+                    .setScale(0, RoundingMode.CEILING).toBigInteger().max(minDeposit);
+            List<BigInteger> deposits = new ArrayList<>();
+            while (need.signum() > 0) {
+                BigInteger amount = need.min(maxDeposit).max(minDeposit);
+                deposits.add(amount);
+                need = need.subtract(amount);
+            }
+            return deposits;
+        }
+    }
+
+    public static class TopUp {
+        public final long height;
+        public final BigInteger amount;
+
+        public TopUp(long height, BigInteger amount) {
+            this.height = height;
+            this.amount = amount;
+        }
+
+        @Override
+        public String toString() {
+            return "TopUp(height=" + height + ", amount=" + StepProfiler.toIcx(amount) + " ICX)";
+        }
+    }
+
+    private final List<TopUp> topUps;
+
+    private TopUpPlan(List<TopUp> topUps) {
+        this.topUps = Collections.unmodifiableList(topUps);
+    }
+
+    /**
+     * Plans top-ups from `currentHeight` to the end of the policy horizon. Each top-up is scheduled
+     * at the height where the deposit is projected to reach the reserve.
+     */
+    public static TopUpPlan create(BigInteger deposit, long currentHeight, BigDecimal burnPerBlock, Policy policy) {
+        List<TopUp> topUps = new ArrayList<>();
+        if (burnPerBlock.signum() <= 0) {
+            return new TopUpPlan(topUps);
+        }
+        BigInteger reserve = policy.reserve(burnPerBlock);
+        List<BigInteger> batch = policy.batch(burnPerBlock);
+        if (batch.isEmpty()) {
+            return new TopUpPlan(topUps);
+        }
+        long end = currentHeight + policy.horizonBlocks;
+        long height = currentHeight;
+        BigDecimal balance = new BigDecimal(deposit);
+        while (true) {
+            BigDecimal spendable = balance.subtract(new BigDecimal(reserve));
+            long blocks = spendable.signum() <= 0 ? 0
+                    : spendable.divide(burnPerBlock, 0, RoundingMode.FLOOR).longValue();
+            height += blocks;
+            if (height > end) {
+                break;
+            }
+            balance = balance.subtract(burnPerBlock.multiply(BigDecimal.valueOf(blocks)));
+            // batches smaller than the reserve are repeated, so that the next top-up is at least a block later
+            BigDecimal target = new BigDecimal(reserve).add(burnPerBlock);
+            do {
+                for (BigInteger amount : batch) {
+                    topUps.add(new TopUp(height, amount));
+                    balance = balance.add(new BigDecimal(amount));
+                }
+            } while (balance.compareTo(target) < 0);
+        }
+        return new TopUpPlan(topUps);
+    }
+
+    public List<TopUp> getTopUps() {
+        return topUps;
+    }
+
+    public List<TopUp> due(long height) {
+        List<TopUp> due = new ArrayList<>();
+        for (TopUp topUp : topUps) {
+            if (topUp.height <= height) {
+                due.add(topUp);
+            }
+        }
+        return due;
+    }
+
+    /**
+     * Sends every top-up due at `height` as a fee-sharing deposit to `score`.
+     *
+     * @return hashes of the deposit transactions
+     */
+    public List<Bytes> execute(TransactionHandler txHandler, Wallet wallet, Address score, long height)
+            throws IOException {
+        List<Bytes> hashes = new ArrayList<>();
+        for (TopUp topUp : due(height)) {
+            hashes.add(txHandler.depositICX(wallet, score, topUp.amount, null));
+        }
+        return hashes;
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.test.Log;
+import foundation.icon.test.rpc.JsonRpcClient;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Recorded transactions and their results, stored as a JSON array of
+ * {@code {"transaction": {...}, "result": {...}}} entries exactly as the node returned them.
+ */
+public class TxFixture {
+    private static final Log LOG = Log.getGlobal();
+    private final ArrayNode entries;
+
+    public TxFixture(ArrayNode entries) {
+        this.entries = entries;
+    }
+
+    public static TxFixture load(Path file) throws IOException {
+        JsonNode root = MAPPER.readTree(file.toFile());
+        if (!root.isArray()) {
+            throw new IOException("Fixture must be a JSON array: " + file);
+        }
+        return new TxFixture((ArrayNode) root);
+    }
+
+    public void save(Path file) throws IOException {
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file.toFile(), entries);
+    }
+
+    public static TxFixture fetchByHashes(JsonRpcClient client, List<String> txHashes) throws IOException {
+        ArrayNode entries = MAPPER.createArrayNode();
+        for (String txHash : txHashes) {
+            entries.add(entry(client.getTransactionByHash(txHash), client.getTransactionResult(txHash)));
+        }
+        return new TxFixture(entries);
+    }
+
+    /**
+     * Fetches every transaction sent to `scoreAddress` in blocks `from` to `to`, both inclusive.
+     */
+    public static TxFixture fetchByBlocks(JsonRpcClient client, String scoreAddress, long from, long to)
+            throws IOException {
+        ArrayNode entries = MAPPER.createArrayNode();
+        for (long height = from; height <= to; height++) {
+            JsonNode block = client.getBlockByHeight(height);
+            for (JsonNode tx : block.path("confirmed_transaction_list")) {
+                if (scoreAddress.equals(tx.path("to").asText())) {
+                    entries.add(entry(tx, client.getTransactionResult(tx.path("txHash").asText())));
+                }
+            }
+            if ((height - from) % 1000 == 999) {
+                LOG.info("fetched blocks up to " + height + ", " + entries.size() + " transactions");
+            }
+        }
+        return new TxFixture(entries);
+    }
+
+    private static ObjectNode entry(JsonNode tx, JsonNode result) {
+        ObjectNode entry = MAPPER.createObjectNode();
+        entry.set("transaction", tx);
+        entry.set("result", result);
+        return entry;
+    }
+
+    /**
+     * @return the destination of the first recorded transaction, or null if there is none
+     */
+    public String firstDestination() {
+        return entries.size() == 0 ? null : entries.get(0).path("transaction").path("to").asText(null);
+    }
+
+    /**
+     * @return the recorded transaction results, as the node returned them
+     */
+    public List<JsonNode> getResults() {
+        List<JsonNode> results = new ArrayList<>(entries.size());
+        for (JsonNode entry : entries) {
+            results.add(entry.path("result"));
+        }
+        return results;
+    }
+
+    public List<TxRecord> toRecords(String scoreAddress) {
+        List<TxRecord> records = new ArrayList<>(entries.size());
+        for (JsonNode entry : entries) {
+            records.add(TxRecord.fromJson(entry.path("transaction"), entry.path("result"), scoreAddress));
+        }
+        return records;
+    }
+}
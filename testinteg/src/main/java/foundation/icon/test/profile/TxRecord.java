@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import foundation.icon.test.Constants;
+import foundation.icon.test.util.Hex;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Step usage of one transaction, taken from its {@code icx_getTransactionByHash} and
+ * {@code icx_getTransactionResult} responses.
+ */
+public class TxRecord {
+    public final String txHash;
+    public final String from;
+    public final long height;
+    public final long timestamp;
+    public final String method;
+    public final boolean success;
+    public final BigInteger stepUsed;
+    public final BigInteger stepPrice;
+    public final BigInteger scoreSteps;
+    public final List<String> events;
+
+    public TxRecord(String txHash, String from, long height, long timestamp, String method, boolean success,
+                    BigInteger stepUsed, BigInteger stepPrice, BigInteger scoreSteps, List<String> events) {
+        this.txHash = txHash;
+        this.from = from;
+        this.height = height;
+        this.timestamp = timestamp;
+        this.method = method;
+        this.success = success;
+        this.stepUsed = stepUsed;
+        this.stepPrice = stepPrice;
+        this.scoreSteps = scoreSteps;
+        this.events = events;
+    }
+
+    /**
+     * @param tx           the transaction, as returned by {@code icx_getTransactionByHash} or in a block
+     * @param result       the transaction result
+     * @param scoreAddress the contract whose events and fee sharing are counted
+     */
+    public static TxRecord fromJson(JsonNode tx, JsonNode result, String scoreAddress) {
+        String method = "transfer".equals(tx.path("dataType").asText()) ? "(icx)" : "(unknown)";
+        JsonNode data = tx.path("data");
+        if ("call".equals(tx.path("dataType").asText()) && data.has("method")) {
+            method = data.get("method").asText();
+        } else if ("deploy".equals(tx.path("dataType").asText())) {
+            method = "(deploy)";
+        }
+
+        // stepUsedDetails is only present when someone other than the sender paid
+        BigInteger scoreSteps = BigInteger.ZERO;
+        JsonNode details = result.path("stepUsedDetails");
+        if (details.has(scoreAddress)) {
+            scoreSteps = Hex.toBigInteger(details.get(scoreAddress).asText());
+        }
+
+        List<String> events = new ArrayList<>();
+        for (JsonNode log : result.path("eventLogs")) {
+            if (scoreAddress.equals(log.path("scoreAddress").asText())) {
+                String signature = log.path("indexed").path(0).asText();
+                int paren = signature.indexOf('(');
+                events.add(paren < 0 ? signature : signature.substring(0, paren));
+            }
+        }
+
+        return new TxRecord(
+                result.path("txHash").asText(tx.path("txHash").asText()),
+                tx.path("from").asText(),
+                Hex.toLong(result.path("blockHeight").asText("0x0")),
+                Hex.toLong(tx.path("timestamp").asText("0x0")),
+                method,
+                Constants.STATUS_SUCCESS.equals(Hex.toBigInteger(result.path("status").asText("0x0"))),
+                Hex.toBigInteger(result.path("stepUsed").asText("0x0")),
+                Hex.toBigInteger(result.path("stepPrice").asText("0x0")),
+                scoreSteps,
+                Collections.unmodifiableList(events));
+    }
+
+    public BigInteger fee() {
+        return stepUsed.multiply(stepPrice);
+    }
+
+    public boolean isSponsored() {
+        return scoreSteps.signum() > 0;
+    }
+
+    public BigInteger scoreFee() {
+        return scoreSteps.multiply(stepPrice);
+    }
+
+    public LocalDate day() {
+        return Instant.ofEpochMilli(timestamp / 1000).atZone(ZoneOffset.UTC).toLocalDate();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Collects readonly requests and sends them as JSON-RPC 2.0 batches, completing each request's
+ * future from the response entry with the same id. If the node rejects a batch, with an HTTP 4xx,
+ * an invalid request error or any response that is not an array, the pending requests are sent one
+ * by one and later flushes skip batching. Other failures only fail the futures of the batch.
+ * <pre>
+ * BatchCall batch = new BatchCall(client);
+ * CompletableFuture&lt;JsonNode&gt; balance = batch.call(token, "balanceOf", params);
+ * batch.flush();
+ * </pre>
+ */
+public class BatchCall {
+    public static final int DEFAULT_MAX_SIZE = 100;
+    private static final int INVALID_REQUEST = -32600;
+
+    private final JsonRpcClient client;
+    private final int maxSize;
+    private final List<Pending> pending = new ArrayList<>();
+    private volatile boolean batchSupported = true;
+
+    private static class Pending {
+        final ObjectNode request;
+        final CompletableFuture<JsonNode> future = new CompletableFuture<>();
+
+        Pending(ObjectNode request) {
+            this.request = request;
+        }
+    }
+
+    public BatchCall(JsonRpcClient client, int maxSize) {
+        this.client = client;
+        this.maxSize = maxSize;
+    }
+
+    public BatchCall(JsonRpcClient client) {
+        this(client, DEFAULT_MAX_SIZE);
+    }
+
+    /**
+     * Queues {@code icx_call} to the readonly method `method` of `to`.
+     */
+    public CompletableFuture<JsonNode> call(String to, String method, JsonNode params) {
+        return add("icx_call", client.newCallParams(to, method, params));
+    }
+
+    public synchronized CompletableFuture<JsonNode> add(String method, JsonNode params) {
+        Pending p = new Pending(client.newRequest(method, params));
+        pending.add(p);
+        return p.future;
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    public boolean isBatchSupported() {
+        return batchSupported;
+    }
+
+    /**
+     * Sends the queued requests, at most `maxSize` per HTTP request, and completes their futures.
+     * Transport failures complete the affected futures exceptionally rather than being thrown.
+     */
+    public void flush() {
+        List<Pending> requests;
+        synchronized (this) {
+            requests = new ArrayList<>(pending);
+            pending.clear();
+        }
+        for (int i = 0; i < requests.size(); i += maxSize) {
+            List<Pending> chunk = requests.subList(i, Math.min(i + maxSize, requests.size()));
+            if (batchSupported && chunk.size() > 1) {
+                sendBatch(chunk);
+            } else {
+                chunk.forEach(this::sendOne);
+            }
+        }
+    }
+
+    private void sendBatch(List<Pending> chunk) {
+        ArrayNode body = JsonRpcClient.MAPPER.createArrayNode();
+        Map<Long, Pending> byId = new HashMap<>();
+        for (Pending p : chunk) {
+            body.add(p.request);
+            byId.put(p.request.get("id").asLong(), p);
+        }
+        JsonNode response;
+        try {
+            response = client.post(body);
+        } catch (HttpStatusException e) {
+            if (!e.isClientError()) {
+                fail(chunk, e);
+                return;
+            }
+            // some nodes answer a batch with an HTTP error instead of a JSON-RPC error
+            response = null;
+        } catch (IOException e) {
+            fail(chunk, e);
+            return;
+        }
+        if (isRejected(response)) {
+            batchSupported = false;
+            chunk.forEach(this::sendOne);
+            return;
+        }
+        for (JsonNode entry : response) {
+            Pending p = byId.remove(entry.path("id").asLong());
+            if (p != null) {
+                complete(p, entry);
+            }
+        }
+        for (Pending p : byId.values()) {
+            p.future.completeExceptionally(new IOException("No response for request " + p.request.get("id")));
+        }
+    }
+
+    private static boolean isRejected(JsonNode response) {
+        if (response == null || !response.isArray()) {
+            return true;
+        }
+        // an array holding one error without an id answers the batch as a whole
+        if (response.size() == 1) {
+            JsonNode entry = response.get(0);
+            return !entry.hasNonNull("id") && entry.path("error").path("code").asLong() == INVALID_REQUEST;
+        }
+        return false;
+    }
+
+    private static void fail(List<Pending> chunk, IOException e) {
+        for (Pending p : chunk) {
+            p.future.completeExceptionally(e);
+        }
+    }
+
+    private void sendOne(Pending p) {
+        try {
+            complete(p, client.post(p.request));
+        } catch (IOException e) {
+            p.future.completeExceptionally(e);
+        }
+    }
+
+    private static void complete(Pending p, JsonNode response) {
+        try {
+            p.future.complete(JsonRpcClient.unwrap(response));
+        } catch (RpcError e) {
+            p.future.completeExceptionally(e);
+        }
+    }
+}
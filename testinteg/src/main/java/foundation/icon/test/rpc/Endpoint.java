@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import okhttp3.HttpUrl;
+
+/**
+ * Health and latency of one node as seen by {@link EndpointRouter}.
+ */
+public class Endpoint {
+    private static final double ALPHA = 0.3;
+
+    final HttpUrl url;
+    // reachable, as far as the last requests tell
+    private boolean up = true;
+    // behind the highest node at the last probe
+    private boolean lagging;
+    private double ewmaMillis = -1;
+    private int failures;
+    private long height = -1;
+
+    Endpoint(HttpUrl url) {
+        this.url = url;
+    }
+
+    public HttpUrl getUrl() {
+        return url;
+    }
+
+    public synchronized boolean isHealthy() {
+        return up && !lagging;
+    }
+
+    public synchronized boolean isLagging() {
+        return lagging;
+    }
+
+    /**
+     * @return smoothed response time, or -1 before the first response
+     */
+    public synchronized double getLatency() {
+        return ewmaMillis;
+    }
+
+    public synchronized long getHeight() {
+        return height;
+    }
+
+    synchronized void recordSuccess(long millis) {
+        ewmaMillis = ewmaMillis < 0 ? millis : ALPHA * millis + (1 - ALPHA) * ewmaMillis;
+        failures = 0;
+        up = true;
+    }
+
+    synchronized void recordFailure(int threshold) {
+        if (++failures >= threshold) {
+            up = false;
+        }
+    }
+
+    synchronized void recordHeight(long height) {
+        this.height = height;
+    }
+
+    /**
+     * Only the height check sets or clears the lagging state; a lagging node that answers
+     * requests stays out of the rotation until it catches up.
+     */
+    synchronized void recordLagging(boolean lagging) {
+        this.lagging = lagging;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return url + (!up ? " down" : lagging ? " lagging" : " up") + (ewmaMillis < 0 ? "" : String.format(" %.1fms", ewmaMillis))
+                + (height < 0 ? "" : " #" + height);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes JSON-RPC requests over several nodes of one chain.
+ * <ul>
+ * <li>Reads go to the healthy node with the lowest smoothed latency and fail over to the next
+ * one if the node cannot be reached or answers with a server error.</li>
+ * <li>Sends stay on one node until it fails ({@link SendRouting#STICKY}), or take the healthy
+ * nodes in turn ({@link SendRouting#ROUND_ROBIN}). Sends are only retried elsewhere if the
+ * connection could not be made, so a transaction is not submitted twice.</li>
+ * </ul>
+ * A request is a send if it was marked by {@link #markSend} when it was built, as
+ * {@link JsonRpcClient} does for {@code icx_sendTransaction}, or went through {@link #MARK_SENDS}
+ * first; every other request is routed as a read.
+ * Latency is measured on every request and by periodic {@code icx_getLastBlock} probes, which
+ * also take nodes more than {@code maxLagBlocks} behind the highest node out of the read rotation
+ * until a later probe finds them caught up.
+ * The path of each request is kept, so all nodes must serve the API at the same path.
+ */
+public class EndpointRouter implements Interceptor, Closeable {
+    public enum SendRouting {STICKY, ROUND_ROBIN}
+
+    private enum Send {TAG}
+
+    /**
+     * Marks every request as a send, for clients whose requests are built elsewhere (the icon-sdk
+     * {@code HttpProvider}); it has to be added before the router.
+     */
+    public static final Interceptor MARK_SENDS = chain -> chain.proceed(
+            markSend(chain.request().newBuilder()).build());
+
+    private final List<Endpoint> endpoints = new ArrayList<>();
+    private final SendRouting sendRouting;
+    private final int failureThreshold;
+    private final long maxLagBlocks;
+    private final AtomicInteger nextSend = new AtomicInteger();
+    private volatile Endpoint stickySend;
+    private OkHttpClient probeClient;
+    private ScheduledExecutorService prober;
+
+    public EndpointRouter(List<String> urls, SendRouting sendRouting, int failureThreshold, long maxLagBlocks) {
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("No endpoints");
+        }
+        for (String url : urls) {
+            HttpUrl endpoint = HttpUrl.parse(url);
+            if (endpoint == null) {
+                throw new IllegalArgumentException("Invalid endpoint URL: " + url);
+            }
+            endpoints.add(new Endpoint(endpoint));
+        }
+        this.sendRouting = sendRouting;
+        this.failureThreshold = failureThreshold;
+        this.maxLagBlocks = maxLagBlocks;
+    }
+
+    public EndpointRouter(List<String> urls) {
+        this(urls, SendRouting.STICKY, 2, 5);
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Probes every node each `intervalMillis` using `client`, which must not route through this router.
+     */
+    public synchronized void startProbes(OkHttpClient client, long intervalMillis) {
+        this.probeClient = client;
+        if (prober == null) {
+            prober = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "endpoint-probe");
+                t.setDaemon(true);
+                return t;
+            });
+            prober.scheduleWithFixedDelay(this::probe, 0, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Probes every node once with {@code icx_getLastBlock}.
+     */
+    public void probe() {
+        OkHttpClient client;
+        synchronized (this) {
+            client = probeClient != null ? probeClient : (probeClient = new OkHttpClient());
+        }
+        long maxHeight = -1;
+        for (Endpoint endpoint : endpoints) {
+            JsonRpcClient rpc = new JsonRpcClient(client, endpoint.url.toString());
+            long start = System.nanoTime();
+            try {
+                JsonNode block = JsonRpcClient.unwrap(rpc.post(rpc.newRequest("icx_getLastBlock", null)));
+                endpoint.recordSuccess(elapsedMillis(start));
+                if (block != null && block.has("height")) {
+                    endpoint.recordHeight(block.get("height").asLong());
+                    maxHeight = Math.max(maxHeight, endpoint.getHeight());
+                }
+            } catch (IOException e) {
+                endpoint.recordFailure(1);
+            }
+        }
+        if (maxHeight >= 0) {
+            for (Endpoint endpoint : endpoints) {
+                if (endpoint.getHeight() >= 0) {
+                    endpoint.recordLagging(maxHeight - endpoint.getHeight() > maxLagBlocks);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the request of `builder` as a transaction submission.
+     */
+    public static Request.Builder markSend(Request.Builder builder) {
+        return builder.tag(Send.class, Send.TAG);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        boolean send = request.tag(Send.class) != null;
+        List<Endpoint> order = send ? sendOrder() : readOrder();
+        IOException lastError = null;
+        for (Endpoint endpoint : order) {
+            HttpUrl url = request.url().newBuilder()
+                    .scheme(endpoint.url.scheme())
+                    .host(endpoint.url.host())
+                    .port(endpoint.url.port())
+                    .build();
+            long start = System.nanoTime();
+            try {
+                Response response = chain.proceed(request.newBuilder().url(url).build());
+                if (response.code() < 500) {
+                    endpoint.recordSuccess(elapsedMillis(start));
+                    return response;
+                }
+                endpoint.recordFailure(failureThreshold);
+                if (send || endpoint == order.get(order.size() - 1)) {
+                    return response;
+                }
+                response.close();
+            } catch (IOException e) {
+                endpoint.recordFailure(failureThreshold);
+                if (send && !(e instanceof ConnectException)) {
+                    throw e;
+                }
+                lastError = e;
+            }
+            if (send) {
+                stickySend = null;
+            }
+        }
+        throw lastError != null ? lastError : new IOException("No endpoint available");
+    }
+
+    /**
+     * @return healthy nodes by latency, fastest first, followed by the unhealthy ones as a last resort
+     */
+    List<Endpoint> readOrder() {
+        List<Endpoint> order = new ArrayList<>(endpoints);
+        order.sort((a, b) -> {
+            if (a.isHealthy() != b.isHealthy()) {
+                return a.isHealthy() ? -1 : 1;
+            }
+            // nodes without a measurement yet come first so they get one
+            return Double.compare(a.getLatency(), b.getLatency());
+        });
+        return order;
+    }
+
+    List<Endpoint> sendOrder() {
+        List<Endpoint> healthy = new ArrayList<>();
+        List<Endpoint> down = new ArrayList<>();
+        for (Endpoint e : endpoints) {
+            (e.isHealthy() ? healthy : down).add(e);
+        }
+        List<Endpoint> order = new ArrayList<>(endpoints.size());
+        if (!healthy.isEmpty()) {
+            Endpoint first;
+            if (sendRouting == SendRouting.STICKY) {
+                first = stickySend;
+                if (first == null || !first.isHealthy()) {
+                    first = healthy.get(0);
+                    stickySend = first;
+                }
+            } else {
+                first = healthy.get(Math.floorMod(nextSend.getAndIncrement(), healthy.size()));
+            }
+            order.add(first);
+            for (Endpoint e : healthy) {
+                if (e != first) {
+                    order.add(e);
+                }
+            }
+        }
+        order.addAll(down);
+        return order;
+    }
+
+    private static long elapsedMillis(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+            prober = null;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a node answers with an HTTP status and a body that is not JSON-RPC.
+ */
+public class HttpStatusException extends IOException {
+    private final int status;
+
+    public HttpStatusException(int status, String body) {
+        super("HTTP " + status + ": " + body);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return whether the node rejected the request itself, rather than failed to serve it
+     */
+    public boolean isClientError() {
+        return status >= 400 && status < 500;
+    }
+}
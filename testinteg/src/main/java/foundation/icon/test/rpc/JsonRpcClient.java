@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.test.util.Hex;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal JSON-RPC 2.0 client working on raw JSON trees.
+ * Used by the tools that need fields the SDK does not expose, or that read recorded responses offline.
+ */
+public class JsonRpcClient {
+    public static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final MediaType JSON = MediaType.parse("application/json");
+
+    private final OkHttpClient httpClient;
+    private final String url;
+    private final AtomicLong ids = new AtomicLong();
+
+    public JsonRpcClient(OkHttpClient httpClient, String url) {
+        this.httpClient = httpClient;
+        this.url = url;
+    }
+
+    public JsonRpcClient(String url) {
+        this(new OkHttpClient(), url);
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public ObjectNode newParams() {
+        return MAPPER.createObjectNode();
+    }
+
+    public ObjectNode newRequest(String method, JsonNode params) {
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("jsonrpc", "2.0");
+        request.put("id", ids.incrementAndGet());
+        request.put("method", method);
+        if (params != null && params.size() > 0) {
+            request.set("params", params);
+        }
+        return request;
+    }
+
+    public JsonNode request(String method, JsonNode params) throws IOException {
+        return unwrap(post(newRequest(method, params)));
+    }
+
+    /**
+     * Sends {@code icx_call} to the readonly method `method` of `to`.
+     */
+    public JsonNode call(String to, String method, JsonNode params) throws IOException {
+        return request("icx_call", newCallParams(to, method, params));
+    }
+
+    public ObjectNode newCallParams(String to, String method, JsonNode params) {
+        ObjectNode data = MAPPER.createObjectNode();
+        data.put("method", method);
+        if (params != null && params.size() > 0) {
+            data.set("params", params);
+        }
+        ObjectNode callParams = newParams();
+        callParams.put("to", to);
+        callParams.put("dataType", "call");
+        callParams.set("data", data);
+        return callParams;
+    }
+
+    public JsonNode getTransactionResult(String txHash) throws IOException {
+        return request("icx_getTransactionResult", newParams().put("txHash", txHash));
+    }
+
+    public JsonNode getTransactionByHash(String txHash) throws IOException {
+        return request("icx_getTransactionByHash", newParams().put("txHash", txHash));
+    }
+
+    public JsonNode getBlockByHeight(long height) throws IOException {
+        return request("icx_getBlockByHeight", newParams().put("height", Hex.of(height)));
+    }
+
+    public JsonNode getLastBlock() throws IOException {
+        return request("icx_getLastBlock", null);
+    }
+
+    /**
+     * Posts a request or batch body and returns the parsed response.
+     * Error responses are returned as they are, so callers can inspect them.
+     *
+     * @throws HttpStatusException if the body of the HTTP response is not JSON
+     */
+    public JsonNode post(JsonNode body) throws IOException {
+        try (Response response = httpClient.newCall(newPost(body)).execute()) {
+            ResponseBody responseBody = response.body();
+            String content = responseBody == null ? "" : responseBody.string();
+            try {
+                return MAPPER.readTree(content);
+            } catch (JsonProcessingException e) {
+                throw new HttpStatusException(response.code(), content);
+            }
+        }
+    }
+
+    /**
+     * Reads a response body without building a tree.
+     */
+    public interface BodyReader<T> {
+        T read(InputStream body) throws IOException;
+    }
+
+    /**
+     * Posts a request or batch body and hands the response stream to `reader`.
+     */
+    public <T> T post(JsonNode body, BodyReader<T> reader) throws IOException {
+        try (Response response = httpClient.newCall(newPost(body)).execute()) {
+            ResponseBody responseBody = response.body();
+            if (responseBody == null) {
+                throw new HttpStatusException(response.code(), "empty body");
+            }
+            return reader.read(responseBody.byteStream());
+        }
+    }
+
+    private Request newPost(JsonNode body) throws IOException {
+        Request.Builder builder = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(JSON, MAPPER.writeValueAsBytes(body)));
+        if (isSend(body)) {
+            // lets an EndpointRouter keep the transaction on one node
+            EndpointRouter.markSend(builder);
+        }
+        return builder.build();
+    }
+
+    private static boolean isSend(JsonNode body) {
+        if (body.isArray()) {
+            for (JsonNode request : body) {
+                if (isSend(request)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return "icx_sendTransaction".equals(body.path("method").asText());
+    }
+
+    public static JsonNode unwrap(JsonNode response) throws RpcError {
+        JsonNode error = response.get("error");
+        if (error != null && !error.isNull()) {
+            throw new RpcError(error.path("code").asLong(), error.path("message").asText());
+        }
+        return response.get("result");
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Converts between the SDK's {@link RpcItem} trees and Jackson trees, so {@link RpcObject}
+ * parameters built for {@code Score.call} can go through {@link BatchCall}.
+ */
+public class RpcItems {
+
+    public static JsonNode toJson(RpcItem item) {
+        if (item == null) {
+            return null;
+        } else if (item instanceof RpcObject) {
+            RpcObject object = (RpcObject) item;
+            ObjectNode node = JsonRpcClient.MAPPER.createObjectNode();
+            for (String key : object.keySet()) {
+                node.set(key, toJson(object.getItem(key)));
+            }
+            return node;
+        } else if (item instanceof RpcArray) {
+            ArrayNode node = JsonRpcClient.MAPPER.createArrayNode();
+            for (RpcItem element : ((RpcArray) item).asList()) {
+                node.add(toJson(element));
+            }
+            return node;
+        }
+        return JsonRpcClient.MAPPER.getNodeFactory().textNode(item.asString());
+    }
+
+    public static RpcItem toRpcItem(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        } else if (node.isObject()) {
+            RpcObject.Builder builder = new RpcObject.Builder();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                RpcItem value = toRpcItem(field.getValue());
+                if (value != null) {
+                    builder.put(field.getKey(), value);
+                }
+            }
+            return builder.build();
+        } else if (node.isArray()) {
+            RpcArray.Builder builder = new RpcArray.Builder();
+            for (JsonNode element : node) {
+                builder.add(toRpcItem(element));
+            }
+            return builder.build();
+        }
+        return new RpcValue(node.asText());
+    }
+}
@@ -29,10 +29,13 @@ import foundation.icon.icx.transport.jsonrpc.RpcObject;
 import foundation.icon.test.Constants;
 import foundation.icon.test.ResultTimeoutException;
 import foundation.icon.test.TransactionHandler;
+import foundation.icon.test.rpc.BatchCall;
+import foundation.icon.test.rpc.RpcItems;
 
 import java.io.IOException;
 import java.math.BigInteger;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public class Score {
     private final TransactionHandler txHandler;
@@ -82,6 +85,14 @@ public class Score {
         return this.txHandler.call(call);
     }
 
+    /**
+     * Queues the readonly call in `batch`; the result is available once the batch is flushed.
+     */
+    public CompletableFuture<RpcItem> call(BatchCall batch, String method, RpcObject params) {
+        return batch.call(getAddress().toString(), method, RpcItems.toJson(params))
+                .thenApply(RpcItems::toRpcItem);
+    }
+
     public Bytes invoke(Wallet wallet, String method, RpcObject params) throws IOException {
         return invoke(wallet, method, params, BigInteger.ZERO, null);
     }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.score;
+
+import foundation.icon.icx.Call;
+import foundation.icon.icx.Transaction;
+import foundation.icon.icx.TransactionBuilder;
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.transport.jsonrpc.RpcArray;
+import foundation.icon.icx.transport.jsonrpc.RpcItem;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.test.TransactionHandler;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Base of generated typed clients. Parameter names are passed as constant arrays from the
+ * generated code, calls without parameters are built once and reused, and a fixed step limit
+ * can be set to skip the step estimation round trip on every transaction.
+ */
+public class ScoreClient extends Score {
+    private static final RpcObject NO_PARAMS = new RpcObject.Builder().build();
+
+    private final TransactionHandler txHandler;
+    private final BigInteger nid;
+    private final Map<String, Call<RpcItem>> noArgCalls = new ConcurrentHashMap<>();
+    private volatile BigInteger stepLimit;
+
+    public ScoreClient(TransactionHandler txHandler, Address scoreAddress) {
+        super(txHandler, scoreAddress);
+        this.txHandler = txHandler;
+        this.nid = txHandler.getNetworkId();
+    }
+
+    /**
+     * Uses `steps` for every transaction instead of estimating it, or estimates again if null.
+     */
+    public void setStepLimit(BigInteger steps) {
+        this.stepLimit = steps;
+    }
+
+    protected static RpcObject params(String[] names, Object... values) {
+        RpcObject.Builder builder = new RpcObject.Builder();
+        for (int i = 0; i < names.length; i++) {
+            if (values[i] != null) {
+                builder.put(names[i], toRpc(values[i]));
+            }
+        }
+        return builder.build();
+    }
+
+    private static RpcItem toRpc(Object value) {
+        if (value instanceof Address) {
+            return new RpcValue((Address) value);
+        } else if (value instanceof BigInteger) {
+            return new RpcValue((BigInteger) value);
+        } else if (value instanceof Long || value instanceof Integer) {
+            return new RpcValue(BigInteger.valueOf(((Number) value).longValue()));
+        } else if (value instanceof Boolean) {
+            return new RpcValue((Boolean) value);
+        } else if (value instanceof byte[]) {
+            return new RpcValue((byte[]) value);
+        } else if (value instanceof Object[]) {
+            RpcArray.Builder array = new RpcArray.Builder();
+            for (Object element : (Object[]) value) {
+                array.add(toRpc(element));
+            }
+            return array.build();
+        }
+        return new RpcValue(value.toString());
+    }
+
+    protected static List<Address> toAddressList(RpcItem item) {
+        List<RpcItem> items = item.asArray().asList();
+        List<Address> addresses = new ArrayList<>(items.size());
+        for (RpcItem i : items) {
+            addresses.add(i.asAddress());
+        }
+        return addresses;
+    }
+
+    @Override
+    public RpcItem call(String method, RpcObject params) throws IOException {
+        return txHandler.call(newCall(method, params));
+    }
+
+    protected CompletableFuture<RpcItem> callAsync(String method, RpcObject params) {
+        return txHandler.callAsync(newCall(method, params));
+    }
+
+    private Call<RpcItem> newCall(String method, RpcObject params) {
+        if (params == null) {
+            return noArgCalls.computeIfAbsent(method, m -> new Call.Builder()
+                    .to(getAddress())
+                    .method(m)
+                    .params(NO_PARAMS)
+                    .build());
+        }
+        return new Call.Builder()
+                .to(getAddress())
+                .method(method)
+                .params(params)
+                .build();
+    }
+
+    public Bytes invoke(Wallet wallet, String method, RpcObject params) throws IOException {
+        return txHandler.invoke(wallet, newTransaction(wallet, method, params), stepLimit);
+    }
+
+    protected CompletableFuture<Bytes> invokeAsync(Wallet wallet, String method, RpcObject params) {
+        return txHandler.invokeAsync(wallet, newTransaction(wallet, method, params), stepLimit);
+    }
+
+    private Transaction newTransaction(Wallet wallet, String method, RpcObject params) {
+        TransactionBuilder.CallBuilder builder = TransactionBuilder.newBuilder()
+                .nid(nid)
+                .from(wallet.getAddress())
+                .to(getAddress())
+                .call(method);
+        return params != null ? builder.params(params).build() : builder.build();
+    }
+}
@@ -0,0 +1,426 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.statement;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import foundation.icon.test.Log;
+import foundation.icon.test.backfill.AdaptiveRateLimiter;
+import foundation.icon.test.backfill.BlockBackfill;
+import foundation.icon.test.events.EventDecoder;
+import foundation.icon.test.events.StableCoinEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import foundation.icon.test.ledger.Postings;
+import foundation.icon.test.ledger.TransferLedger;
+import foundation.icon.test.ledger.TransferRecord;
+import foundation.icon.test.profile.StepProfiler;
+import foundation.icon.test.profile.TxFixture;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.util.Hex;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Account statements with running balances, read from a {@link TransferLedger}. Balances are
+ * derived from {@code Transfer} events only, which cover minting and burning through the zero
+ * address, so the ledger must start at the deployment of the contract.
+ * <p>
+ * A statement walks the posting list of its address, so memory does not grow with the length of
+ * the history. Pages are resumed from an opaque cursor holding the position in the posting list
+ * and the balance there.
+ *
+ * <pre>
+ * StatementService (--dir ledger | [--dir ledger] --fixture tx.json
+ *         | --dir ledger --url ... --score cx... --to H [--start S])
+ *     [--from-height A] [--to-height B]
+ *     --address hx... [--cursor c] [--limit 100] [--out page.json]   one page as JSON, logged if no --out
+ *     --all --out dir [--threads N]                                 statements of every holder as CSV
+ * </pre>
+ * A fixture imported without {@code --dir} goes to a temporary ledger deleted on exit.
+ */
+public class StatementService {
+    private static final Log LOG = Log.getGlobal();
+    private static final String ZERO_ADDRESS = "hx0000000000000000000000000000000000000000";
+
+    private final TransferLedger ledger;
+
+    public static class Line {
+        public final long height;
+        public final int txIndex;
+        public final int logIndex;
+        public final String counterparty;
+        /**
+         * Change of the balance, negative for outgoing transfers.
+         */
+        public final BigInteger amount;
+        public final BigInteger balance;
+
+        Line(long height, int txIndex, int logIndex, String counterparty, BigInteger amount, BigInteger balance) {
+            this.height = height;
+            this.txIndex = txIndex;
+            this.logIndex = logIndex;
+            this.counterparty = counterparty;
+            this.amount = amount;
+            this.balance = balance;
+        }
+    }
+
+    public static class Page {
+        public final String address;
+        public final BigInteger openingBalance;
+        public final BigInteger closingBalance;
+        public final List<Line> lines;
+        /**
+         * Cursor of the next page, null on the last page.
+         */
+        public final String nextCursor;
+
+        Page(String address, BigInteger openingBalance, BigInteger closingBalance, List<Line> lines,
+             String nextCursor) {
+            this.address = address;
+            this.openingBalance = openingBalance;
+            this.closingBalance = closingBalance;
+            this.lines = lines;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    public interface LineVisitor {
+        void visit(Line line) throws IOException;
+    }
+
+    public StatementService(TransferLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    /**
+     * Returns up to `limit` lines of the statement of `address` for blocks `fromHeight` to
+     * `toHeight`, both inclusive.
+     *
+     * @param cursor the {@link Page#nextCursor} of the previous page, or null for the first page
+     */
+    public Page page(String address, long fromHeight, long toHeight, String cursor, int limit) {
+        byte[] key = TransferRecord.encodeAddress(address);
+        Postings postings = ledger.history(address);
+        TransferRecord view = new TransferRecord();
+        int position;
+        BigInteger balance;
+        if (cursor == null) {
+            position = firstAtOrAfter(postings, fromHeight, view);
+            balance = BigInteger.ZERO;
+            for (int i = 0; i < position; i++) {
+                balance = balance.add(change(ledger.read(postings.get(i), view), key));
+            }
+        } else {
+            int dot = cursor.indexOf('.');
+            try {
+                position = Integer.parseInt(cursor.substring(0, dot), 36);
+                balance = new BigInteger(cursor.substring(dot + 1), 36);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("invalid cursor: " + cursor);
+            }
+            if (position < 0 || position > postings.size()) {
+                throw new IllegalArgumentException("invalid cursor: " + cursor);
+            }
+        }
+        BigInteger opening = balance;
+        List<Line> lines = new ArrayList<>(Math.min(limit, 1024));
+        while (position < postings.size() && lines.size() < limit) {
+            TransferRecord record = ledger.read(postings.get(position), view);
+            if (record.getHeight() > toHeight) {
+                break;
+            }
+            Line line = line(record, key, balance);
+            balance = line.balance;
+            lines.add(line);
+            position++;
+        }
+        boolean more = position < postings.size()
+                && ledger.read(postings.get(position), view).getHeight() <= toHeight;
+        String next = more ? Integer.toString(position, 36) + "." + balance.toString(36) : null;
+        return new Page(address, opening, balance, lines, next);
+    }
+
+    /**
+     * Passes every line of the statement of `address` to `visitor`.
+     *
+     * @return the closing balance
+     */
+    public BigInteger forEachLine(String address, long fromHeight, long toHeight, LineVisitor visitor)
+            throws IOException {
+        byte[] key = TransferRecord.encodeAddress(address);
+        Postings postings = ledger.history(address);
+        TransferRecord view = new TransferRecord();
+        BigInteger balance = BigInteger.ZERO;
+        for (int i = 0; i < postings.size(); i++) {
+            TransferRecord record = ledger.read(postings.get(i), view);
+            if (record.getHeight() > toHeight) {
+                break;
+            }
+            if (record.getHeight() < fromHeight) {
+                balance = balance.add(change(record, key));
+            } else {
+                Line line = line(record, key, balance);
+                balance = line.balance;
+                visitor.visit(line);
+            }
+        }
+        return balance;
+    }
+
+    /**
+     * Writes the statements of all holders, split over `threads` workers. Each worker writes its
+     * own {@code statements-N.csv} with the lines and {@code summary-N.csv} with the opening and
+     * closing balance of every holder.
+     *
+     * @return the number of holders
+     */
+    public long writeAll(Path dir, long fromHeight, long toHeight, int threads)
+            throws IOException, InterruptedException {
+        Files.createDirectories(dir);
+        String end = "";
+        BlockingQueue<String> holders = new ArrayBlockingQueue<>(threads * 1024);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong count = new AtomicLong();
+        List<Thread> workers = new ArrayList<>();
+        for (int n = 0; n < threads; n++) {
+            Path lines = dir.resolve("statements-" + n + ".csv");
+            Path summary = dir.resolve("summary-" + n + ".csv");
+            Thread worker = new Thread(() -> {
+                try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(lines, StandardCharsets.UTF_8));
+                     PrintWriter sums = new PrintWriter(Files.newBufferedWriter(summary, StandardCharsets.UTF_8))) {
+                    out.println("address,height,txIndex,logIndex,counterparty,amount,balance");
+                    sums.println("address,opening,closing,lines");
+                    String address;
+                    while (!(address = holders.take()).equals(end)) {
+                        String holder = address;
+                        BigInteger[] opening = new BigInteger[1];
+                        int[] written = new int[1];
+                        BigInteger closing = forEachLine(holder, fromHeight, toHeight, line -> {
+                            if (written[0]++ == 0) {
+                                opening[0] = line.balance.subtract(line.amount);
+                            }
+                            out.println(holder + "," + line.height + "," + line.txIndex + "," + line.logIndex
+                                    + "," + line.counterparty + "," + line.amount + "," + line.balance);
+                        });
+                        if (written[0] > 0 || closing.signum() != 0) {
+                            sums.println(holder + "," + (opening[0] == null ? closing : opening[0])
+                                    + "," + closing + "," + written[0]);
+                            count.incrementAndGet();
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    // keep draining so the producer is not blocked
+                    try {
+                        while (!holders.take().equals(end)) {
+                            // skip
+                        }
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "statement-" + n);
+            worker.start();
+            workers.add(worker);
+        }
+        try {
+            ledger.forEachAddress(address -> {
+                if (!address.equals(ZERO_ADDRESS)) {
+                    try {
+                        holders.put(address);
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        } finally {
+            for (int n = 0; n < threads; n++) {
+                holders.put(end);
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        }
+        if (failure.get() != null) {
+            throw new IOException("statement generation failed", failure.get());
+        }
+        return count.get();
+    }
+
+    private int firstAtOrAfter(Postings postings, long height, TransferRecord view) {
+        int lo = 0;
+        int hi = postings.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ledger.read(postings.get(mid), view).getHeight() < height) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static BigInteger change(TransferRecord record, byte[] address) {
+        boolean out = record.isFrom(address);
+        boolean in = record.isTo(address);
+        if (out == in) {
+            return BigInteger.ZERO;
+        }
+        return out ? record.getAmount().negate() : record.getAmount();
+    }
+
+    private static Line line(TransferRecord record, byte[] address, BigInteger balance) {
+        BigInteger change = change(record, address);
+        return new Line(record.getHeight(), record.getTxIndex(), record.getLogIndex(),
+                record.isFrom(address) ? record.getTo() : record.getFrom(), change, balance.add(change));
+    }
+
+    /**
+     * Appends the transfers in the results of `fixture` to `ledger`.
+     *
+     * @return the number of transfers appended
+     */
+    public static long importFixture(TxFixture fixture, String scoreAddress, TransferLedger ledger)
+            throws IOException {
+        EventDecoder decoder = new EventDecoder(scoreAddress);
+        List<TransferEvent> transfers = new ArrayList<>();
+        for (JsonNode result : fixture.getResults()) {
+            for (StableCoinEvent event : decoder.decode(MAPPER.writeValueAsBytes(result))) {
+                if (event instanceof TransferEvent) {
+                    transfers.add((TransferEvent) event);
+                }
+            }
+        }
+        transfers.sort(Comparator.comparingLong(StableCoinEvent::getBlockHeight)
+                .thenComparingInt(StableCoinEvent::getTxIndex)
+                .thenComparingInt(StableCoinEvent::getLogIndex));
+        long appended = 0;
+        for (TransferEvent transfer : transfers) {
+            if (ledger.append(transfer)) {
+                appended++;
+            }
+        }
+        return appended;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StepProfiler.parseArgs(args);
+        if (options.containsKey("url") && !options.containsKey("dir")) {
+            // the ledger and the backfill checkpoint are what a later run resumes from
+            throw new IllegalArgumentException("--url requires --dir");
+        }
+        boolean temporary = !options.containsKey("dir");
+        Path dir = temporary ? Files.createTempDirectory("ledger") : Path.of(options.get("dir"));
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            if (options.containsKey("fixture")) {
+                TxFixture fixture = TxFixture.load(Path.of(options.get("fixture")));
+                String score = options.getOrDefault("score", fixture.firstDestination());
+                LOG.info("imported " + importFixture(fixture, score, ledger) + " transfers");
+            } else if (options.containsKey("url")) {
+                List<JsonRpcClient> clients = new ArrayList<>();
+                for (String url : options.get("url").split(",")) {
+                    clients.add(new JsonRpcClient(url.trim()));
+                }
+                BlockBackfill backfill = new BlockBackfill(clients, options.get("score"));
+                double rate = Double.parseDouble(options.getOrDefault("rate", "50"));
+                backfill.setRateLimiter(new AdaptiveRateLimiter(rate, Math.min(1, rate), 1000));
+                // the ledger keeps the balances, so the range must start at the deployment
+                backfill.run(Long.parseLong(options.getOrDefault("start", "0")), Long.parseLong(options.get("to")),
+                        dir.resolve("backfill.ckpt"), chunk -> {
+                            for (StableCoinEvent event : chunk.events) {
+                                if (event instanceof TransferEvent) {
+                                    ledger.append((TransferEvent) event);
+                                }
+                            }
+                            ledger.commit(true);
+                        });
+            }
+
+            StatementService service = new StatementService(ledger);
+            long fromHeight = Long.parseLong(options.getOrDefault("from-height", "0"));
+            long toHeight = Long.parseLong(options.getOrDefault("to-height", String.valueOf(Long.MAX_VALUE)));
+            if (options.containsKey("all")) {
+                int threads = Integer.parseInt(options.getOrDefault("threads",
+                        String.valueOf(Runtime.getRuntime().availableProcessors())));
+                long begin = System.nanoTime();
+                long holders = service.writeAll(Path.of(options.getOrDefault("out", "statements")),
+                        fromHeight, toHeight, threads);
+                LOG.info(String.format("%d statements in %.1f s", holders, (System.nanoTime() - begin) / 1e9));
+            } else if (options.containsKey("address")) {
+                Page page = service.page(options.get("address"), fromHeight, toHeight, options.get("cursor"),
+                        Integer.parseInt(options.getOrDefault("limit", "100")));
+                String json = MAPPER.writerWithDefaultPrettyPrinter().writeValueAsString(toJson(page));
+                if (options.containsKey("out")) {
+                    Files.writeString(Path.of(options.get("out")), json, StandardCharsets.UTF_8);
+                    LOG.info(page.lines.size() + " lines written to " + options.get("out"));
+                } else {
+                    LOG.info(json);
+                }
+            } else {
+                throw new IllegalArgumentException("--address or --all is required");
+            }
+        } finally {
+            if (temporary) {
+                delete(dir);
+            }
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private static ObjectNode toJson(Page page) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("address", page.address);
+        node.put("openingBalance", Hex.of(page.openingBalance));
+        node.put("closingBalance", Hex.of(page.closingBalance));
+        ArrayNode lines = node.putArray("lines");
+        for (Line line : page.lines) {
+            lines.addObject()
+                    .put("height", line.height)
+                    .put("txIndex", line.txIndex)
+                    .put("logIndex", line.logIndex)
+                    .put("counterparty", line.counterparty)
+                    .put("amount", Hex.of(line.amount))
+                    .put("balance", Hex.of(line.balance));
+        }
+        node.put("nextCursor", page.nextCursor);
+        return node;
+    }
+}
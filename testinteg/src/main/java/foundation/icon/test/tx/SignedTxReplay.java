@@ -0,0 +1,332 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.test.Env;
+import foundation.icon.test.Log;
+import foundation.icon.test.WalletStore;
+import foundation.icon.test.backfill.AdaptiveRateLimiter;
+import foundation.icon.test.metrics.Histogram;
+import foundation.icon.test.metrics.RpcMetrics;
+import foundation.icon.test.profile.StepProfiler;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.rpc.RpcItems;
+import foundation.icon.test.util.Hex;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Signs StableCoin transactions up front into a JSON lines file, one {@code icx_sendTransaction}
+ * params object per line, and replays such a file against a node at a target rate, measuring the
+ * time from sending each transaction to finding its result.
+ *
+ * <pre>
+ * SignedTxReplay --generate txs.jsonl --score cx... --count 100000 [--mints 0.1] [--seed N] [--keystore a.json,b.json|dir --password p]
+ * SignedTxReplay --generate txs.jsonl --score cx... --count 100000 --derive 10000 [--derive-seed s]
+ * SignedTxReplay --replay txs.jsonl [--url http://localhost:9082/api/v3] --rate 500 [--senders 16]
+ * </pre>
+ * {@code --seed} picks the recipients and the mix, {@code --derive-seed} the derived wallets.
+ * Without {@code --keystore} or {@code --derive}, the wallets of env.props sign.
+ * Nodes reject transactions whose timestamp is too far from their clock (5 minutes by default),
+ * so a file has to be replayed shortly after it is generated.
+ */
+public class SignedTxReplay {
+    private static final Log LOG = Log.getGlobal();
+    private static final long TIMESTAMP_THRESHOLD = TimeUnit.MINUTES.toMicros(5);
+
+    /**
+     * Signs `count` transfers of `value` to recipients drawn from `recipients` addresses, a
+     * `mints` fraction of them being {@code mintTo} calls instead. The wallets of `wallets` take
+     * turns as senders, each built from the store when its transaction is queued; the recipients
+     * and the mix only depend on `seed`.
+     *
+     * @return the number of lines written
+     */
+    public static long generate(WalletStore wallets, BigInteger networkId, Address score, long count,
+                                double mints, int recipients, BigInteger value, BigInteger steps, long seed,
+                                Path out, int threads) throws IOException, InterruptedException {
+        Random random = new Random(seed);
+        List<Address> to = new ArrayList<>(recipients);
+        byte[] bytes = new byte[20];
+        for (int i = 0; i < recipients; i++) {
+            random.nextBytes(bytes);
+            to.add(new Address(String.format("hx%040x", new BigInteger(1, bytes))));
+        }
+        SigningFarm farm = new SigningFarm(networkId, threads, 4096);
+        Thread producer = new Thread(() -> {
+            try {
+                for (long i = 0; i < count; i++) {
+                    RpcObject.Builder params = new RpcObject.Builder()
+                            .put("_to", new RpcValue(to.get(random.nextInt(to.size()))))
+                            .put("_value", new RpcValue(value));
+                    String method = random.nextDouble() < mints ? "mintTo" : "transfer";
+                    farm.add(SigningFarm.Intent.call(wallets.get((int) (i % wallets.size())), score,
+                            method, params.build(), steps));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                farm.close();
+            }
+        }, "generate");
+        producer.start();
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+            SigningFarm.Signed item;
+            while ((item = farm.take()) != null) {
+                writer.write(MAPPER.writeValueAsString(RpcItems.toJson(item.getTransaction().getProperties())));
+                writer.newLine();
+                written++;
+            }
+        } finally {
+            // after a write failure, discard the rest so that the farm can close
+            producer.interrupt();
+            while (farm.take() != null) {
+                continue;
+            }
+            producer.join();
+        }
+        return written;
+    }
+
+    public static class Report {
+        public long sent;
+        public long success;
+        public long failure;
+        public long expired;
+        public long errors;
+        /**
+         * Transactions rejected by {@code icx_sendTransaction}, by error code.
+         */
+        public final Map<Long, Long> rejected = new TreeMap<>();
+        public long elapsedMillis;
+        public final Histogram finalizeLatency = new Histogram();
+
+        @Override
+        public String toString() {
+            return String.format("sent=%d (%.1f tx/s), success=%d, failure=%d, expired=%d, errors=%d, rejected=%s,"
+                            + " finalize p50=%dms p90=%dms p99=%dms max=%dms",
+                    sent, sent * 1000.0 / Math.max(1, elapsedMillis), success, failure, expired, errors, rejected,
+                    finalizeLatency.getQuantileMicros(0.5) / 1000, finalizeLatency.getQuantileMicros(0.9) / 1000,
+                    finalizeLatency.getQuantileMicros(0.99) / 1000, finalizeLatency.getMaxMicros() / 1000);
+        }
+    }
+
+    /**
+     * Sends every line of `in` at `rate` per second from `senders` threads and waits for the
+     * results, each for at most `timeoutMillis` after it was sent.
+     */
+    public static Report replay(JsonRpcClient client, Path in, double rate, int senders, long timeoutMillis,
+                                long pollMillis) throws IOException, InterruptedException {
+        Report report = new Report();
+        RpcMetrics metrics = RpcMetrics.getGlobal();
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(rate, rate, rate);
+        ExecutorService pool = Executors.newFixedThreadPool(senders, r -> {
+            Thread t = new Thread(r, "replay-sender");
+            t.setDaemon(true);
+            return t;
+        });
+        // bounds the lines read ahead of the senders
+        Semaphore window = new Semaphore(senders * 4);
+        AtomicLong sent = new AtomicLong();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+        long started = System.currentTimeMillis();
+        try (TxStatusTracker tracker = new TxStatusTracker(client, pollMillis);
+             BufferedReader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8)) {
+            // poll finely, the latency measured is only as precise as the polling
+            tracker.setBackoff(TxStatusTracker.Waiting.PENDING, pollMillis, 1000);
+            tracker.setBackoff(TxStatusTracker.Waiting.EXECUTING, pollMillis, pollMillis);
+            tracker.setBackoff(TxStatusTracker.Waiting.NOT_FOUND, pollMillis, 2000);
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonNode params = MAPPER.readTree(line);
+                if (first) {
+                    first = false;
+                    long age = System.currentTimeMillis() * 1000 - Hex.toLong(params.path("timestamp").asText("0x0"));
+                    if (age > TIMESTAMP_THRESHOLD) {
+                        LOG.warning("transactions were signed " + age / 60_000_000 + " minutes ago, nodes may reject them");
+                    }
+                }
+                window.acquire();
+                limiter.acquire();
+                CompletableFuture<Void> done = new CompletableFuture<>();
+                synchronized (pending) {
+                    pending.add(done);
+                }
+                pool.execute(() -> {
+                    try {
+                        send(client, tracker, metrics, params, timeoutMillis, report, sent, done);
+                    } finally {
+                        window.release();
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(1, TimeUnit.HOURS);
+            CompletableFuture<?>[] all;
+            synchronized (pending) {
+                all = pending.toArray(new CompletableFuture<?>[0]);
+            }
+            CompletableFuture.allOf(all).join();
+        } finally {
+            pool.shutdownNow();
+        }
+        report.sent = sent.get();
+        report.elapsedMillis = System.currentTimeMillis() - started;
+        return report;
+    }
+
+    private static void send(JsonRpcClient client, TxStatusTracker tracker, RpcMetrics metrics, JsonNode params,
+                             long timeoutMillis, Report report, AtomicLong sent, CompletableFuture<Void> done) {
+        long start = System.nanoTime();
+        String txHash;
+        try {
+            txHash = client.request(RpcMetrics.SEND_TRANSACTION, params).asText();
+        } catch (RpcError e) {
+            metrics.error(RpcMetrics.SEND_TRANSACTION, e.getCode());
+            synchronized (report) {
+                report.rejected.merge(e.getCode(), 1L, Long::sum);
+            }
+            done.complete(null);
+            return;
+        } catch (IOException | RuntimeException e) {
+            LOG.debug("send failed: " + e.getMessage());
+            synchronized (report) {
+                report.errors++;
+            }
+            done.complete(null);
+            return;
+        } finally {
+            metrics.sendLatency().recordSince(start);
+        }
+        sent.incrementAndGet();
+        tracker.track(txHash, timeoutMillis).whenComplete((completion, e) -> {
+            synchronized (report) {
+                if (e != null) {
+                    report.errors++;
+                } else {
+                    switch (completion.status) {
+                        case SUCCESS:
+                            report.success++;
+                            break;
+                        case FAILURE:
+                            report.failure++;
+                            break;
+                        case EXPIRED:
+                            report.expired++;
+                            break;
+                        default:
+                            report.errors++;
+                    }
+                    if (completion.result != null) {
+                        report.finalizeLatency.recordSince(start);
+                        metrics.finalizeLatency().recordSince(start);
+                    }
+                }
+            }
+            done.complete(null);
+        });
+    }
+
+    /**
+     * Opens the wallets given by {@code --derive} or {@code --keystore}.
+     *
+     * @return the store, to be closed by the caller, or null if neither option is given
+     */
+    static WalletStore openWallets(Map<String, String> options, int threads) throws IOException {
+        if (options.containsKey("derive")) {
+            return WalletStore.derive(options.getOrDefault("derive-seed", "1"),
+                    Integer.parseInt(options.get("derive")), threads);
+        }
+        if (!options.containsKey("keystore")) {
+            return null;
+        }
+        List<Path> keystores = new ArrayList<>();
+        for (String path : options.get("keystore").split(",")) {
+            keystores.add(Path.of(path));
+        }
+        if (keystores.size() == 1 && Files.isDirectory(keystores.get(0))) {
+            return WalletStore.load(keystores.get(0), options.get("password"), threads);
+        }
+        return WalletStore.load(keystores, options.get("password"), threads);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = StepProfiler.parseArgs(args);
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                String.valueOf(Runtime.getRuntime().availableProcessors())));
+        if (options.containsKey("generate")) {
+            BigInteger nid = options.containsKey("nid") ? Hex.toBigInteger(options.get("nid"))
+                    : BigInteger.valueOf(Env.getDefaultChain().networkId);
+            try (WalletStore given = openWallets(options, threads)) {
+                // without wallet options, the wallets of env.props; Env closes those on exit
+                WalletStore wallets = given != null ? given : Env.getWalletStore();
+                long start = System.currentTimeMillis();
+                long written = generate(wallets, nid, new Address(options.get("score")),
+                        Long.parseLong(options.getOrDefault("count", "10000")),
+                        Double.parseDouble(options.getOrDefault("mints", "0")),
+                        Integer.parseInt(options.getOrDefault("recipients", "1000")),
+                        new BigInteger(options.getOrDefault("value", "1")),
+                        new BigInteger(options.getOrDefault("steps", "300000")),
+                        Long.parseLong(options.getOrDefault("seed", "1")),
+                        Path.of(options.get("generate")), threads);
+                long elapsed = Math.max(1, System.currentTimeMillis() - start);
+                LOG.info("signed " + written + " transactions in " + elapsed + " ms ("
+                        + written * 1000 / elapsed + " tx/s) into " + options.get("generate"));
+            }
+        } else if (options.containsKey("replay")) {
+            String url = options.containsKey("url") ? options.get("url")
+                    : Env.getDefaultChain().getEndpointURL(3);
+            Report report = replay(new JsonRpcClient(url), Path.of(options.get("replay")),
+                    Double.parseDouble(options.getOrDefault("rate", "100")),
+                    Integer.parseInt(options.getOrDefault("senders", "16")),
+                    Long.parseLong(options.getOrDefault("timeout", "60000")),
+                    Long.parseLong(options.getOrDefault("poll", "100")));
+            LOG.info(report.toString());
+        } else {
+            throw new IllegalArgumentException("--generate or --replay is required");
+        }
+    }
+}
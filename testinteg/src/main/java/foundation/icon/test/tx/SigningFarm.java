@@ -0,0 +1,283 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import foundation.icon.icx.SignedTransaction;
+import foundation.icon.icx.Transaction;
+import foundation.icon.icx.TransactionBuilder;
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.test.Constants;
+import foundation.icon.test.Log;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Builds and signs transactions on a pool of threads, ahead of a separate submit stage, so
+ * secp256k1 signing no longer serializes with the network round trips of each send.
+ * <pre>
+ * intents -> [signers] -> signed -> [senders] -> node
+ * </pre>
+ * Both queues are bounded: {@link #add} blocks while the signers are behind, and the signers
+ * block while the senders are. Without {@link #submitTo}, signed transactions are handed to the
+ * caller through {@link #take} instead, e.g. to write them out.
+ * <p>
+ * Each wallet gets its own nonce sequence and strictly increasing timestamps, assigned when an
+ * intent is picked up, so two intents never sign into the same transaction hash. ICON does not
+ * order transactions by nonce, so signing them out of order is harmless.
+ */
+public class SigningFarm implements Closeable {
+    private static final Log LOG = Log.getGlobal();
+
+    private final BigInteger networkId;
+    private final BlockingQueue<Signed> intents;
+    private final BlockingQueue<Signed> signed;
+    private final Map<Address, Sequence> sequences = new ConcurrentHashMap<>();
+    private final List<Thread> signers = new ArrayList<>();
+    private final List<Thread> senders = new ArrayList<>();
+    private volatile boolean closed;
+
+    // marks the end of a queue; every reader puts it back for the next one
+    private static final Signed END = new Signed(null);
+
+    /**
+     * What to sign: a coin transfer when `method` is null, a call otherwise.
+     */
+    public static class Intent {
+        public final Wallet wallet;
+        public final Address to;
+        public final BigInteger value;
+        public final String method;
+        public final RpcObject params;
+        public final BigInteger steps;
+
+        public Intent(Wallet wallet, Address to, BigInteger value, String method, RpcObject params, BigInteger steps) {
+            this.wallet = wallet;
+            this.to = to;
+            this.value = value;
+            this.method = method;
+            this.params = params;
+            this.steps = steps;
+        }
+
+        public static Intent transfer(Wallet wallet, Address to, BigInteger value, BigInteger steps) {
+            return new Intent(wallet, to, value, null, null, steps);
+        }
+
+        public static Intent call(Wallet wallet, Address score, String method, RpcObject params, BigInteger steps) {
+            return new Intent(wallet, score, null, method, params, steps);
+        }
+    }
+
+    public static class Signed {
+        public final Intent intent;
+        final CompletableFuture<Bytes> result = new CompletableFuture<>();
+        SignedTransaction tx;
+
+        Signed(Intent intent) {
+            this.intent = intent;
+        }
+
+        public SignedTransaction getTransaction() {
+            return tx;
+        }
+
+        /**
+         * Completes the future returned by {@link #add} for this intent, when the caller sends it.
+         */
+        public void complete(Bytes txHash) {
+            result.complete(txHash);
+        }
+
+        public void fail(Throwable cause) {
+            result.completeExceptionally(cause);
+        }
+    }
+
+    public interface Submitter {
+        Bytes send(SignedTransaction tx) throws IOException;
+    }
+
+    private static class Sequence {
+        private long nonce;
+        private long timestamp;
+
+        synchronized void assign(TransactionBuilder.Builder builder) {
+            timestamp = Math.max(timestamp + 1, System.currentTimeMillis() * 1000);
+            builder.nonce(BigInteger.valueOf(nonce++)).timestamp(BigInteger.valueOf(timestamp));
+        }
+    }
+
+    /**
+     * @param threads  signing threads, usually the number of cores
+     * @param capacity size of the intent queue and of the signed queue
+     */
+    public SigningFarm(BigInteger networkId, int threads, int capacity) {
+        this.networkId = networkId;
+        this.intents = new ArrayBlockingQueue<>(capacity);
+        this.signed = new ArrayBlockingQueue<>(capacity);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this::sign, "signer-" + i);
+            t.setDaemon(true);
+            signers.add(t);
+            t.start();
+        }
+    }
+
+    public SigningFarm(BigInteger networkId) {
+        this(networkId, Runtime.getRuntime().availableProcessors(), 4096);
+    }
+
+    /**
+     * Starts the submit stage: `threads` senders pass the signed transactions to `submitter`.
+     */
+    public synchronized void submitTo(Submitter submitter, int threads) {
+        if (!senders.isEmpty()) {
+            throw new IllegalStateException("already submitting");
+        }
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> send(submitter), "sender-" + i);
+            t.setDaemon(true);
+            senders.add(t);
+            t.start();
+        }
+    }
+
+    /**
+     * Queues `intent` for signing, waiting while the queue is full.
+     *
+     * @return the hash of the transaction once sent
+     */
+    public CompletableFuture<Bytes> add(Intent intent) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("farm is closed");
+        }
+        Signed item = new Signed(intent);
+        intents.put(item);
+        return item.result;
+    }
+
+    /**
+     * @return the next signed transaction, or null once the farm is closed and drained
+     */
+    public Signed take() throws InterruptedException {
+        Signed item = signed.take();
+        if (item == END) {
+            signed.put(END);
+            return null;
+        }
+        return item;
+    }
+
+    private void sign() {
+        try {
+            Signed item;
+            while ((item = intents.take()) != END) {
+                try {
+                    item.tx = build(item.intent);
+                } catch (RuntimeException e) {
+                    item.fail(e);
+                    continue;
+                }
+                signed.put(item);
+            }
+            intents.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private SignedTransaction build(Intent intent) {
+        TransactionBuilder.Builder builder = TransactionBuilder.newBuilder()
+                .nid(networkId)
+                .from(intent.wallet.getAddress())
+                .to(intent.to);
+        if (intent.value != null && intent.value.signum() != 0) {
+            builder.value(intent.value);
+        }
+        sequences.computeIfAbsent(intent.wallet.getAddress(), k -> new Sequence()).assign(builder);
+        Transaction tx;
+        if (intent.method == null) {
+            tx = builder.build();
+        } else if (intent.params != null) {
+            tx = builder.call(intent.method).params(intent.params).build();
+        } else {
+            tx = builder.call(intent.method).build();
+        }
+        SignedTransaction signedTx = new SignedTransaction(tx, intent.wallet,
+                intent.steps != null ? intent.steps : Constants.DEFAULT_STEPS);
+        // make sure the signature is computed here rather than on a sender
+        signedTx.getProperties();
+        return signedTx;
+    }
+
+    private void send(Submitter submitter) {
+        try {
+            Signed item;
+            while ((item = take()) != null) {
+                try {
+                    item.complete(submitter.send(item.tx));
+                } catch (IOException | RuntimeException e) {
+                    LOG.debug("send failed: " + e.getMessage());
+                    item.fail(e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting intents and waits until the queued ones are signed and, with a submit
+     * stage, sent. Without one, keep calling {@link #take} from another thread meanwhile; it
+     * returns null after the last signed transaction.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            intents.put(END);
+            for (Thread t : signers) {
+                t.join();
+            }
+            signed.put(END);
+            List<Thread> running;
+            synchronized (this) {
+                running = new ArrayList<>(senders);
+            }
+            for (Thread t : running) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import foundation.icon.test.Log;
+import foundation.icon.test.metrics.Histogram;
+import foundation.icon.test.metrics.RpcMetrics;
+import foundation.icon.test.rpc.JsonRpcClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+
+/**
+ * Waits for the results of many transactions at once. Every poll interval, the hashes that are
+ * due are sent as batches of {@code icx_getTransactionResult}. A hash that is still waiting is
+ * polled again after a backoff that depends on why it is waiting:
+ * <ul>
+ * <li>pending (-31002), in the mempool: around a block time</li>
+ * <li>executing (-31003), in a block being executed: soon</li>
+ * <li>not found (-31004), not yet propagated or dropped: growing quickly</li>
+ * </ul>
+ * Each backoff doubles on every poll up to its maximum. Hashes without a result by their deadline
+ * complete as {@link Status#EXPIRED}. Completions are returned as futures and are also published
+ * to the subscribers of {@link #completions()}, which get them in completion order. Publishing
+ * blocks the poller while a subscriber's buffer is full.
+ */
+public class TxStatusTracker implements Closeable {
+    private static final Log LOG = Log.getGlobal();
+
+    private final JsonRpcClient client;
+    private final ConcurrentLinkedQueue<Entry> inbox = new ConcurrentLinkedQueue<>();
+    private final PriorityQueue<Entry> schedule = new PriorityQueue<>((a, b) -> Long.compare(a.nextPoll, b.nextPoll));
+    private final SubmissionPublisher<Completion> publisher = new SubmissionPublisher<>();
+    private final ScheduledExecutorService poller;
+    private final Map<Waiting, long[]> backoffs = new HashMap<>();
+    private final RpcMetrics metrics = RpcMetrics.getGlobal();
+    private final Histogram batchLatency = metrics.latency("icx_getTransactionResult_batch");
+    private int batchSize = 100;
+    private volatile boolean closed;
+
+    public enum Status {
+        SUCCESS, FAILURE, EXPIRED, ERROR
+    }
+
+    public enum Waiting {
+        PENDING(-31002), EXECUTING(-31003), NOT_FOUND(-31004);
+
+        final int code;
+
+        Waiting(int code) {
+            this.code = code;
+        }
+
+        static Waiting of(long code) {
+            for (Waiting w : values()) {
+                if (w.code == code) {
+                    return w;
+                }
+            }
+            return null;
+        }
+    }
+
+    public static class Completion {
+        public final String txHash;
+        public final Status status;
+        /**
+         * The transaction result, null unless the status is SUCCESS or FAILURE.
+         */
+        public final JsonNode result;
+        /**
+         * The RPC error for ERROR, the last waiting reason for EXPIRED.
+         */
+        public final String error;
+        public final long latencyMillis;
+        public final int polls;
+
+        Completion(String txHash, Status status, JsonNode result, String error, long latencyMillis, int polls) {
+            this.txHash = txHash;
+            this.status = status;
+            this.result = result;
+            this.error = error;
+            this.latencyMillis = latencyMillis;
+            this.polls = polls;
+        }
+
+        @Override
+        public String toString() {
+            return txHash + " " + status + (error == null ? "" : " (" + error + ")")
+                    + " after " + latencyMillis + " ms, " + polls + " polls";
+        }
+    }
+
+    private static class Entry {
+        final String txHash;
+        final long start;
+        final long deadline;
+        final CompletableFuture<Completion> future = new CompletableFuture<>();
+        long nextPoll;
+        long delay;
+        Waiting waiting;
+        int polls;
+
+        Entry(String txHash, long start, long deadline) {
+            this.txHash = txHash;
+            this.start = start;
+            this.deadline = deadline;
+            this.nextPoll = start;
+        }
+    }
+
+    /**
+     * @param pollIntervalMillis how often due hashes are collected and sent
+     */
+    public TxStatusTracker(JsonRpcClient client, long pollIntervalMillis) {
+        this.client = client;
+        backoffs.put(Waiting.PENDING, new long[]{1000, 4000});
+        backoffs.put(Waiting.EXECUTING, new long[]{200, 1000});
+        backoffs.put(Waiting.NOT_FOUND, new long[]{500, 8000});
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tx-tracker");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public TxStatusTracker(JsonRpcClient client) {
+        this(client, 200);
+    }
+
+    /**
+     * @param batchSize requests per JSON-RPC batch; nodes limit the size of a batch
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Sets the first and the longest wait before polling again a hash waiting for `reason`.
+     */
+    public synchronized void setBackoff(Waiting reason, long initialMillis, long maxMillis) {
+        backoffs.put(reason, new long[]{initialMillis, maxMillis});
+    }
+
+    /**
+     * Tracks `txHash` until it has a result or `timeoutMillis` passed.
+     */
+    public CompletableFuture<Completion> track(String txHash, long timeoutMillis) {
+        if (closed) {
+            throw new IllegalStateException("tracker is closed");
+        }
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(txHash, now, now + timeoutMillis);
+        inbox.add(entry);
+        return entry.future;
+    }
+
+    /**
+     * @return the completions of all tracked hashes
+     */
+    public Flow.Publisher<Completion> completions() {
+        return publisher;
+    }
+
+    private void poll() {
+        List<Entry> due = new ArrayList<>();
+        try {
+            Entry entry;
+            while ((entry = inbox.poll()) != null) {
+                schedule.add(entry);
+            }
+            long now = System.currentTimeMillis();
+            while (!schedule.isEmpty() && schedule.peek().nextPoll <= now) {
+                entry = schedule.poll();
+                if (entry.deadline <= now) {
+                    complete(entry, Status.EXPIRED, null,
+                            entry.waiting == null ? null : entry.waiting.name().toLowerCase());
+                } else {
+                    due.add(entry);
+                }
+            }
+            for (int i = 0; i < due.size(); i += batchSize) {
+                send(due.subList(i, Math.min(due.size(), i + batchSize)));
+            }
+        } catch (RuntimeException e) {
+            LOG.warning("tx tracker: " + e);
+            // put back what was neither completed nor rescheduled, and keep polling
+            for (Entry entry : due) {
+                if (!entry.future.isDone() && !schedule.contains(entry)) {
+                    schedule.add(entry);
+                }
+            }
+        }
+    }
+
+    private void send(List<Entry> batch) {
+        ArrayNode body = MAPPER.createArrayNode();
+        Map<Long, Entry> byId = new HashMap<>();
+        for (Entry entry : batch) {
+            JsonNode request = client.newRequest("icx_getTransactionResult",
+                    client.newParams().put("txHash", entry.txHash));
+            byId.put(request.get("id").asLong(), entry);
+            body.add(request);
+            entry.polls++;
+        }
+        long start = System.nanoTime();
+        JsonNode response;
+        try {
+            response = client.post(body);
+            if (!response.isArray()) {
+                throw new IOException("not a batch response: " + response);
+            }
+        } catch (IOException e) {
+            LOG.debug("tx tracker: " + e.getMessage());
+            long retry = System.currentTimeMillis() + backoff(Waiting.EXECUTING)[0];
+            for (Entry entry : batch) {
+                entry.nextPoll = retry;
+                schedule.add(entry);
+            }
+            return;
+        } finally {
+            batchLatency.recordSince(start);
+        }
+        long now = System.currentTimeMillis();
+        for (JsonNode item : response) {
+            Entry entry = byId.remove(item.path("id").asLong());
+            if (entry == null) {
+                continue;
+            }
+            JsonNode error = item.get("error");
+            if (error == null || error.isNull()) {
+                JsonNode result = item.get("result");
+                if (result == null || result.isNull()) {
+                    complete(entry, Status.ERROR, null, "neither result nor error");
+                    continue;
+                }
+                boolean success = "0x1".equals(result.path("status").asText());
+                complete(entry, success ? Status.SUCCESS : Status.FAILURE, result, null);
+                continue;
+            }
+            long code = error.path("code").asLong();
+            metrics.error(RpcMetrics.GET_RESULT, code);
+            Waiting waiting = Waiting.of(code);
+            if (waiting == null) {
+                complete(entry, Status.ERROR, null, code + " " + error.path("message").asText());
+                continue;
+            }
+            long[] backoff = backoff(waiting);
+            entry.delay = waiting == entry.waiting ? Math.min(backoff[1], entry.delay * 2) : backoff[0];
+            entry.waiting = waiting;
+            entry.nextPoll = Math.min(now + entry.delay, entry.deadline);
+            schedule.add(entry);
+        }
+        // missing from the response, ask again on the next tick
+        for (Entry entry : byId.values()) {
+            entry.nextPoll = now;
+            schedule.add(entry);
+        }
+    }
+
+    private synchronized long[] backoff(Waiting waiting) {
+        return backoffs.get(waiting);
+    }
+
+    private void complete(Entry entry, Status status, JsonNode result, String error) {
+        Completion completion = new Completion(entry.txHash, status, result, error,
+                System.currentTimeMillis() - entry.start, entry.polls);
+        entry.future.complete(completion);
+        publisher.submit(completion);
+    }
+
+    /**
+     * Stops polling. Hashes still tracked complete exceptionally with a
+     * {@link CancellationException}, and subscribers get {@code onComplete}.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        poller.shutdown();
+        try {
+            poller.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Entry entry;
+        while ((entry = inbox.poll()) != null) {
+            schedule.add(entry);
+        }
+        while ((entry = schedule.poll()) != null) {
+            entry.future.completeExceptionally(new CancellationException("tracker closed"));
+        }
+        publisher.close();
+    }
+}
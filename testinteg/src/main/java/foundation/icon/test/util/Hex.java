@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.util;
+
+import java.math.BigInteger;
+
+public class Hex {
+    public static BigInteger toBigInteger(String value) {
+        if (value == null) {
+            return BigInteger.ZERO;
+        }
+        if (value.startsWith("-0x")) {
+            return new BigInteger(value.substring(3), 16).negate();
+        }
+        if (value.startsWith("0x")) {
+            return new BigInteger(value.substring(2), 16);
+        }
+        return new BigInteger(value, 16);
+    }
+
+    public static long toLong(String value) {
+        return toBigInteger(value).longValueExact();
+    }
+
+    /**
+     * @return the bytes of `value`, with or without the 0x prefix, or null if `value` is null
+     */
+    public static byte[] toBytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        int start = value.startsWith("0x") ? 2 : 0;
+        int length = value.length() - start;
+        if (length % 2 != 0) {
+            throw new IllegalArgumentException("odd number of hex digits: " + value);
+        }
+        byte[] bytes = new byte[length / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int hi = Character.digit(value.charAt(start + 2 * i), 16);
+            int lo = Character.digit(value.charAt(start + 2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                throw new IllegalArgumentException("invalid hex: " + value);
+            }
+            bytes[i] = (byte) (hi << 4 | lo);
+        }
+        return bytes;
+    }
+
+    public static String of(long value) {
+        return "0x" + Long.toHexString(value);
+    }
+
+    public static String of(BigInteger value) {
+        if (value.signum() < 0) {
+            return "-0x" + value.negate().toString(16);
+        }
+        return "0x" + value.toString(16);
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LogTest {
+
+    @Test
+    void suppliers_are_only_called_when_loggable() {
+        List<String> lines = new ArrayList<>();
+        Log log = new Log(lines::add);
+        log.debug(() -> {
+            throw new AssertionError("debug message built at info level");
+        });
+        log.info(() -> "built");
+        assertEquals(List.of("built"), lines);
+    }
+
+    @Test
+    void frames_are_tracked_per_thread() throws Exception {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        Log log = new Log(lines::add);
+        log.infoEntering("main");
+        Thread other = new Thread(() -> log.info("other"));
+        other.start();
+        other.join();
+        log.info("inside");
+        log.infoExiting();
+
+        assertTrue(lines.contains("other"));
+        assertTrue(lines.contains("   inside"));
+        assertEquals("<-- main", lines.get(lines.size() - 1));
+    }
+
+    @Test
+    void json_lines_are_escaped() {
+        List<String> lines = new ArrayList<>();
+        Log log = new Log(lines::add);
+        log.setJson(true);
+        log.infoEntering("task");
+        log.warning("say \"hi\"\n");
+        log.infoExiting();
+
+        String line = lines.get(1);
+        assertTrue(line.contains("\"level\":\"WARNING\""), line);
+        assertTrue(line.contains("\"task\":\"task\""), line);
+        assertTrue(line.endsWith("\"msg\":\"say \\\"hi\\\"\\n\"}"), line);
+    }
+
+    @Test
+    void async_appender_writes_every_line_in_order() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Log log = new Log(new Log.AsyncAppender(new PrintStream(bytes, true), 16));
+        for (int i = 0; i < 1000; i++) {
+            log.info("line " + i);
+        }
+        log.flush();
+
+        String[] lines = bytes.toString().split(System.lineSeparator());
+        assertEquals(1000, lines.length);
+        assertEquals("line 999", lines[999]);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test;
+
+import foundation.icon.icx.KeyWallet;
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WalletStoreTest {
+
+    @Test
+    void derivesDeterministically() throws Exception {
+        try (WalletStore a = WalletStore.derive("load-test", 200, 4);
+             WalletStore b = WalletStore.derive("load-test", 50, 2);
+             WalletStore c = WalletStore.derive("other", 50, 2)) {
+            assertEquals(200, a.size());
+            Set<Address> addresses = new HashSet<>();
+            for (int i = 0; i < a.size(); i++) {
+                addresses.add(a.getAddress(i));
+            }
+            assertEquals(200, addresses.size());
+            for (int i = 0; i < b.size(); i++) {
+                assertEquals(a.getAddress(i), b.getAddress(i));
+                assertEquals(a.get(i).getPrivateKey(), b.get(i).getPrivateKey());
+                assertNotEquals(a.getAddress(i), c.getAddress(i));
+            }
+            assertEquals(a.getAddress(7), a.get(7).getAddress());
+        }
+    }
+
+    @Test
+    void walletsSignWithTheDerivedKey() throws Exception {
+        byte[] message = "transfer".getBytes(StandardCharsets.UTF_8);
+        try (WalletStore store = WalletStore.derive("signing", 4, 2)) {
+            for (int i = 0; i < store.size(); i++) {
+                byte[] key = WalletStore.deriveKey("signing".getBytes(StandardCharsets.UTF_8), i);
+                KeyWallet expected = KeyWallet.load(new Bytes(key));
+                assertArrayEquals(expected.sign(message), store.get(i).sign(message));
+                assertArrayEquals(expected.sign(message), store.wallets().get(i).sign(message));
+                assertEquals(expected.getAddress(), store.getAddress(i));
+            }
+        }
+    }
+
+    @Test
+    void decryptsKeystoresInParallel() throws Exception {
+        Path dir = Files.createTempDirectory("keystores");
+        try {
+            List<Wallet> expected;
+            try (WalletStore derived = WalletStore.derive("keystores", 8, 2)) {
+                expected = derived.wallets();
+            }
+            for (Wallet wallet : expected) {
+                KeyWallet.store((KeyWallet) wallet, "secret", dir.toFile());
+            }
+            Set<Address> addresses = new HashSet<>();
+            try (WalletStore store = WalletStore.load(dir, "secret", 4)) {
+                assertEquals(8, store.size());
+                for (Wallet wallet : store.wallets()) {
+                    addresses.add(wallet.getAddress());
+                }
+            }
+            for (Wallet wallet : expected) {
+                assertTrue(addresses.contains(wallet.getAddress()));
+            }
+            assertThrows(IOException.class, () -> WalletStore.load(dir, "wrong", 4));
+        } finally {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path p : files.toArray(Path[]::new)) {
+                    Files.delete(p);
+                }
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void closeZeroesKeys() throws Exception {
+        WalletStore store = WalletStore.derive("closing", 3, 1);
+        store.get(2);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.get(2));
+        assertThrows(IllegalStateException.class, () -> store.getAddress(0));
+    }
+}
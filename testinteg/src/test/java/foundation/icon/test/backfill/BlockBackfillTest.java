@@ -0,0 +1,269 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.backfill;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import foundation.icon.test.events.StableCoinEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.util.Hex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockBackfillTest {
+    private static final String TOKEN = "cx0000000000000000000000000000000000000001";
+    private static final String OTHER = "cx0000000000000000000000000000000000000002";
+    private static final String ALICE = "hx0000000000000000000000000000000000000a11";
+    private static final String BOB = "hx0000000000000000000000000000000000000b0b";
+
+    private HttpServer server;
+    private JsonRpcClient client;
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private volatile int failEvery;
+    // results are answered with a pending error the first time they are asked
+    private volatile boolean pendingOnce;
+    private final Set<String> asked = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger blockRequests = new AtomicInteger();
+
+    @BeforeEach
+    void startFixtureServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3", exchange -> {
+            int n = httpRequests.incrementAndGet();
+            byte[] bytes;
+            int status = 200;
+            if (failEvery > 0 && n % failEvery == 0) {
+                status = 503;
+                bytes = "Service Unavailable".getBytes(StandardCharsets.UTF_8);
+            } else {
+                JsonNode body = MAPPER.readTree(exchange.getRequestBody());
+                ArrayNode responses = MAPPER.createArrayNode();
+                // answer in reverse order, clients must match by id
+                for (int i = body.size() - 1; i >= 0; i--) {
+                    responses.add(answer(body.get(i)));
+                }
+                bytes = MAPPER.writeValueAsBytes(responses);
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.start();
+        client = new JsonRpcClient("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3");
+    }
+
+    @AfterEach
+    void stopFixtureServer() {
+        server.stop(0);
+    }
+
+    /**
+     * Every third block has a transfer of the token, every fifth a call to another contract.
+     */
+    private JsonNode answer(JsonNode request) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        JsonNode params = request.path("params");
+        if (request.path("method").asText().equals("icx_getBlockByHeight")) {
+            blockRequests.incrementAndGet();
+            long height = Hex.toLong(params.path("height").asText());
+            ObjectNode block = response.putObject("result");
+            block.put("height", height);
+            ArrayNode txs = block.putArray("confirmed_transaction_list");
+            if (height % 3 == 0) {
+                txs.addObject().put("to", TOKEN).put("txHash", Hex.of(height * 16 + 1));
+            }
+            if (height % 5 == 0) {
+                txs.addObject().put("to", OTHER).put("txHash", Hex.of(height * 16 + 2));
+            }
+        } else if (pendingOnce && asked.add(params.path("txHash").asText())) {
+            response.putObject("error").put("code", -31002).put("message", "Pending");
+        } else {
+            long id = Hex.toLong(params.path("txHash").asText());
+            long height = id / 16;
+            ObjectNode result = response.putObject("result");
+            result.put("txHash", Hex.of(id)).put("blockHeight", Hex.of(height)).put("status", "0x1");
+            ArrayNode logs = result.putArray("eventLogs");
+            ObjectNode log = logs.addObject().put("scoreAddress", id % 16 == 1 ? TOKEN : OTHER);
+            log.putArray("indexed").add("Transfer(Address,Address,int,bytes)")
+                    .add(ALICE).add(BOB).add(Hex.of(height));
+            log.putArray("data").addNull();
+        }
+        return response;
+    }
+
+    private BlockBackfill newBackfill() {
+        BlockBackfill backfill = new BlockBackfill(List.of(client), TOKEN);
+        backfill.setChunkSize(7);
+        backfill.setWorkers(4);
+        backfill.setBatchSize(5);
+        backfill.setRetries(5, 1);
+        backfill.setRateLimiter(new AdaptiveRateLimiter(5000, 100, 10000));
+        return backfill;
+    }
+
+    private static void assertInOrder(List<StableCoinEvent> events, long from, long to) {
+        long expected = (from + 2) / 3 * 3;
+        for (StableCoinEvent event : events) {
+            assertEquals(expected, event.getBlockHeight());
+            assertEquals(BigInteger.valueOf(expected), ((TransferEvent) event).value);
+            expected += 3;
+        }
+        assertEquals(to / 3 * 3 + 3, expected);
+    }
+
+    @Test
+    void emits_events_in_height_order_despite_failures() throws Exception {
+        failEvery = 4;
+        List<StableCoinEvent> events = Collections.synchronizedList(new ArrayList<>());
+        List<Long> chunkStarts = new ArrayList<>();
+        Path checkpoint = Files.createTempFile("backfill", ".ckpt");
+        Files.delete(checkpoint);
+        try {
+            long count = newBackfill().run(1, 300, checkpoint, chunk -> {
+                chunkStarts.add(chunk.from);
+                events.addAll(chunk.events);
+            });
+            assertEquals(100, count);
+            assertInOrder(events, 1, 300);
+            for (int i = 0; i < chunkStarts.size(); i++) {
+                assertEquals(1 + 7L * i, chunkStarts.get(i).longValue());
+            }
+            assertEquals(301, BlockBackfill.readCheckpoint(checkpoint));
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test
+    void resumes_from_checkpoint() throws Exception {
+        Path checkpoint = Files.createTempFile("backfill", ".ckpt");
+        try {
+            BlockBackfill.writeCheckpoint(checkpoint, 151);
+            List<StableCoinEvent> events = new ArrayList<>();
+            newBackfill().run(1, 300, checkpoint, chunk -> events.addAll(chunk.events));
+            assertInOrder(events, 151, 300);
+            assertEquals(301, BlockBackfill.readCheckpoint(checkpoint));
+        } finally {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    @Test
+    void retries_only_the_failed_results() throws Exception {
+        pendingOnce = true;
+        List<StableCoinEvent> events = new ArrayList<>();
+        long count = newBackfill().run(1, 300, null, chunk -> events.addAll(chunk.events));
+        assertEquals(100, count);
+        assertInOrder(events, 1, 300);
+        // a failed result does not fetch its chunk again
+        assertEquals(300, blockRequests.get());
+    }
+
+    @Test
+    void gives_up_after_retries() {
+        failEvery = 1;
+        assertThrows(IOException.class, () -> newBackfill().run(1, 50, null, chunk -> {
+        }));
+    }
+
+    @Test
+    void reorder_buffer_releases_in_sequence() throws Exception {
+        List<Integer> out = new ArrayList<>();
+        ReorderBuffer<Integer> buffer = new ReorderBuffer<>(0, 4, out::add);
+        buffer.put(2, 2);
+        buffer.put(1, 1);
+        assertTrue(out.isEmpty());
+        buffer.put(0, 0);
+        assertEquals(List.of(0, 1, 2), out);
+        buffer.awaitSlot(6);
+        buffer.put(3, 3);
+        buffer.awaitAll(4);
+        assertEquals(4, buffer.next());
+    }
+
+    @Test
+    void reorder_buffer_drains_outside_the_lock() throws Exception {
+        List<Integer> out = new ArrayList<>();
+        AtomicInteger inSink = new AtomicInteger();
+        AtomicInteger broken = new AtomicInteger();
+        List<ReorderBuffer<Integer>> self = new ArrayList<>();
+        ReorderBuffer<Integer> buffer = new ReorderBuffer<>(0, 64, item -> {
+            // one caller at a time, none of them holding the buffer's lock
+            if (inSink.incrementAndGet() != 1 || Thread.holdsLock(self.get(0))) {
+                broken.incrementAndGet();
+            }
+            out.add(item);
+            inSink.decrementAndGet();
+        });
+        self.add(buffer);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 2000; i++) {
+                int seq = i;
+                buffer.awaitSlot(seq);
+                pool.execute(() -> buffer.put(seq, seq));
+            }
+            buffer.awaitAll(2000);
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(0, broken.get());
+        assertEquals(2000, out.size());
+        for (int i = 0; i < out.size(); i++) {
+            assertEquals(i, (int) out.get(i));
+        }
+    }
+
+    @Test
+    void rate_backs_off_once_per_burst() {
+        AdaptiveRateLimiter limiter = new AdaptiveRateLimiter(100, 10, 120);
+        limiter.onThrottle();
+        limiter.onThrottle();
+        assertEquals(50, limiter.getRate(), 1e-9);
+        for (int i = 0; i < 10_000; i++) {
+            limiter.onSuccess();
+        }
+        assertEquals(120, limiter.getRate(), 1e-9);
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.events;
+
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import foundation.icon.test.events.StableCoinEvent.MintEvent;
+import foundation.icon.test.events.StableCoinEvent.TogglePauseEvent;
+import foundation.icon.test.events.StableCoinEvent.TransferEvent;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EventDecoderTest {
+    private static final String TOKEN = "cx0000000000000000000000000000000000000001";
+    private static final String OTHER = "cx0000000000000000000000000000000000000002";
+    private static final String ALICE = "hx0000000000000000000000000000000000000a11";
+    private static final String BOB = "hx0000000000000000000000000000000000000b0b";
+
+    private static String result(String txHash, String height, String logs) {
+        return "{\"status\":\"0x1\",\"eventLogs\":[" + logs + "],\"blockHeight\":\"" + height
+                + "\",\"stepUsedDetails\":{\"" + TOKEN + "\":\"0x10\"},\"txHash\":\"" + txHash + "\"}";
+    }
+
+    private static String log(String score, String indexed, String data) {
+        return "{\"scoreAddress\":\"" + score + "\",\"indexed\":[" + indexed + "],\"data\":[" + data + "]}";
+    }
+
+    private static final String TRANSFER = log(TOKEN,
+            "\"Transfer(Address,Address,int,bytes)\",\"" + ALICE + "\",\"" + BOB + "\",\"0x64\"", "\"0x0102\"");
+    private static final String MINT = log(TOKEN, "\"Mint(Address,int)\",\"" + ALICE + "\"", "\"0x3e8\"");
+
+    @Test
+    void decodes_typed_events_of_the_token() throws Exception {
+        String response = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result("0xabc", "0x10",
+                MINT + "," + log(OTHER, "\"Mint(Address,int)\",\"" + BOB + "\"", "\"0x1\"")
+                        + "," + log(TOKEN, "\"Unknown(int)\",{\"nested\":[1,2]}", "\"0x1\"")
+                        + "," + TRANSFER) + "}";
+        List<StableCoinEvent> events = new EventDecoder(TOKEN).decode(response);
+
+        assertEquals(2, events.size());
+        MintEvent mint = (MintEvent) events.get(0);
+        assertEquals(ALICE, mint.to);
+        assertEquals(BigInteger.valueOf(1000), mint.value);
+        assertEquals(0, mint.getLogIndex());
+
+        TransferEvent transfer = (TransferEvent) events.get(1);
+        assertEquals(ALICE, transfer.from);
+        assertEquals(BOB, transfer.to);
+        assertEquals(BigInteger.valueOf(100), transfer.value);
+        assertArrayEquals(new byte[]{1, 2}, transfer.data);
+        assertEquals(3, transfer.getLogIndex());
+        assertEquals("0xabc", transfer.getTxHash());
+        assertEquals(16, transfer.getBlockHeight());
+        assertEquals(TOKEN, transfer.getScoreAddress());
+    }
+
+    @Test
+    void streams_batch_responses_in_order() throws Exception {
+        String batch = "[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result("0x1", "0x5", TRANSFER) + "},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":" + result("0x2", "0x6",
+                log(TOKEN, "\"TogglePause(Address,bool)\",\"" + ALICE + "\",\"0x1\"", "")) + "}]";
+        List<StableCoinEvent> events = new ArrayList<>();
+        new EventDecoder(null).decode(new ByteArrayInputStream(batch.getBytes(StandardCharsets.UTF_8)), events::add);
+
+        assertEquals(2, events.size());
+        assertEquals("0x1", events.get(0).getTxHash());
+        assertTrue(((TogglePauseEvent) events.get(1)).status);
+        assertEquals(6, events.get(1).getBlockHeight());
+    }
+
+    @Test
+    void null_data_and_missing_fields() throws Exception {
+        String transfer = log(TOKEN,
+                "\"Transfer(Address,Address,int,bytes)\",\"" + ALICE + "\",\"" + BOB + "\",\"0x1\"", "null");
+        List<StableCoinEvent> events = new EventDecoder(TOKEN).decode("{\"eventLogs\":[" + transfer + "]}");
+        TransferEvent event = (TransferEvent) events.get(0);
+        assertNull(event.data);
+        assertNull(event.getTxHash());
+        assertEquals(-1, event.getBlockHeight());
+        assertFalse(EventDecoder.isKnownSignature("Transfer(Address,Address,int)"));
+    }
+
+    @Test
+    void errors_are_reported() {
+        RpcError error = assertThrows(RpcError.class, () -> new EventDecoder(TOKEN).decode(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"error\":{\"code\":-31002,\"message\":\"Pending\"}}"));
+        assertEquals(-31002, error.getCode());
+        assertThrows(IOException.class, () -> new EventDecoder(TOKEN).decode(
+                "{\"eventLogs\":[" + log(TOKEN, "\"Mint(Address,int)\",\"" + ALICE + "\"", "") + "]}"));
+    }
+
+    @Test
+    void failed_batch_entries_do_not_fail_the_batch() throws Exception {
+        String batch = "[{\"jsonrpc\":\"2.0\",\"error\":{\"code\":-31002,\"message\":\"Pending\"},\"id\":7},"
+                + "{\"jsonrpc\":\"2.0\",\"id\":8,\"result\":" + result("0x8", "0x5", MINT) + "}]";
+        List<StableCoinEvent> events = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        new EventDecoder(TOKEN).decode(new ByteArrayInputStream(batch.getBytes(StandardCharsets.UTF_8)), events::add,
+                (id, error) -> errors.add(id + " " + error.getCode()));
+        assertEquals(List.of("7 -31002"), errors);
+        assertEquals(1, events.size());
+        assertEquals("0x8", events.get(0).getTxHash());
+
+        // skipped without a handler
+        assertEquals(1, new EventDecoder(TOKEN).decode(batch).size());
+    }
+}
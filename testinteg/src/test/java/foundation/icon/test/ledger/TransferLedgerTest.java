@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.ledger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TransferLedgerTest {
+    private static final String[] ACCOUNTS = new String[10];
+
+    static {
+        for (int i = 0; i < ACCOUNTS.length; i++) {
+            ACCOUNTS[i] = String.format("%s%040x", i % 3 == 0 ? "cx" : "hx", 0x1000 + i * 7919L);
+        }
+    }
+
+    private Path dir;
+
+    @BeforeEach
+    void createDir() throws IOException {
+        dir = Files.createTempDirectory("ledger");
+    }
+
+    @AfterEach
+    void deleteDir() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    /**
+     * Record i: height i / 3, from account i % 10 to (i * 3 + 1) % 10, amount i.
+     */
+    private static void fill(TransferLedger ledger, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            assertTrue(ledger.append(i / 3, i % 3, 0, ACCOUNTS[i % 10], ACCOUNTS[(i * 3 + 1) % 10],
+                    BigInteger.valueOf(i)));
+        }
+    }
+
+    private static List<Long> expectedHistory(int account, int records) {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < records; i++) {
+            if (i % 10 == account || (i * 3 + 1) % 10 == account) {
+                expected.add((long) i);
+            }
+        }
+        return expected;
+    }
+
+    private static List<Long> history(TransferLedger ledger, int account) {
+        Postings postings = ledger.history(ACCOUNTS[account]);
+        List<Long> numbers = new ArrayList<>();
+        for (int i = 0; i < postings.size(); i++) {
+            numbers.add(postings.get(i));
+        }
+        return numbers;
+    }
+
+    @Test
+    void records_round_trip_across_segments() throws Exception {
+        try (TransferLedger ledger = TransferLedger.open(dir, 8)) {
+            fill(ledger, 0, 30);
+            assertFalse(ledger.append(9, 2, 0, ACCOUNTS[0], ACCOUNTS[1], BigInteger.ONE));
+            assertFalse(ledger.append(3, 0, 0, ACCOUNTS[0], ACCOUNTS[1], BigInteger.ONE));
+            TransferRecord record = ledger.read(29, null);
+            assertEquals(9, record.getHeight());
+            assertEquals(2, record.getTxIndex());
+            assertEquals(ACCOUNTS[9], record.getFrom());
+            assertEquals(ACCOUNTS[8], record.getTo());
+            assertEquals(BigInteger.valueOf(29), record.getAmount());
+            assertTrue(record.isFrom(TransferRecord.encodeAddress(ACCOUNTS[9])));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(4, files.filter(p -> p.getFileName().toString().startsWith("segment-")).count());
+        }
+
+        BigInteger large = BigInteger.ONE.shiftLeft(255).add(BigInteger.TEN);
+        try (TransferLedger ledger = TransferLedger.open(dir, 1000)) {
+            assertEquals(30, ledger.size());
+            ledger.append(100, 0, 0, ACCOUNTS[1], ACCOUNTS[2], large);
+            assertEquals(large, ledger.read(30, null).getAmount());
+        }
+    }
+
+    @Test
+    void history_merges_index_and_recent_records() throws Exception {
+        try (TransferLedger ledger = TransferLedger.open(dir, 64)) {
+            fill(ledger, 0, 100);
+        }
+        // a second session indexed on close, then a third one that only commits
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            fill(ledger, 100, 150);
+        }
+        // left open, as if the process stopped after the commit
+        TransferLedger crashed = TransferLedger.open(dir);
+        fill(crashed, 150, 200);
+        crashed.commit(false);
+
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            assertEquals(200, ledger.size());
+            for (int account = 0; account < ACCOUNTS.length; account++) {
+                assertEquals(expectedHistory(account, 200), history(ledger, account));
+            }
+            assertEquals(0, ledger.history(String.format("hx%040x", 1)).size());
+        }
+    }
+
+    @Test
+    void reopens_after_uncommitted_rollover() throws Exception {
+        try (TransferLedger ledger = TransferLedger.open(dir, 8)) {
+            fill(ledger, 0, 5);
+        }
+        // left open, as if the process stopped after starting the second segment
+        TransferLedger crashed = TransferLedger.open(dir);
+        fill(crashed, 5, 12);
+
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            assertEquals(8, ledger.size());
+            fill(ledger, 8, 20);
+        }
+        // a ledger that rolled over without counting the full segment keeps its committed records
+        try (FileChannel channel = FileChannel.open(dir.resolve("segment-000000.dat"), StandardOpenOption.WRITE)) {
+            ByteBuffer count = ByteBuffer.allocate(4).putInt(0, 6);
+            channel.write(count, 20);
+        }
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            assertEquals(6, ledger.size());
+            fill(ledger, 6, 20);
+        }
+        try (TransferLedger ledger = TransferLedger.open(dir)) {
+            assertEquals(20, ledger.size());
+            for (int account = 0; account < ACCOUNTS.length; account++) {
+                assertEquals(expectedHistory(account, 20), history(ledger, account));
+            }
+        }
+    }
+
+    @Test
+    void scans_height_ranges() throws Exception {
+        try (TransferLedger ledger = TransferLedger.open(dir, 1000)) {
+            fill(ledger, 0, 6000);
+            assertEquals(0, ledger.firstAtOrAfter(0));
+            assertEquals(3 * 1500, ledger.firstAtOrAfter(1500));
+            assertEquals(6000, ledger.firstAtOrAfter(2000));
+            List<Long> heights = new ArrayList<>();
+            ledger.scan(700, 702, r -> heights.add(r.getHeight()));
+            assertEquals(List.of(700L, 700L, 700L, 701L, 701L, 701L, 702L, 702L, 702L), heights);
+        }
+    }
+
+    @Test
+    void compaction_filters_and_reindexes() throws Exception {
+        try (TransferLedger ledger = TransferLedger.open(dir, 16)) {
+            fill(ledger, 0, 100);
+        }
+        Path target = dir.resolve("compacted");
+        long kept = TransferLedger.compact(dir, target, 1024, r -> r.getHeight() >= 10);
+        assertEquals(70, kept);
+        try (TransferLedger ledger = TransferLedger.open(target)) {
+            assertEquals(70, ledger.size());
+            assertEquals(10, ledger.read(0, null).getHeight());
+            Postings postings = ledger.history(ACCOUNTS[3]);
+            List<Long> expected = expectedHistory(3, 100);
+            expected.removeIf(i -> i < 30);
+            assertEquals(expected.size(), postings.size());
+            for (int i = 0; i < postings.size(); i++) {
+                assertEquals(expected.get(i) - 30, postings.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.metrics;
+
+import foundation.icon.icx.data.Bytes;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MetricsTest {
+
+    @Test
+    void bucket_bounds_are_contiguous() {
+        assertEquals(0, Histogram.index(0));
+        for (long v = 1; v < 1_000_000; v++) {
+            int index = Histogram.index(v);
+            assertTrue(Histogram.highestEquivalent(index) >= v);
+            assertTrue(index == 0 || Histogram.highestEquivalent(index - 1) < v);
+        }
+        assertTrue(Histogram.index(Long.MAX_VALUE) > Histogram.index(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void quantiles_are_within_bucket_precision() {
+        Histogram h = new Histogram();
+        for (long v = 1; v <= 10_000; v++) {
+            h.record(v);
+        }
+        assertEquals(10_000, h.getCount());
+        assertEquals(10_000, h.getMaxMicros());
+        long p50 = h.getQuantileMicros(0.5);
+        long p99 = h.getQuantileMicros(0.99);
+        assertTrue(p50 >= 5_000 && p50 <= 5_000 * 1.07, "p50=" + p50);
+        assertTrue(p99 >= 9_900 && p99 <= 10_000, "p99=" + p99);
+
+        Histogram exact = new Histogram();
+        exact.record(31);
+        assertEquals(31, exact.getQuantileMicros(1.0));
+    }
+
+    @Test
+    void prometheus_text_has_types_and_labels() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("rpc_errors_total", "method", "icx_getTransactionResult", "code", "-31002").add(3);
+        registry.gauge(() -> 7, "tx_in_flight");
+        registry.histogram("rpc_latency", "method", "icx_call").record(1_500);
+
+        StringWriter out = new StringWriter();
+        registry.writePrometheus(out);
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE rpc_errors_total counter\n"), text);
+        assertTrue(text.contains("rpc_errors_total{method=\"icx_getTransactionResult\",code=\"-31002\"} 3\n"), text);
+        assertTrue(text.contains("tx_in_flight 7\n"), text);
+        assertTrue(text.contains("# TYPE rpc_latency summary\n"), text);
+        assertTrue(text.contains("rpc_latency{method=\"icx_call\",quantile=\"0.5\"} 0.0015"), text);
+        assertTrue(text.contains("rpc_latency_count{method=\"icx_call\"} 1\n"), text);
+    }
+
+    @Test
+    void in_flight_transactions_are_kept_when_full() {
+        MetricsRegistry registry = new MetricsRegistry();
+        RpcMetrics metrics = new RpcMetrics(registry, 2);
+        long start = System.nanoTime();
+        metrics.sent(new Bytes("0x01"), start);
+        metrics.sent(new Bytes("0x02"), start);
+        metrics.sent(new Bytes("0x03"), start);
+        metrics.finalized(new Bytes("0x01"));
+        metrics.finalized(new Bytes("0x02"));
+        metrics.finalized(new Bytes("0x03"));
+        assertEquals(2, metrics.finalizeLatency().getCount());
+        assertEquals(1, registry.counter("tx_untimed_total").sum());
+    }
+
+    @Test
+    void csv_has_one_row_per_metric() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("sent").increment();
+        registry.histogram("latency").record(2_000);
+
+        StringWriter out = new StringWriter();
+        registry.writeCsv(out, true);
+        String[] rows = out.toString().split("\n");
+        assertEquals(3, rows.length);
+        assertTrue(rows[0].startsWith("time,metric,count"));
+        assertTrue(rows[1].endsWith(",\"sent\",1,,,,"), rows[1]);
+        assertTrue(rows[2].endsWith(",\"latency\",1,2.000,2.000,2.000,2.000"), rows[2]);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DepositForecasterTest {
+    private static final String ALICE = "hx0000000000000000000000000000000000000a11";
+    private static final String BOB = "hx0000000000000000000000000000000000000b0b";
+
+    private static TxRecord transfer(String from, long height, long scoreSteps) {
+        return new TxRecord("0x" + height, from, height, 0, "transfer", true, BigInteger.valueOf(1000),
+                BigInteger.TEN, BigInteger.valueOf(scoreSteps), List.of("Transfer"));
+    }
+
+    @Test
+    void forecastsObservedBurn() {
+        DepositForecaster forecaster = new DepositForecaster(List.of(
+                transfer(ALICE, 199, 1000), transfer(ALICE, 100, 1000), transfer(BOB, 150, 1000)));
+        assertEquals(100, forecaster.windowBlocks());
+        // 3 x 10000 loop paid by the contract over 100 blocks
+        assertEquals(0, BigDecimal.valueOf(300).compareTo(forecaster.observedBurnPerBlock()));
+        assertEquals(10, DepositForecaster.blocksToEmpty(BigInteger.valueOf(3000), BigDecimal.valueOf(300)));
+        assertEquals(Long.MAX_VALUE, DepositForecaster.blocksToEmpty(BigInteger.ONE, BigDecimal.ZERO));
+    }
+
+    @Test
+    void projectsLimitedBurn() {
+        DepositForecaster forecaster = new DepositForecaster(List.of(
+                transfer(ALICE, 100, 1000), transfer(ALICE, 150, 1000), transfer(BOB, 199, 0)));
+        // scaled to a term, both senders exceed 100 transfers; each one costs 10000 loop on average
+        double expected = 10000.0 * 200 / DepositForecaster.TERM_LENGTH;
+        assertEquals(expected, forecaster.projectedBurnPerBlock(100).doubleValue(), 1e-9);
+        assertEquals(0, BigDecimal.ZERO.compareTo(
+                new DepositForecaster(List.of(transfer(BOB, 1, 0))).projectedBurnPerBlock(100)));
+    }
+
+    @Test
+    void simulatesTopUps() {
+        List<TxRecord> records = new ArrayList<>();
+        for (int height = 0; height < 10; height++) {
+            records.add(transfer(ALICE, height, 100));
+        }
+        DepositForecaster forecaster = new DepositForecaster(records);
+        TopUpPlan.Policy policy = new TopUpPlan.Policy(1, 5, 100, BigInteger.ZERO, BigInteger.valueOf(1_000_000));
+        DepositForecaster.SimulationResult result = forecaster.simulate(BigInteger.ZERO, policy);
+        // the first transfer finds no deposit and no rate yet; top-ups at the 2nd, 4th and 8th transfer
+        assertEquals(1, result.unsponsored);
+        assertEquals(0, result.firstDrainHeight);
+        assertEquals(3, result.topUps);
+        assertEquals(BigInteger.valueOf(2500 + 3750 + 4375), result.deposited);
+        assertEquals(BigInteger.ZERO, result.minDeposit);
+    }
+}
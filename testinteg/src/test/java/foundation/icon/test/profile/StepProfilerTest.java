@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StepProfilerTest {
+    private static final BigInteger STEP_PRICE = BigInteger.valueOf(12_500_000_000L);
+
+    @Test
+    void aggregates_recorded_fixture() throws Exception {
+        TxFixture fixture = TxFixture.load(Path.of("conf/fixtures/stablecoin-tx.json"));
+        String score = fixture.firstDestination();
+        assertEquals("cxbb2871f468a3008f80b08fdde5b8b951583acf06", score);
+        List<TxRecord> records = fixture.toRecords(score);
+        assertEquals(9, records.size());
+        assertEquals(9, fixture.getResults().size());
+        assertEquals(5, records.stream().filter(TxRecord::isSponsored).count());
+
+        StepProfiler profiler = new StepProfiler();
+        profiler.addAll(records);
+        StepStats total = profiler.getTotal();
+        assertEquals(9, total.getCount());
+        assertEquals(1, total.getFailures());
+        assertEquals(BigInteger.valueOf(1_034_800), total.getTotalSteps());
+        assertEquals(BigInteger.valueOf(1_034_800).multiply(STEP_PRICE), total.getTotalFee());
+        assertEquals(BigInteger.valueOf(614_800).multiply(STEP_PRICE), total.getScoreFee());
+
+        Map<String, StepStats> byMethod = profiler.getByMethod();
+        assertEquals(Set.of("approve", "mintTo", "transfer", "burn"), byMethod.keySet());
+        StepStats transfers = byMethod.get("transfer");
+        assertEquals(6, transfers.getCount());
+        assertEquals(1, transfers.getFailures());
+        assertEquals(BigInteger.valueOf(678_800), transfers.getTotalSteps());
+        assertEquals(119_900, transfers.percentile(50));
+        assertEquals(130_100, transfers.percentile(90));
+        assertEquals(64_000, transfers.percentile(1));
+        assertEquals(156_000, byMethod.get("mintTo").percentile(100));
+
+        Map<LocalDate, Map<String, StepStats>> byDay = profiler.getByDay();
+        assertEquals(2, byDay.size());
+        assertEquals(3, byDay.get(LocalDate.of(2022, 10, 1)).get("transfer").getCount());
+        assertEquals(3, byDay.get(LocalDate.of(2022, 10, 2)).get("transfer").getCount());
+        assertEquals(1, byDay.get(LocalDate.of(2022, 10, 2)).get("burn").getCount());
+    }
+
+    @Test
+    void parses_options() {
+        assertEquals(Map.of("fixture", "tx.json", "csv", "true"),
+                StepProfiler.parseArgs(new String[]{"--fixture", "tx.json", "--csv"}));
+        assertThrows(IllegalArgumentException.class, () -> StepProfiler.parseArgs(new String[]{"tx.json"}));
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.profile;
+
+import foundation.icon.test.profile.TopUpPlan.Policy;
+import foundation.icon.test.profile.TopUpPlan.TopUp;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TopUpPlanTest {
+
+    private static BigInteger v(long value) {
+        return BigInteger.valueOf(value);
+    }
+
+    @Test
+    void rejectsInvalidDepositBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new Policy(10, 10, 100, v(0), v(0)));
+        assertThrows(IllegalArgumentException.class, () -> new Policy(10, 10, 100, v(5), v(4)));
+    }
+
+    @Test
+    void batchesWithinBounds() {
+        Policy policy = new Policy(100, 500, 2000, v(1000), v(2000));
+        assertEquals(List.of(v(2000), v(2000), v(1000)), policy.batch(BigDecimal.TEN));
+        assertEquals(v(1000), policy.reserve(BigDecimal.TEN));
+        // a small need is raised to the minimum deposit
+        assertEquals(List.of(v(1000)), policy.batch(BigDecimal.ONE));
+    }
+
+    @Test
+    void schedulesTopUpsAtReserve() {
+        Policy policy = new Policy(100, 500, 2000, v(1000), v(2000));
+        List<TopUp> topUps = TopUpPlan.create(v(3000), 0, BigDecimal.TEN, policy).getTopUps();
+        // 3000 lasts 200 blocks down to the reserve, each batch of 5000 another 500
+        assertEquals(12, topUps.size());
+        long[] heights = {200, 700, 1200, 1700};
+        for (int i = 0; i < topUps.size(); i++) {
+            assertEquals(heights[i / 3], topUps.get(i).height);
+        }
+        assertEquals(v(2000), topUps.get(0).amount);
+        assertEquals(v(1000), topUps.get(2).amount);
+        assertEquals(6, TopUpPlan.create(v(3000), 0, BigDecimal.TEN, policy).due(700).size());
+    }
+
+    @Test
+    void repeatsBatchesSmallerThanTheBurn() {
+        // one batch (10 x 100) covers a single block of burn, far below the reserve of 10 blocks
+        Policy policy = new Policy(10, 1, 5, v(0), v(100));
+        List<TopUp> topUps = TopUpPlan.create(v(0), 0, BigDecimal.valueOf(1000), policy).getTopUps();
+        BigInteger first = BigInteger.ZERO;
+        for (TopUp topUp : topUps) {
+            assertTrue(topUp.height <= 5);
+            if (topUp.height == 0) {
+                first = first.add(topUp.amount);
+            }
+        }
+        // enough for the reserve and the next block, then one batch per block
+        assertEquals(v(11000), first);
+        assertEquals(110 + 5 * 10, topUps.size());
+    }
+
+    @Test
+    void plansNothingWithoutBurn() {
+        Policy policy = new Policy(10, 10, 100, v(0), v(100));
+        assertTrue(TopUpPlan.create(v(0), 0, BigDecimal.ZERO, policy).getTopUps().isEmpty());
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BatchCallTest {
+    private static final String SCORE = "cx0000000000000000000000000000000000000001";
+
+    private HttpServer server;
+    private JsonRpcClient client;
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private volatile boolean rejectBatches;
+    // HTTP status of plain-text answers to batches, or 0
+    private volatile int batchStatus;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3", exchange -> {
+            httpRequests.incrementAndGet();
+            JsonNode body = JsonRpcClient.MAPPER.readTree(exchange.getRequestBody());
+            if (body.isArray() && batchStatus != 0) {
+                byte[] text = "batch failed".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(batchStatus, text.length);
+                exchange.getResponseBody().write(text);
+                exchange.close();
+                return;
+            }
+            JsonNode response;
+            if (body.isArray() && rejectBatches) {
+                ObjectNode error = JsonRpcClient.MAPPER.createObjectNode();
+                error.putNull("id");
+                error.putObject("error").put("code", -32600).put("message", "batch not supported");
+                response = error;
+            } else if (body.isArray()) {
+                ArrayNode responses = JsonRpcClient.MAPPER.createArrayNode();
+                // answer in reverse order, clients must match by id
+                for (int i = body.size() - 1; i >= 0; i--) {
+                    responses.add(answer(body.get(i)));
+                }
+                response = responses;
+            } else {
+                response = answer(body);
+            }
+            byte[] bytes = JsonRpcClient.MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        client = new JsonRpcClient("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3");
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    // balanceOf(_owner) returns the owner as the balance, "fail" returns a JSON-RPC error
+    private static JsonNode answer(JsonNode request) {
+        ObjectNode response = JsonRpcClient.MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        JsonNode data = request.path("params").path("data");
+        if (data.path("method").asText().equals("fail")) {
+            response.putObject("error").put("code", -30032).put("message", "Reverted(0)");
+        } else {
+            response.put("result", data.path("params").path("_owner").asText());
+        }
+        return response;
+    }
+
+    private List<CompletableFuture<JsonNode>> queueBalances(BatchCall batch, int count) {
+        List<CompletableFuture<JsonNode>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(batch.call(SCORE, "balanceOf", client.newParams().put("_owner", "0x" + Integer.toHexString(i))));
+        }
+        return futures;
+    }
+
+    @Test
+    void batches_are_demultiplexed_by_id() throws Exception {
+        BatchCall batch = new BatchCall(client, 100);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 250);
+        batch.flush();
+
+        assertEquals(3, httpRequests.get());
+        assertEquals(0, batch.size());
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("0x" + Integer.toHexString(i), futures.get(i).get().asText());
+        }
+    }
+
+    @Test
+    void falls_back_to_single_requests_when_batches_are_rejected() throws Exception {
+        rejectBatches = true;
+        BatchCall batch = new BatchCall(client);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 5);
+        batch.flush();
+
+        assertFalse(batch.isBatchSupported());
+        assertEquals(1 + 5, httpRequests.get());
+        for (int i = 0; i < futures.size(); i++) {
+            assertEquals("0x" + Integer.toHexString(i), futures.get(i).get().asText());
+        }
+
+        // later flushes go straight to single requests
+        httpRequests.set(0);
+        futures = queueBalances(batch, 3);
+        batch.flush();
+        assertEquals(3, httpRequests.get());
+        assertTrue(futures.stream().allMatch(CompletableFuture::isDone));
+    }
+
+    @Test
+    void falls_back_on_http_client_errors() throws Exception {
+        batchStatus = 400;
+        BatchCall batch = new BatchCall(client);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 4);
+        batch.flush();
+
+        assertFalse(batch.isBatchSupported());
+        assertEquals(1 + 4, httpRequests.get());
+        assertEquals("0x3", futures.get(3).get().asText());
+    }
+
+    @Test
+    void server_errors_fail_the_batch_and_keep_batching() throws Exception {
+        batchStatus = 503;
+        BatchCall batch = new BatchCall(client);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 4);
+        batch.flush();
+
+        assertTrue(batch.isBatchSupported());
+        assertEquals(1, httpRequests.get());
+        for (CompletableFuture<JsonNode> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertEquals(503, ((HttpStatusException) e.getCause()).getStatus());
+        }
+
+        batchStatus = 0;
+        futures = queueBalances(batch, 4);
+        batch.flush();
+        assertEquals(2, httpRequests.get());
+        assertEquals("0x2", futures.get(2).get().asText());
+    }
+
+    @Test
+    void transport_errors_fail_the_batch_and_keep_batching() {
+        server.stop(0);
+        BatchCall batch = new BatchCall(client);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 3);
+        batch.flush();
+
+        assertTrue(batch.isBatchSupported());
+        for (CompletableFuture<JsonNode> future : futures) {
+            ExecutionException e = assertThrows(ExecutionException.class, future::get);
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    void errors_fail_only_their_own_future() throws Exception {
+        BatchCall batch = new BatchCall(client);
+        List<CompletableFuture<JsonNode>> futures = queueBalances(batch, 2);
+        CompletableFuture<JsonNode> failing = batch.call(SCORE, "fail", null);
+        batch.flush();
+
+        assertEquals(1, httpRequests.get());
+        ExecutionException e = assertThrows(ExecutionException.class, failing::get);
+        assertTrue(e.getCause() instanceof RpcError);
+        assertEquals("0x1", futures.get(1).get().asText());
+    }
+}
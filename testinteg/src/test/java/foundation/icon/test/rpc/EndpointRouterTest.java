@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EndpointRouterTest {
+    private final List<Node> nodes = new ArrayList<>();
+    private EndpointRouter router;
+
+    // a local node answering icx_getLastBlock, icx_call and icx_sendTransaction
+    private static class Node {
+        final HttpServer server;
+        final String url;
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger sends = new AtomicInteger();
+        volatile long delayMillis;
+        volatile long height = 100;
+        volatile boolean failing;
+
+        Node(long delayMillis) throws IOException {
+            this.delayMillis = delayMillis;
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/v3", exchange -> {
+                JsonNode request = JsonRpcClient.MAPPER.readTree(exchange.getRequestBody());
+                String method = request.path("method").asText();
+                try {
+                    Thread.sleep(this.delayMillis);
+                } catch (InterruptedException ignored) {
+                }
+                ObjectNode response = JsonRpcClient.MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", request.get("id"));
+                int status = 200;
+                if (failing) {
+                    status = 503;
+                    response.putObject("error").put("code", -32000).put("message", "unavailable");
+                } else if (method.equals("icx_getLastBlock")) {
+                    response.putObject("result").put("height", height);
+                } else if (method.equals("icx_sendTransaction")) {
+                    sends.incrementAndGet();
+                    response.put("result", "0x01");
+                } else {
+                    calls.incrementAndGet();
+                    response.put("result", "0x1");
+                }
+                byte[] bytes = JsonRpcClient.MAPPER.writeValueAsBytes(response);
+                exchange.sendResponseHeaders(status, bytes.length);
+                exchange.getResponseBody().write(bytes);
+                exchange.close();
+            });
+            server.start();
+            url = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3";
+        }
+    }
+
+    private JsonRpcClient clientFor(EndpointRouter.SendRouting routing, Node... nodes) throws IOException {
+        List<String> urls = new ArrayList<>();
+        for (Node node : nodes) {
+            this.nodes.add(node);
+            urls.add(node.url);
+        }
+        router = new EndpointRouter(urls, routing, 2, 5);
+        OkHttpClient client = new OkHttpClient.Builder().addInterceptor(router).build();
+        return new JsonRpcClient(client, nodes[0].url);
+    }
+
+    private static void send(JsonRpcClient client) throws IOException {
+        client.request("icx_sendTransaction", client.newParams().put("to", "cx01"));
+    }
+
+    @AfterEach
+    void stopNodes() {
+        router.close();
+        nodes.forEach(n -> n.server.stop(0));
+    }
+
+    @Test
+    void reads_go_to_the_fastest_node() throws Exception {
+        Node slow = new Node(40);
+        Node fast = new Node(0);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.STICKY, slow, fast);
+        for (int i = 0; i < 3; i++) {
+            router.probe();
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals("0x1", client.call("cx01", "balanceOf", null).asText());
+        }
+        assertEquals(10, fast.calls.get());
+        assertEquals(0, slow.calls.get());
+    }
+
+    @Test
+    void reads_fail_over_to_a_healthy_node() throws Exception {
+        Node first = new Node(0);
+        Node second = new Node(10);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.STICKY, first, second);
+        router.probe();
+
+        first.failing = true;
+        for (int i = 0; i < 3; i++) {
+            assertEquals("0x1", client.call("cx01", "balanceOf", null).asText());
+        }
+        assertEquals(3, second.calls.get());
+        assertFalse(router.getEndpoints().get(0).isHealthy());
+
+        // a successful probe brings the node back
+        first.failing = false;
+        router.probe();
+        assertTrue(router.getEndpoints().get(0).isHealthy());
+    }
+
+    @Test
+    void lagging_nodes_leave_the_rotation() throws Exception {
+        Node fast = new Node(0);
+        Node slow = new Node(20);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.STICKY, fast, slow);
+        fast.height = 90;
+        router.probe();
+
+        client.call("cx01", "balanceOf", null);
+        assertFalse(router.getEndpoints().get(0).isHealthy());
+        assertEquals(1, slow.calls.get());
+    }
+
+    @Test
+    void lagging_nodes_stay_out_while_they_answer() throws Exception {
+        Node behind = new Node(0);
+        Node other = new Node(0);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.STICKY, behind, other);
+        behind.height = 90;
+        router.probe();
+        Endpoint lagging = router.getEndpoints().get(0);
+        assertTrue(lagging.isLagging());
+
+        // the only healthy node fails, so the lagging one serves the read as a last resort
+        other.failing = true;
+        assertEquals("0x1", client.call("cx01", "balanceOf", null).asText());
+        assertEquals(1, behind.calls.get());
+        assertFalse(lagging.isHealthy());
+
+        other.failing = false;
+        client.call("cx01", "balanceOf", null);
+        assertEquals(1, behind.calls.get());
+        assertEquals(1, other.calls.get());
+
+        // only a probe that finds it caught up brings it back
+        behind.height = 100;
+        router.probe();
+        assertFalse(lagging.isLagging());
+        assertTrue(lagging.isHealthy());
+    }
+
+    @Test
+    void sends_stick_to_one_node_until_it_goes_down() throws Exception {
+        Node a = new Node(0);
+        Node b = new Node(0);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.STICKY, a, b);
+        for (int i = 0; i < 5; i++) {
+            send(client);
+        }
+        assertEquals(5, a.sends.get() + b.sends.get());
+        assertTrue(a.sends.get() == 5 || b.sends.get() == 5);
+
+        Node used = a.sends.get() == 5 ? a : b;
+        Node other = used == a ? b : a;
+        used.server.stop(0);
+        send(client);
+        send(client);
+        assertEquals(2, other.sends.get());
+    }
+
+    @Test
+    void sends_take_nodes_in_turn() throws Exception {
+        Node a = new Node(0);
+        Node b = new Node(0);
+        JsonRpcClient client = clientFor(EndpointRouter.SendRouting.ROUND_ROBIN, a, b);
+        for (int i = 0; i < 6; i++) {
+            send(client);
+        }
+        assertEquals(3, a.sends.get());
+        assertEquals(3, b.sends.get());
+    }
+
+    @Test
+    void requests_marked_by_the_client_are_sends() throws Exception {
+        Node a = new Node(0);
+        Node b = new Node(0);
+        clientFor(EndpointRouter.SendRouting.ROUND_ROBIN, a, b);
+        OkHttpClient marking = new OkHttpClient.Builder()
+                .addInterceptor(EndpointRouter.MARK_SENDS)
+                .addInterceptor(router)
+                .build();
+        JsonRpcClient client = new JsonRpcClient(marking, a.url);
+        for (int i = 0; i < 4; i++) {
+            client.request("icx_call", client.newParams());
+        }
+        // taken in turn like sends, not all sent to the fastest node
+        assertEquals(2, a.calls.get());
+        assertEquals(2, b.calls.get());
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.rpc;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import foundation.icon.icx.transport.jsonrpc.RpcError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JsonRpcClientTest {
+    private HttpServer server;
+    private JsonRpcClient client;
+    private final List<JsonNode> requests = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3", exchange -> {
+            JsonNode body = JsonRpcClient.MAPPER.readTree(exchange.getRequestBody());
+            requests.add(body);
+            String method = body.path("method").asText();
+            byte[] bytes;
+            int status = 200;
+            if ("broken".equals(method)) {
+                status = 500;
+                bytes = "internal error".getBytes(StandardCharsets.UTF_8);
+            } else {
+                ObjectNode response = JsonRpcClient.MAPPER.createObjectNode();
+                response.put("jsonrpc", "2.0");
+                response.set("id", body.get("id"));
+                if ("icx_getTransactionResult".equals(method)) {
+                    response.putObject("error").put("code", -31002).put("message", "Pending");
+                } else {
+                    // echo the request, so tests can check what was sent
+                    response.set("result", body);
+                }
+                bytes = JsonRpcClient.MAPPER.writeValueAsBytes(response);
+            }
+            exchange.sendResponseHeaders(status, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        client = new JsonRpcClient("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3");
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void builds_requests() {
+        ObjectNode first = client.newRequest("icx_getLastBlock", null);
+        ObjectNode second = client.newRequest("icx_getBalance", client.newParams().put("address", "hx00"));
+        assertEquals("2.0", first.path("jsonrpc").asText());
+        assertEquals(first.path("id").asLong() + 1, second.path("id").asLong());
+        assertFalse(first.has("params"));
+        assertEquals("hx00", second.path("params").path("address").asText());
+
+        ObjectNode call = client.newCallParams("cx01", "balanceOf", client.newParams().put("_owner", "hx02"));
+        assertEquals("cx01", call.path("to").asText());
+        assertEquals("call", call.path("dataType").asText());
+        assertEquals("balanceOf", call.path("data").path("method").asText());
+        assertEquals("hx02", call.path("data").path("params").path("_owner").asText());
+        assertFalse(client.newCallParams("cx01", "name", client.newParams()).path("data").has("params"));
+    }
+
+    @Test
+    void unwraps_results_and_errors() throws Exception {
+        JsonNode sent = client.getBlockByHeight(255);
+        assertEquals("icx_getBlockByHeight", sent.path("method").asText());
+        assertEquals("0xff", sent.path("params").path("height").asText());
+        assertEquals(1, requests.size());
+
+        sent = client.call("cx01", "name", null);
+        assertEquals("icx_call", sent.path("method").asText());
+        assertEquals("name", sent.path("params").path("data").path("method").asText());
+
+        RpcError e = assertThrows(RpcError.class, () -> client.getTransactionResult("0x01"));
+        assertEquals(-31002, e.getCode());
+        assertEquals("Pending", e.getMessage());
+    }
+
+    @Test
+    void reports_non_json_responses() throws Exception {
+        IOException e = assertThrows(IOException.class, () -> client.request("broken", null));
+        assertEquals("HTTP 500: internal error", e.getMessage());
+
+        String method = client.post(client.newRequest("icx_getLastBlock", null),
+                body -> JsonRpcClient.MAPPER.readTree(body).path("result").path("method").asText());
+        assertEquals("icx_getLastBlock", method);
+        assertEquals(2, requests.size());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.statement;
+
+import foundation.icon.test.ledger.TransferLedger;
+import foundation.icon.test.profile.TxFixture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class StatementServiceTest {
+    private static final String ZERO = "hx0000000000000000000000000000000000000000";
+    private static final String ALICE = "hx0000000000000000000000000000000000000a11";
+    private static final String BOB = "hx0000000000000000000000000000000000000b0b";
+    private static final String CAROL = "cx00000000000000000000000000000000000ca201";
+
+    private Path dir;
+    private TransferLedger ledger;
+    private StatementService service;
+
+    @BeforeEach
+    void createLedger() throws IOException {
+        dir = Files.createTempDirectory("statement");
+        ledger = TransferLedger.open(dir.resolve("ledger"), 16);
+        ledger.append(10, 0, 0, ZERO, ALICE, BigInteger.valueOf(1000));
+        ledger.append(12, 0, 0, ALICE, BOB, BigInteger.valueOf(300));
+        ledger.append(12, 1, 0, ALICE, CAROL, BigInteger.valueOf(200));
+        ledger.append(20, 0, 0, BOB, ALICE, BigInteger.valueOf(50));
+        ledger.append(21, 0, 0, ALICE, ALICE, BigInteger.valueOf(7));
+        ledger.append(30, 0, 0, CAROL, ZERO, BigInteger.valueOf(200));
+        ledger.append(31, 2, 1, ALICE, BOB, BigInteger.valueOf(1));
+        service = new StatementService(ledger);
+    }
+
+    @AfterEach
+    void deleteLedger() throws IOException {
+        ledger.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Test
+    void pages_carry_running_balances() {
+        List<BigInteger> balances = new ArrayList<>();
+        List<BigInteger> openings = new ArrayList<>();
+        String cursor = null;
+        do {
+            StatementService.Page page = service.page(ALICE, 0, Long.MAX_VALUE, cursor, 2);
+            openings.add(page.openingBalance);
+            page.lines.forEach(line -> balances.add(line.balance));
+            cursor = page.nextCursor;
+        } while (cursor != null);
+
+        assertEquals(List.of(1000, 700, 500, 550, 550, 549), ints(balances));
+        assertEquals(List.of(0, 700, 550), ints(openings));
+    }
+
+    @Test
+    void period_starts_from_the_balance_before_it() {
+        StatementService.Page page = service.page(ALICE, 13, 30, null, 100);
+        assertEquals(BigInteger.valueOf(500), page.openingBalance);
+        assertEquals(2, page.lines.size());
+        assertEquals(BOB, page.lines.get(0).counterparty);
+        assertEquals(BigInteger.valueOf(50), page.lines.get(0).amount);
+        assertEquals(BigInteger.ZERO, page.lines.get(1).amount);
+        assertEquals(BigInteger.valueOf(550), page.closingBalance);
+        assertNull(page.nextCursor);
+
+        assertEquals(0, service.page(CAROL, 31, 40, null, 10).lines.size());
+        assertThrows(IllegalArgumentException.class, () -> service.page(ALICE, 0, 40, "zz", 10));
+    }
+
+    @Test
+    void writes_all_holders_in_parallel() throws Exception {
+        Path out = dir.resolve("out");
+        assertEquals(3, service.writeAll(out, 0, Long.MAX_VALUE, 2));
+
+        Map<String, String> closing = new HashMap<>();
+        int lines = 0;
+        for (int n = 0; n < 2; n++) {
+            List<String> rows = Files.readAllLines(out.resolve("summary-" + n + ".csv"));
+            for (String row : rows.subList(1, rows.size())) {
+                String[] cols = row.split(",");
+                closing.put(cols[0], cols[2]);
+            }
+            lines += Files.readAllLines(out.resolve("statements-" + n + ".csv")).size() - 1;
+        }
+        assertEquals(Map.of(ALICE, "549", BOB, "251", CAROL, "0"), closing);
+        assertEquals(6 + 3 + 2, lines);
+    }
+
+    @Test
+    void imports_recorded_fixture() throws Exception {
+        TxFixture recorded = TxFixture.load(Path.of("conf/fixtures/stablecoin-tx.json"));
+        try (TransferLedger imported = TransferLedger.open(dir.resolve("fixture"))) {
+            long transfers = StatementService.importFixture(recorded, recorded.firstDestination(), imported);
+            assertEquals(7, transfers);
+            assertEquals(transfers, imported.size());
+        }
+    }
+
+    private static List<Integer> ints(List<BigInteger> values) {
+        List<Integer> ints = new ArrayList<>();
+        values.forEach(v -> ints.add(v.intValueExact()));
+        return ints;
+    }
+}
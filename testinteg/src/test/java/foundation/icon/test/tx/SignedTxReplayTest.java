@@ -0,0 +1,195 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import foundation.icon.icx.data.Address;
+import foundation.icon.test.WalletStore;
+import foundation.icon.test.rpc.JsonRpcClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SignedTxReplayTest {
+    private static final BigInteger NID = BigInteger.valueOf(3);
+    private static final Address TOKEN = new Address("cx0000000000000000000000000000000000000001");
+
+    private HttpServer server;
+    private JsonRpcClient client;
+    private Path dir;
+    private final AtomicInteger hashes = new AtomicInteger();
+    // polls left before a sent transaction has a result
+    private final Map<String, Integer> pending = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("replay");
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3", exchange -> {
+            JsonNode body = MAPPER.readTree(exchange.getRequestBody());
+            JsonNode response;
+            if (body.isArray()) {
+                ArrayNode responses = MAPPER.createArrayNode();
+                for (JsonNode request : body) {
+                    responses.add(answer(request));
+                }
+                response = responses;
+            } else {
+                response = answer(body);
+            }
+            byte[] bytes = MAPPER.writeValueAsBytes(response);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        client = new JsonRpcClient("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        server.stop(0);
+        try (var files = Files.list(dir)) {
+            for (Path p : (Iterable<Path>) files::iterator) {
+                Files.delete(p);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private ObjectNode answer(JsonNode request) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        JsonNode params = request.path("params");
+        if ("icx_sendTransaction".equals(request.path("method").asText())) {
+            if (params.path("signature").isMissingNode()) {
+                response.putObject("error").put("code", -32602).put("message", "no signature");
+            } else if ("0x7".equals(params.path("nonce").asText())) {
+                response.putObject("error").put("code", -31001).put("message", "rejected");
+            } else {
+                String txHash = String.format("0x%064x", hashes.incrementAndGet());
+                pending.put(txHash, 2);
+                response.put("result", txHash);
+            }
+            return response;
+        }
+        String txHash = params.path("txHash").asText();
+        int left = pending.merge(txHash, -1, Integer::sum);
+        if (left >= 0) {
+            response.putObject("error").put("code", -31002).put("message", "pending");
+        } else {
+            response.putObject("result").put("txHash", txHash).put("status", "0x1");
+        }
+        return response;
+    }
+
+    private static List<String> recipients(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (String line : Files.readAllLines(file)) {
+            JsonNode data = MAPPER.readTree(line).path("data");
+            lines.add(data.path("method").asText() + " " + data.path("params").path("_to").asText());
+        }
+        Collections.sort(lines);
+        return lines;
+    }
+
+    @Test
+    void generatesSignedLines() throws Exception {
+        Path out = dir.resolve("a.jsonl");
+        Path again = dir.resolve("b.jsonl");
+        long written;
+        try (WalletStore wallets = WalletStore.derive("generate", 2, 1)) {
+            written = SignedTxReplay.generate(wallets, NID, TOKEN, 500, 0.2, 10,
+                    BigInteger.ONE, BigInteger.valueOf(300000), 7, out, 4);
+            SignedTxReplay.generate(wallets, NID, TOKEN, 500, 0.2, 10,
+                    BigInteger.ONE, BigInteger.valueOf(300000), 7, again, 2);
+        }
+        assertEquals(500, written);
+
+        Set<String> nonces = new HashSet<>();
+        int mints = 0;
+        for (String line : Files.readAllLines(out)) {
+            JsonNode tx = MAPPER.readTree(line);
+            assertEquals("0x3", tx.path("nid").asText());
+            assertEquals(TOKEN.toString(), tx.path("to").asText());
+            assertTrue(tx.has("signature"));
+            nonces.add(tx.path("from").asText() + " " + tx.path("nonce").asText());
+            if ("mintTo".equals(tx.path("data").path("method").asText())) {
+                mints++;
+            }
+        }
+        assertEquals(500, nonces.size());
+        assertTrue(mints > 50 && mints < 150, "mints " + mints);
+
+        // the same seed draws the same transactions
+        assertEquals(recipients(out), recipients(again));
+    }
+
+    @Test
+    void derivesWalletsFromTheirOwnSeed() throws Exception {
+        try (WalletStore wallets = SignedTxReplay.openWallets(
+                Map.of("derive", "3", "derive-seed", "load-test", "seed", "42"), 2);
+             WalletStore store = WalletStore.derive("load-test", 3, 1)) {
+            assertEquals(3, wallets.size());
+            for (int i = 0; i < wallets.size(); i++) {
+                assertEquals(store.getAddress(i), wallets.get(i).getAddress());
+            }
+        }
+        assertNull(SignedTxReplay.openWallets(Map.of("seed", "42"), 2));
+    }
+
+    @Test
+    void replaysAtRate() throws Exception {
+        Path file = dir.resolve("c.jsonl");
+        try (WalletStore wallets = WalletStore.derive("replay", 1, 1)) {
+            SignedTxReplay.generate(wallets, NID, TOKEN, 60, 0, 5,
+                    BigInteger.ONE, BigInteger.valueOf(300000), 1, file, 2);
+        }
+
+        SignedTxReplay.Report report = SignedTxReplay.replay(client, file, 200, 4, 5000, 10);
+        assertEquals(59, report.sent);
+        assertEquals(Map.of(-31001L, 1L), report.rejected);
+        assertEquals(59, report.success);
+        assertEquals(59, report.finalizeLatency.getCount());
+        assertEquals(0, report.errors + report.expired + report.failure);
+        // 60 sends spaced by 5 ms
+        assertTrue(report.elapsedMillis >= 280, "elapsed " + report.elapsedMillis);
+    }
+}
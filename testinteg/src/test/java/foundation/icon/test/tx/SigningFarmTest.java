@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import foundation.icon.icx.KeyWallet;
+import foundation.icon.icx.SignedTransaction;
+import foundation.icon.icx.Wallet;
+import foundation.icon.icx.data.Address;
+import foundation.icon.icx.data.Bytes;
+import foundation.icon.icx.transport.jsonrpc.RpcObject;
+import foundation.icon.icx.transport.jsonrpc.RpcValue;
+import foundation.icon.test.tx.SigningFarm.Intent;
+import foundation.icon.test.tx.SigningFarm.Signed;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SigningFarmTest {
+    private static final BigInteger NID = BigInteger.valueOf(3);
+    private static final Address TOKEN = new Address("cx0000000000000000000000000000000000000001");
+
+    private static Intent transfer(Wallet wallet, int i) {
+        RpcObject params = new RpcObject.Builder()
+                .put("_to", new RpcValue(TOKEN.toString()))
+                .put("_value", new RpcValue(BigInteger.valueOf(i)))
+                .build();
+        return Intent.call(wallet, TOKEN, "transfer", params, BigInteger.valueOf(200000));
+    }
+
+    @Test
+    void assignsSequencesPerWallet() throws Exception {
+        List<Wallet> wallets = List.of(KeyWallet.create(), KeyWallet.create(), KeyWallet.create());
+        List<RpcObject> sent = new ArrayList<>();
+        AtomicInteger hashes = new AtomicInteger();
+        List<CompletableFuture<Bytes>> futures = new ArrayList<>();
+        SigningFarm farm = new SigningFarm(NID, 4, 16);
+        farm.submitTo(tx -> {
+            synchronized (sent) {
+                sent.add(tx.getProperties());
+            }
+            return new Bytes(String.format("0x%064x", hashes.incrementAndGet()));
+        }, 2);
+        for (int i = 0; i < 300; i++) {
+            futures.add(farm.add(transfer(wallets.get(i % 3), i)));
+        }
+        farm.close();
+
+        Set<Bytes> txHashes = new HashSet<>();
+        for (CompletableFuture<Bytes> future : futures) {
+            assertTrue(future.isDone());
+            txHashes.add(future.get());
+        }
+        assertEquals(300, txHashes.size());
+        Map<String, Set<BigInteger>> nonces = new HashMap<>();
+        Map<String, Set<BigInteger>> timestamps = new HashMap<>();
+        for (RpcObject tx : sent) {
+            String from = tx.getItem("from").asString();
+            nonces.computeIfAbsent(from, k -> new HashSet<>()).add(tx.getItem("nonce").asInteger());
+            timestamps.computeIfAbsent(from, k -> new HashSet<>()).add(tx.getItem("timestamp").asInteger());
+            assertEquals(NID, tx.getItem("nid").asInteger());
+        }
+        assertEquals(3, nonces.size());
+        for (Wallet wallet : wallets) {
+            Set<BigInteger> n = nonces.get(wallet.getAddress().toString());
+            assertEquals(100, n.size());
+            assertTrue(n.contains(BigInteger.ZERO) && n.contains(BigInteger.valueOf(99)));
+            assertEquals(100, timestamps.get(wallet.getAddress().toString()).size());
+        }
+    }
+
+    @Test
+    void handsOutWithoutSubmitStage() throws Exception {
+        Wallet wallet = KeyWallet.create();
+        SigningFarm farm = new SigningFarm(NID, 2, 4);
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 50; i++) {
+                    farm.add(transfer(wallet, i));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            farm.close();
+        });
+        producer.start();
+        int count = 0;
+        Signed item;
+        while ((item = farm.take()) != null) {
+            SignedTransaction tx = item.getTransaction();
+            assertEquals("transfer", ((RpcObject) tx.getProperties().getItem("data")).getItem("method").asString());
+            count++;
+        }
+        producer.join();
+        assertEquals(50, count);
+        assertThrows(IllegalStateException.class, () -> farm.add(transfer(wallet, 0)));
+    }
+
+    @Test
+    void reportsSendFailures() throws Exception {
+        Wallet wallet = KeyWallet.create();
+        SigningFarm farm = new SigningFarm(NID, 2, 4);
+        farm.submitTo(tx -> {
+            throw new IOException("rejected");
+        }, 1);
+        CompletableFuture<Bytes> future = farm.add(transfer(wallet, 1));
+        farm.close();
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertEquals("rejected", e.getCause().getMessage());
+    }
+}
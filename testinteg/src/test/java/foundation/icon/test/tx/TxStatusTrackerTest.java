@@ -0,0 +1,203 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.tx;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import foundation.icon.test.rpc.JsonRpcClient;
+import foundation.icon.test.tx.TxStatusTracker.Completion;
+import foundation.icon.test.tx.TxStatusTracker.Status;
+import foundation.icon.test.tx.TxStatusTracker.Waiting;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static foundation.icon.test.rpc.JsonRpcClient.MAPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TxStatusTrackerTest {
+    private HttpServer server;
+    private TxStatusTracker tracker;
+    private final AtomicInteger httpRequests = new AtomicInteger();
+    private final AtomicInteger maxBatch = new AtomicInteger();
+    // remaining error codes answered for a hash before its result, 0 ends with a failure,
+    // NO_RESULT answers with neither a result nor an error
+    private static final int NO_RESULT = 2;
+    private final Map<String, List<Integer>> scripts = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void startFixtureServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/v3", exchange -> {
+            httpRequests.incrementAndGet();
+            JsonNode body = MAPPER.readTree(exchange.getRequestBody());
+            maxBatch.accumulateAndGet(body.size(), Math::max);
+            ArrayNode responses = MAPPER.createArrayNode();
+            for (int i = body.size() - 1; i >= 0; i--) {
+                responses.add(answer(body.get(i)));
+            }
+            byte[] bytes = MAPPER.writeValueAsBytes(responses);
+            exchange.sendResponseHeaders(200, bytes.length);
+            exchange.getResponseBody().write(bytes);
+            exchange.close();
+        });
+        server.start();
+        JsonRpcClient client = new JsonRpcClient("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v3");
+        tracker = new TxStatusTracker(client, 10);
+        for (Waiting waiting : Waiting.values()) {
+            tracker.setBackoff(waiting, 10, 40);
+        }
+    }
+
+    @AfterEach
+    void stop() {
+        tracker.close();
+        server.stop(0);
+    }
+
+    private ObjectNode answer(JsonNode request) {
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("jsonrpc", "2.0");
+        response.set("id", request.get("id"));
+        String txHash = request.path("params").path("txHash").asText();
+        List<Integer> script = scripts.get(txHash);
+        int code;
+        synchronized (script) {
+            code = script.isEmpty() ? 1 : script.size() == 1 && script.get(0) == 0 ? 0 : script.remove(0);
+        }
+        if (code == NO_RESULT) {
+            return response;
+        } else if (code < 0) {
+            ObjectNode error = response.putObject("error");
+            error.put("code", code);
+            error.put("message", "code " + code);
+        } else {
+            ObjectNode result = response.putObject("result");
+            result.put("txHash", txHash);
+            result.put("status", "0x" + code);
+        }
+        return response;
+    }
+
+    private CompletableFuture<Completion> track(String txHash, long timeout, Integer... codes) {
+        scripts.put(txHash, Collections.synchronizedList(new ArrayList<>(List.of(codes))));
+        return tracker.track(txHash, timeout);
+    }
+
+    private static Completion get(CompletableFuture<Completion> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void classifiesAndCompletes() throws Exception {
+        CompletableFuture<Completion> ok = track("0x01", 5000, -31004, -31004, -31002, -31003);
+        CompletableFuture<Completion> failed = track("0x02", 5000, 0);
+        CompletableFuture<Completion> stale = track("0x03", 200, -31002, -31002, -31002, -31002, -31002,
+                -31002, -31002, -31002, -31002, -31002, -31002, -31002, -31002, -31002, -31002, -31002);
+        CompletableFuture<Completion> invalid = track("0x04", 5000, -32602);
+        CompletableFuture<Completion> empty = track("0x05", 5000, NO_RESULT);
+
+        Completion c = get(ok);
+        assertEquals(Status.SUCCESS, c.status);
+        assertEquals(5, c.polls);
+        assertEquals("0x01", c.result.get("txHash").asText());
+        assertEquals(Status.FAILURE, get(failed).status);
+        c = get(stale);
+        assertEquals(Status.EXPIRED, c.status);
+        assertEquals("pending", c.error);
+        assertNull(c.result);
+        c = get(invalid);
+        assertEquals(Status.ERROR, c.status);
+        assertTrue(c.error.startsWith("-32602"), c.error);
+        c = get(empty);
+        assertEquals(Status.ERROR, c.status);
+        assertNull(c.result);
+    }
+
+    @Test
+    void pollsInBatches() throws Exception {
+        tracker.setBatchSize(40);
+        List<CompletableFuture<Completion>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(track(String.format("0x%04x", i), 5000, -31002, -31003));
+        }
+        for (CompletableFuture<Completion> future : futures) {
+            assertEquals(Status.SUCCESS, get(future).status);
+        }
+        // 600 polls, at most 40 per request
+        assertEquals(40, maxBatch.get());
+        assertTrue(httpRequests.get() < 100, "requests " + httpRequests.get());
+    }
+
+    @Test
+    void publishesCompletions() throws Exception {
+        List<String> seen = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        tracker.completions().subscribe(new Flow.Subscriber<>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(Completion item) {
+                seen.add(item.txHash + " " + item.status);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+                done.countDown();
+            }
+        });
+        get(track("0x0a", 5000, -31002));
+        get(track("0x0b", 5000, 0));
+        tracker.close();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("0x0a SUCCESS", "0x0b FAILURE"), seen);
+    }
+
+    @Test
+    void closeCancelsOutstanding() {
+        CompletableFuture<Completion> future = track("0x0c", 60000, -31002, -31002, -31002, -31002);
+        tracker.close();
+        assertThrows(CancellationException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertThrows(IllegalStateException.class, () -> tracker.track("0x0d", 1000));
+    }
+}
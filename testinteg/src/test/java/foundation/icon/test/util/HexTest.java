@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022 ICON Foundation
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foundation.icon.test.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class HexTest {
+
+    @Test
+    void parses_numbers() {
+        assertEquals(BigInteger.valueOf(255), Hex.toBigInteger("0xff"));
+        assertEquals(BigInteger.valueOf(255), Hex.toBigInteger("ff"));
+        assertEquals(BigInteger.valueOf(-16), Hex.toBigInteger("-0x10"));
+        assertEquals(BigInteger.ZERO, Hex.toBigInteger(null));
+        assertEquals(56_001_800L, Hex.toLong("0x3568508"));
+        assertThrows(ArithmeticException.class, () -> Hex.toLong("0x10000000000000000"));
+    }
+
+    @Test
+    void formats_numbers() {
+        assertEquals("0x0", Hex.of(0));
+        assertEquals("0x3568508", Hex.of(56_001_800L));
+        assertEquals("-0x10", Hex.of(BigInteger.valueOf(-16)));
+        BigInteger value = BigInteger.TEN.pow(21);
+        assertEquals(value, Hex.toBigInteger(Hex.of(value)));
+    }
+
+    @Test
+    void parses_bytes() {
+        assertArrayEquals(new byte[]{0x01, (byte) 0xab, 0x7f}, Hex.toBytes("0x01ab7f"));
+        assertArrayEquals(new byte[]{(byte) 0xff}, Hex.toBytes("FF"));
+        assertArrayEquals(new byte[0], Hex.toBytes("0x"));
+        assertNull(Hex.toBytes(null));
+        assertThrows(IllegalArgumentException.class, () -> Hex.toBytes("0xabc"));
+        assertThrows(IllegalArgumentException.class, () -> Hex.toBytes("0xzz"));
+    }
+}